@@ -0,0 +1,55 @@
+package top.hanlin.publicipupload.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 操作日志并发读写基准测试（模拟多个任务写日志、控制台轮询读取）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Group)
+public class OperationLogBenchmark {
+
+    private DdnsTaskService service;
+
+    @Setup
+    public void setup() throws Exception {
+        File file = File.createTempFile("ddns-bench", ".json");
+        file.deleteOnExit();
+        service = new DdnsTaskService(file);
+        for (int i = 0; i < 100; i++) {
+            service.addOperationLog("info", "[DDNS] warmup-" + i + ".example.com 更新成功: 203.0.113." + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.destroy();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void add() {
+        service.addOperationLog("success", "[DDNS] bench.example.com 更新成功: 203.0.113.45");
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public List<Map<String, String>> poll() {
+        return service.getOperationLogs(50);
+    }
+
+    @Benchmark
+    @Group("uncontended")
+    @GroupThreads(1)
+    public void addOnly() {
+        service.addOperationLog("success", "[DDNS] bench.example.com 更新成功: 203.0.113.45");
+    }
+}
@@ -0,0 +1,62 @@
+package top.hanlin.publicipupload.service;
+
+import org.openjdk.jmh.annotations.*;
+import top.hanlin.publicipupload.entity.DdnsTask;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 调度器派发开销基准测试：在已有 N 个周期任务排队时，一次到期执行从调度线程触发，
+ * 经 DdnsTaskService 的派发路径（登记运行中、提交到虚拟线程）到执行体开始运行的耗时。
+ * 执行体为空，不包含IP探测与记录读写
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SchedulerDispatchBenchmark {
+
+    // 调度器中已排队的周期任务数
+    @Param({"0", "1000", "10000", "100000"})
+    public int scheduledTasks;
+
+    private DdnsTaskService service;
+    private ScheduledThreadPoolExecutor scheduler;
+    // 每次派发使用新的任务ID，上一次执行的登记尚未移除时不会被跳过
+    private final AtomicLong nextId = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        File file = File.createTempFile("ddns-bench", ".json");
+        file.deleteOnExit();
+        service = new DdnsTaskService(file);
+        scheduler = service.scheduler();
+        for (int i = 0; i < scheduledTasks; i++) {
+            // 错开首次执行时间，均不会在测量期间触发
+            scheduler.scheduleAtFixedRate(() -> { }, 3600 + i % 600, 3600, TimeUnit.SECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.destroy();
+    }
+
+    @Benchmark
+    public void dispatch() throws InterruptedException {
+        DdnsTask task = new DdnsTask();
+        task.setId("bench-" + nextId.incrementAndGet());
+        task.setFullDomain("bench.example.com");
+        CountDownLatch latch = new CountDownLatch(1);
+        scheduler.execute(() -> service.dispatch(task, latch::countDown));
+        latch.await();
+    }
+
+    @Benchmark
+    public void scheduleAndCancel() {
+        scheduler.scheduleAtFixedRate(() -> { }, 300, 300, TimeUnit.SECONDS).cancel(false);
+    }
+}
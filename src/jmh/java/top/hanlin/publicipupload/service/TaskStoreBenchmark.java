@@ -0,0 +1,78 @@
+package top.hanlin.publicipupload.service;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+import top.hanlin.publicipupload.entity.DdnsTask;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务文件保存/加载基准测试
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class TaskStoreBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int taskCount;
+
+    private File file;
+    private DdnsTaskService service;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        file = File.createTempFile("ddns-bench", ".json");
+        file.deleteOnExit();
+        List<DdnsTask> list = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            list.add(createTask(i));
+        }
+        try (Writer writer = new FileWriter(file)) {
+            new Gson().toJson(list, writer);
+        }
+        service = new DdnsTaskService(file);
+        service.loadTasks();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.destroy();
+        file.delete();
+    }
+
+    static DdnsTask createTask(int i) {
+        DdnsTask task = new DdnsTask();
+        task.setId("task-" + i);
+        task.setProvider(i % 2 == 0 ? "腾讯云" : "阿里云");
+        task.setSecretId("AKID" + (i % 20));
+        task.setSecretKey("secret-key-" + (i % 20));
+        task.setDomain("example" + (i % 50) + ".com");
+        task.setSubdomain("host" + i);
+        task.setFullDomain("host" + i + ".example" + (i % 50) + ".com");
+        task.setIpServiceUrl("https://4.ipw.cn");
+        task.setIpServiceName("IPW.CN");
+        task.setRecordType(i % 4 == 0 ? "AAAA" : "A");
+        task.setInterval(300);
+        task.setEnabled(true);
+        task.setLastIp("203.0.113." + (i % 250));
+        task.setLastUpdateTime("2026-01-01 00:00:00");
+        task.setStatus("running");
+        return task;
+    }
+
+    @Benchmark
+    public void saveTasks() {
+        service.saveTasks();
+    }
+
+    @Benchmark
+    public void loadTasks() {
+        service.loadTasks();
+    }
+}
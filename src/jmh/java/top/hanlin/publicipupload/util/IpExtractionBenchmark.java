@@ -0,0 +1,47 @@
+package top.hanlin.publicipupload.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IP服务响应解析基准测试
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class IpExtractionBenchmark {
+
+    // 响应格式：纯文本 / JSON / HTML 页面
+    @Param({"plain", "json", "html"})
+    public String format;
+
+    private String ipv4Content;
+    private String ipv6Content;
+
+    @Setup
+    public void setup() {
+        ipv4Content = wrap("203.0.113.45");
+        ipv6Content = wrap("2001:db8:85a3::8a2e:370:7334");
+    }
+
+    private String wrap(String ip) {
+        return switch (format) {
+            case "json" -> "{\"ip\":\"" + ip + "\",\"country\":\"CN\",\"asn\":\"AS4134\"}";
+            case "html" -> "<html><head><title>What is my IP</title></head><body>"
+                + "<div class=\"header\">".repeat(20) + "Your IP: <b>" + ip + "</b>"
+                + "</div>".repeat(20) + "</body></html>";
+            default -> ip + "\n";
+        };
+    }
+
+    @Benchmark
+    public String extractIPv4() {
+        return DDNS.extractIPv4(ipv4Content);
+    }
+
+    @Benchmark
+    public String extractIPv6() {
+        return DDNS.extractIPv6(ipv6Content);
+    }
+}
@@ -0,0 +1,76 @@
+package top.hanlin.publicipupload.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.*;
+import top.hanlin.publicipupload.model.ApiResponse;
+import top.hanlin.publicipupload.model.FaultRule;
+import top.hanlin.publicipupload.util.FaultInjector;
+
+/**
+ * 故障注入管理接口（需在配置中开启 ddns.fault-injection.enabled=true，未开启时所有接口均返回错误）
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/faults")
+public class FaultInjectionController {
+
+    @Value("${ddns.fault-injection.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 获取当前故障规则及触发次数
+     */
+    @GetMapping
+    public Object getRules() {
+        if (!enabled) {
+            return ApiResponse.error("故障注入未开启");
+        }
+        return ApiResponse.successData(FaultInjector.getRules());
+    }
+
+    /**
+     * 添加故障规则
+     */
+    @PostMapping
+    public Object addRule(@RequestBody FaultRule rule) {
+        if (!enabled) {
+            return ApiResponse.error("故障注入未开启");
+        }
+        try {
+            FaultRule added = FaultInjector.addRule(rule);
+            log.warn("添加故障注入规则: {}", added);
+            return ApiResponse.successData(added);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 删除故障规则
+     */
+    @DeleteMapping("/{id}")
+    public Object removeRule(@PathVariable String id) {
+        if (!enabled) {
+            return ApiResponse.error("故障注入未开启");
+        }
+        if (FaultInjector.removeRule(id)) {
+            log.warn("删除故障注入规则: {}", id);
+            return ApiResponse.success("删除成功");
+        }
+        return ApiResponse.error("规则不存在");
+    }
+
+    /**
+     * 清空全部故障规则
+     */
+    @DeleteMapping
+    public Object clearRules() {
+        if (!enabled) {
+            return ApiResponse.error("故障注入未开启");
+        }
+        FaultInjector.clear();
+        log.warn("已清空故障注入规则");
+        return ApiResponse.success("已清空");
+    }
+}
@@ -0,0 +1,32 @@
+package top.hanlin.publicipupload.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+import top.hanlin.publicipupload.model.ApiResponse;
+import top.hanlin.publicipupload.util.ServiceBenchmark;
+
+/**
+ * IP服务测速接口：为任务选择首选IP服务提供依据
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/benchmark")
+public class ServiceBenchmarkController {
+
+    /**
+     * 对所有IP服务运行测速（同步返回报告，同一时间只允许一次）
+     *
+     * @param rounds 每个服务的查询轮数（1~20）
+     * @param ipType ipv4、ipv6，不填为全部
+     */
+    @PostMapping
+    public Object run(@RequestParam(defaultValue = "5") int rounds,
+                      @RequestParam(required = false) String ipType) {
+        log.info("开始IP服务测速: {} 轮 ({})", rounds, ipType == null ? "全部" : ipType);
+        try {
+            return ApiResponse.successData(ServiceBenchmark.run(rounds, ipType));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+}
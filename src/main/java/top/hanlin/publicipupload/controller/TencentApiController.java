@@ -1,18 +1,25 @@
 package top.hanlin.publicipupload.controller;
 
-import com.tencentcloudapi.common.Credential;
 import com.tencentcloudapi.common.exception.TencentCloudSDKException;
-import com.tencentcloudapi.common.profile.ClientProfile;
-import com.tencentcloudapi.common.profile.HttpProfile;
 import com.tencentcloudapi.dnspod.v20210323.DnspodClient;
 import com.tencentcloudapi.dnspod.v20210323.models.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import top.hanlin.publicipupload.entity.DdnsTask;
 import top.hanlin.publicipupload.model.ApiResponse;
+import top.hanlin.publicipupload.model.RecordGroupRequest;
+import top.hanlin.publicipupload.model.TaskPage;
+import top.hanlin.publicipupload.model.TaskQuery;
 import top.hanlin.publicipupload.service.DdnsTaskService;
+import top.hanlin.publicipupload.util.CustomIpService;
 import top.hanlin.publicipupload.util.DDNS;
+import top.hanlin.publicipupload.util.DnsClients;
+import top.hanlin.publicipupload.util.IpAddress;
+import top.hanlin.publicipupload.util.ProbeResolver;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -26,18 +33,6 @@ public class TencentApiController {
     @Autowired
     private DdnsTaskService ddnsTaskService;
 
-    /**
-     * 创建腾讯云 DnspodClient
-     */
-    private DnspodClient createDnspodClient(String id, String key) {
-        Credential cred = new Credential(id, key);
-        HttpProfile httpProfile = new HttpProfile();
-        httpProfile.setEndpoint("dnspod.tencentcloudapi.com");
-        ClientProfile clientProfile = new ClientProfile();
-        clientProfile.setHttpProfile(httpProfile);
-        return new DnspodClient(cred, "", clientProfile);
-    }
-
     /**
      * 获取账号下所有根域名列表
      */
@@ -55,7 +50,7 @@ public class TencentApiController {
                 domainNames = getAliyunDomainList(id, key);
             } else {
                 // 默认腾讯云
-                DnspodClient client = createDnspodClient(id, key);
+                DnspodClient client = DnsClients.tencent(id, key);
                 DescribeDomainListRequest req = new DescribeDomainListRequest();
                 DescribeDomainListResponse resp = client.DescribeDomainList(req);
                 
@@ -76,11 +71,7 @@ public class TencentApiController {
      * 获取阿里云域名列表
      */
     private List<String> getAliyunDomainList(String accessKeyId, String accessKeySecret) throws Exception {
-        com.aliyun.teaopenapi.models.Config config = new com.aliyun.teaopenapi.models.Config()
-            .setAccessKeyId(accessKeyId)
-            .setAccessKeySecret(accessKeySecret)
-            .setEndpoint("alidns.cn-hangzhou.aliyuncs.com");
-        com.aliyun.alidns20150109.Client client = new com.aliyun.alidns20150109.Client(config);
+        com.aliyun.alidns20150109.Client client = DnsClients.aliyun(accessKeyId, accessKeySecret);
         
         com.aliyun.alidns20150109.models.DescribeDomainsRequest req = 
             new com.aliyun.alidns20150109.models.DescribeDomainsRequest();
@@ -129,9 +120,22 @@ public class TencentApiController {
      * 添加自定义IP服务
      */
     @PostMapping("/addIpService")
-    public Object addIpService(@RequestParam String url) {
-        log.info("添加自定义IP服务: {}", url);
-        if (DDNS.addCustomService(url)) {
+    public Object addIpService(
+            @RequestParam String url,
+            @RequestParam(required = false) String name,
+            @RequestParam(defaultValue = "ipv4") String ipType,
+            @RequestParam(defaultValue = "scan") String mode,
+            @RequestParam(required = false) String expression,
+            @RequestParam(defaultValue = "0") int maxBytes) {
+        log.info("添加自定义IP服务: {} ({}, {})", url, ipType, mode);
+        CustomIpService service;
+        try {
+            // 注册时编译提取规则，格式错误直接返回
+            service = CustomIpService.of(url.trim(), name, ipType, mode, expression, maxBytes);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+        if (DDNS.addCustomService(service)) {
             ddnsTaskService.addOperationLog("info", "[系统] 添加自定义IP服务: " + url);
             return ApiResponse.success("添加成功");
         }
@@ -149,6 +153,24 @@ public class TencentApiController {
         return ApiResponse.success(interfaces);
     }
     
+    /**
+     * 获取各出口网卡的公网IP（多线路）
+     */
+    @GetMapping("/wanIps")
+    public Object getWanIps() {
+        log.info("获取各出口网卡的公网IP");
+        List<Map<String, String>> results = DDNS.getWanPublicIPs();
+        return ApiResponse.success(results);
+    }
+
+    /**
+     * 获取IP服务域名解析缓存
+     */
+    @GetMapping("/resolverCache")
+    public Object getResolverCache() {
+        return ApiResponse.successData(ProbeResolver.snapshot());
+    }
+
     /**
      * 添加本地网卡监控
      */
@@ -181,14 +203,15 @@ public class TencentApiController {
         
         log.info("创建或更新解析记录: domain={}, subdomain={}, ip={}", domain, subdomain, ip);
         
-        // 验证IP格式
-        if (ip == null || !ip.matches("\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}")) {
+        // 验证IP格式（按二进制值解析，拒绝超出范围的分段）
+        IpAddress address = IpAddress.parseIPv4(ip);
+        if (address == null) {
             return ApiResponse.error("IP地址格式无效");
         }
-        String currentIp = ip.trim();
+        String currentIp = address.toString();
 
         try {
-            DnspodClient client = createDnspodClient(id, key);
+            DnspodClient client = DnsClients.tencent(id, key);
             
             // 先查询该子域名是否已存在解析记录
             Long existingRecordId = findExistingRecord(client, domain, subdomain);
@@ -268,19 +291,51 @@ public class TencentApiController {
     // ==================== DDNS 定时任务 API ====================
 
     /**
-     * 获取所有DDNS任务
+     * 获取所有DDNS任务（支持过滤、排序、游标分页、摘要视图，未变化时返回304）
      */
     @GetMapping("/tasks")
-    public Object getAllTasks() {
-        return ApiResponse.success(ddnsTaskService.getAllTasks());
+    public Object getAllTasks(TaskQuery query, WebRequest request) {
+        return queryTasks(query, request);
+    }
+
+    /**
+     * 获取指定版本之后的DDNS任务变更（所有账号）
+     */
+    @GetMapping("/tasks/changes")
+    public Object getTaskChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) String epoch) {
+        return ApiResponse.successData(ddnsTaskService.getChanges(since, epoch));
     }
 
     /**
      * 获取指定账号的DDNS任务
      */
     @GetMapping("/tasks/{secretId}")
-    public Object getTasksByAccount(@PathVariable String secretId) {
-        return ApiResponse.success(ddnsTaskService.getTasksByAccount(secretId));
+    public Object getTasksByAccount(@PathVariable String secretId, TaskQuery query, WebRequest request) {
+        query.setSecretId(secretId);
+        return queryTasks(query, request);
+    }
+
+    /**
+     * 任务列表查询，ETag = 存储标识 + 存储版本号 + 查询条件
+     * （版本号重启后重新计数，带上存储标识避免旧ETag碰巧命中）
+     */
+    private Object queryTasks(TaskQuery query, WebRequest request) {
+        String etag = "\"" + ddnsTaskService.getStoreEpoch() + "-" + ddnsTaskService.getStoreVersion()
+            + "-" + Integer.toHexString(query.hashCode()) + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        try {
+            TaskPage page = ddnsTaskService.queryTasks(query);
+            return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(ApiResponse.successData(page));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        }
     }
 
     /**
@@ -296,7 +351,11 @@ public class TencentApiController {
             @RequestParam String ipServiceUrl,
             @RequestParam String ipServiceName,
             @RequestParam(defaultValue = "300") int interval,
-            @RequestParam(defaultValue = "A") String recordType) {
+            @RequestParam(defaultValue = "A") String recordType,
+            @RequestParam(required = false) String ipv6ServiceUrl,
+            @RequestParam(required = false) String ipv6ServiceName,
+            @RequestParam(required = false) String ipv6Suffix,
+            @RequestParam(required = false) String sourceInterface) {
         
         DdnsTask task = new DdnsTask();
         task.setProvider(provider);
@@ -308,9 +367,29 @@ public class TencentApiController {
         task.setIpServiceName(ipServiceName);
         task.setInterval(interval);
         task.setRecordType(recordType);
+        task.setIpv6ServiceUrl(ipv6ServiceUrl);
+        task.setIpv6ServiceName(ipv6ServiceName);
+        task.setIpv6Suffix(ipv6Suffix == null || ipv6Suffix.isBlank() ? null : ipv6Suffix.trim());
+        task.setSourceInterface(sourceInterface == null || sourceInterface.isBlank() ? null : sourceInterface.trim());
         
-        DdnsTask created = ddnsTaskService.addTask(task);
-        return ApiResponse.successData(created);
+        try {
+            DdnsTask created = ddnsTaskService.addTask(task);
+            return ApiResponse.successData(created);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 添加DDNS记录组任务（一次IP探测更新多条记录）
+     */
+    @PostMapping("/tasks/groups")
+    public Object addGroupTask(@RequestBody RecordGroupRequest request) {
+        try {
+            return ApiResponse.successData(ddnsTaskService.addGroupTask(request));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        }
     }
 
     /**
@@ -323,7 +402,12 @@ public class TencentApiController {
             @RequestParam String ipServiceUrl,
             @RequestParam String ipServiceName) {
         
-        DdnsTask updated = ddnsTaskService.updateTask(taskId, interval, ipServiceUrl, ipServiceName);
+        DdnsTask updated;
+        try {
+            updated = ddnsTaskService.updateTask(taskId, interval, ipServiceUrl, ipServiceName);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        }
         if (updated != null) {
             return ApiResponse.successData(updated);
         }
@@ -363,6 +447,26 @@ public class TencentApiController {
         return ApiResponse.error("删除失败");
     }
 
+    /**
+     * 获取正在执行的DDNS任务（含已超时的执行）
+     */
+    @GetMapping("/runs")
+    public Object getActiveRuns() {
+        return ApiResponse.successData(ddnsTaskService.getActiveRuns());
+    }
+
+    /**
+     * 获取DDNS任务最近执行记录（含 p50/p95/p99 耗时统计）
+     */
+    @GetMapping("/tasks/{taskId}/history")
+    public Object getTaskHistory(@PathVariable String taskId) {
+        Map<String, Object> history = ddnsTaskService.getTaskHistory(taskId);
+        if (history != null) {
+            return ApiResponse.successData(history);
+        }
+        return ApiResponse.error("任务不存在");
+    }
+
     /**
      * 手动执行一次DDNS任务
      */
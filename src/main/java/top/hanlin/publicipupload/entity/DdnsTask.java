@@ -4,6 +4,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
+import java.util.List;
+
 /**
  * DDNS定时解析任务
  */
@@ -11,6 +13,9 @@ import lombok.AllArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class DdnsTask {
+    // 双栈记录类型：一次执行同时更新A与AAAA记录
+    public static final String DUAL_STACK = "A+AAAA";
+    
     private String id;              // 任务ID
     private String provider;        // 云服务商 (腾讯云/阿里云)
     private String secretId;        // SecretId
@@ -20,16 +25,57 @@ public class DdnsTask {
     private String fullDomain;      // 完整域名 (subdomain.domain)
     private String ipServiceUrl;    // 使用的IP服务URL
     private String ipServiceName;   // 使用的IP服务名称
-    private String recordType;      // 记录类型: A (IPv4) 或 AAAA (IPv6)
+    private String recordType;      // 记录类型: A (IPv4)、AAAA (IPv6) 或 A+AAAA (双栈)
+    private String ipv6ServiceUrl;  // 双栈任务的IPv6服务URL
+    private String ipv6ServiceName; // 双栈任务的IPv6服务名称
+    private String ipv6Suffix;      // IPv6主机后缀（接口标识或MAC），配合前缀跟踪使用
+    private String sourceInterface; // 查询出口：网卡名或本地源地址（多线路时指定线路），空为默认路由
     private int interval;           // 定时间隔(秒)
     private boolean enabled;        // 是否启用
-    private String lastIp;          // 上次解析的IP
+    private String lastIp;          // 上次解析的IP（双栈任务为IPv4）
+    private String lastIpv6;        // 双栈任务上次解析的IPv6
     private String lastUpdateTime;  // 上次更新时间
     private String status;          // 状态: running, stopped, error
     private String lastError;       // 上次错误信息
+    private List<RecordTarget> targets; // 记录组目标（为空表示单记录任务）
+    private transient long version; // 最近一次变更的存储版本号（不持久化）
     
     // 兼容旧数据，默认为A记录
     public String getRecordType() {
         return recordType == null ? "A" : recordType;
     }
+    
+    /**
+     * 是否为双栈任务（一次执行同时更新A与AAAA记录）
+     */
+    public boolean isDualStack() {
+        return DUAL_STACK.equals(recordType);
+    }
+    
+    /**
+     * 是否依赖该地址族（ipv4/ipv6）的IP
+     */
+    public boolean usesFamily(String family) {
+        if (isDualStack()) {
+            return true;
+        }
+        return family.equals("AAAA".equals(getRecordType()) ? "ipv6" : "ipv4");
+    }
+    
+    /**
+     * 是否为记录组任务（一次IP探测更新多条记录）
+     */
+    public boolean isGroup() {
+        return targets != null && !targets.isEmpty();
+    }
+    
+    /**
+     * 是否使用了指定账号（记录组任意目标使用即算）
+     */
+    public boolean usesAccount(String secretId) {
+        if (secretId.equals(this.secretId)) {
+            return true;
+        }
+        return isGroup() && targets.stream().anyMatch(t -> secretId.equals(t.getSecretId()));
+    }
 }
@@ -0,0 +1,31 @@
+package top.hanlin.publicipupload.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * 记录组中的一条目标记录
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecordTarget {
+    private String provider;        // 云服务商 (腾讯云/阿里云)
+    private String secretId;        // SecretId
+    private String secretKey;       // SecretKey
+    private String domain;          // 根域名
+    private String subdomain;       // 子域名
+    private String fullDomain;      // 完整域名 (subdomain.domain)
+    private String recordType;      // 记录类型: A (IPv4) 或 AAAA (IPv6)
+    private String ipv6Suffix;      // IPv6主机后缀（接口标识或MAC），为空时使用探测到的地址
+    private String lastIp;          // 上次解析的IP
+    private String lastUpdateTime;  // 上次更新时间
+    private String status;          // 状态: running, pending(新IP待确认), error
+    private String lastError;       // 上次错误信息
+    
+    // 默认为A记录
+    public String getRecordType() {
+        return recordType == null ? "A" : recordType;
+    }
+}
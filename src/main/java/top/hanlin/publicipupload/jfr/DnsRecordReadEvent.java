@@ -0,0 +1,28 @@
+package top.hanlin.publicipupload.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：从云服务商读取当前DNS记录
+ */
+@Name("top.hanlin.ddns.DnsRecordRead")
+@Label("DDNS Record Read")
+@Category({"DDNS"})
+@Description("查询云服务商当前解析记录")
+public class DnsRecordReadEvent extends jdk.jfr.Event {
+    @Label("Task ID")
+    public String taskId;
+
+    @Label("Provider")
+    public String provider;
+
+    @Label("Domain")
+    public String domain;
+
+    @Label("Outcome")
+    @Description("found / missing / failure")
+    public String outcome;
+}
@@ -0,0 +1,32 @@
+package top.hanlin.publicipupload.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：向云服务商写入DNS记录（修改或新建）
+ */
+@Name("top.hanlin.ddns.DnsRecordWrite")
+@Label("DDNS Record Write")
+@Category({"DDNS"})
+@Description("修改或创建云服务商解析记录")
+public class DnsRecordWriteEvent extends jdk.jfr.Event {
+    @Label("Task ID")
+    public String taskId;
+
+    @Label("Provider")
+    public String provider;
+
+    @Label("Domain")
+    public String domain;
+
+    @Label("Operation")
+    @Description("modify / create")
+    public String operation;
+
+    @Label("Outcome")
+    @Description("success / failure")
+    public String outcome;
+}
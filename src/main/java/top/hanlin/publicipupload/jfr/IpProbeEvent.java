@@ -0,0 +1,33 @@
+package top.hanlin.publicipupload.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：一次IP服务探测
+ */
+@Name("top.hanlin.ddns.IpProbe")
+@Label("DDNS IP Probe")
+@Category({"DDNS"})
+@Description("向IP服务发起的一次公网IP探测")
+public class IpProbeEvent extends jdk.jfr.Event {
+    @Label("Task ID")
+    public String taskId;
+
+    @Label("Service URL")
+    public String serviceUrl;
+
+    @Label("Family")
+    public String family;
+
+    @Label("Bytes Read")
+    @DataAmount
+    public long bytesRead;
+
+    @Label("Outcome")
+    @Description("success / failure")
+    public String outcome;
+}
@@ -0,0 +1,31 @@
+package top.hanlin.publicipupload.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：DDNS任务单次执行（覆盖探测、读取、写入全过程）
+ */
+@Name("top.hanlin.ddns.TaskRun")
+@Label("DDNS Task Run")
+@Category({"DDNS"})
+@Description("一次完整的DDNS任务执行")
+public class TaskRunEvent extends jdk.jfr.Event {
+    @Label("Task ID")
+    public String taskId;
+
+    @Label("Provider")
+    public String provider;
+
+    @Label("Domain")
+    public String domain;
+
+    @Label("Record Type")
+    public String recordType;
+
+    @Label("Outcome")
+    @Description("updated / unchanged / deferred / shed / failed")
+    public String outcome;
+}
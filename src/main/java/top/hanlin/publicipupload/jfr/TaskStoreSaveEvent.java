@@ -0,0 +1,27 @@
+package top.hanlin.publicipupload.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：任务列表持久化
+ */
+@Name("top.hanlin.ddns.TaskStoreSave")
+@Label("DDNS Task Store Save")
+@Category({"DDNS"})
+@Description("将全部任务写入任务文件")
+public class TaskStoreSaveEvent extends jdk.jfr.Event {
+    @Label("Task Count")
+    public int taskCount;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+
+    @Label("Outcome")
+    @Description("success / failure")
+    public String outcome;
+}
@@ -0,0 +1,21 @@
+package top.hanlin.publicipupload.model;
+
+/**
+ * IP地址变化事件
+ *
+ * @param source     地址来源：IP服务URL，或本地网卡 iface:网卡名
+ * @param family     地址族：ipv4 / ipv6
+ * @param oldAddress 变化前的地址
+ * @param newAddress 变化后的地址（网卡失去地址时为空字符串）
+ */
+public record AddressChanged(String source, String family, String oldAddress, String newAddress) {
+
+    public static final String INTERFACE_PREFIX = "iface:";
+
+    /**
+     * 是否来自本地网卡
+     */
+    public boolean isInterface() {
+        return source.startsWith(INTERFACE_PREFIX);
+    }
+}
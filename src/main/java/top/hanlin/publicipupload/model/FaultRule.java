@@ -0,0 +1,21 @@
+package top.hanlin.publicipupload.model;
+
+import lombok.Data;
+
+/**
+ * 故障注入规则
+ */
+@Data
+public class FaultRule {
+    private String id;                   // 规则ID（添加时生成）
+    private String target;               // 注入点: probe (IP探测) / provider (云解析API)
+    private String match;                // 匹配条件: probe 为URL包含的字符串，provider 为服务商名称；为空匹配全部
+    private String operation;            // 云解析操作: describe/modify/create/delete；为空匹配全部
+    private String type = "latency";     // 故障类型: latency/error/throttle/hang
+    private double probability = 1.0;    // 触发概率 0~1
+    private String distribution = "fixed"; // 延迟分布: fixed/uniform/exponential
+    private long latencyMs;              // 延迟（fixed为固定值，uniform为下限，exponential为均值）
+    private long latencyMaxMs;           // 延迟上限（uniform为上限，exponential为截断值，0表示不截断）
+    private String errorCode;            // error/throttle 返回的错误码
+    private long hangMs = 600000;        // hang 阻塞时长（可被中断）
+}
@@ -0,0 +1,20 @@
+package top.hanlin.publicipupload.model;
+
+import lombok.Data;
+import top.hanlin.publicipupload.entity.RecordTarget;
+
+import java.util.List;
+
+/**
+ * 创建记录组任务请求
+ */
+@Data
+public class RecordGroupRequest {
+    private String name;                // 记录组名称
+    private String ipServiceUrl;        // 使用的IP服务URL
+    private String ipServiceName;       // 使用的IP服务名称
+    private String sourceInterface;     // 查询出口：网卡名或本地源地址，空为默认路由
+    private String recordType = "A";    // 记录类型: A (IPv4) 或 AAAA (IPv6)，决定探测的地址族
+    private int interval = 300;         // 定时间隔(秒)
+    private List<RecordTarget> targets; // 目标记录
+}
@@ -0,0 +1,21 @@
+package top.hanlin.publicipupload.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DDNS任务增量变更
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskChanges {
+    private String epoch;               // 存储标识，变化时客户端需丢弃本地状态
+    private long version;               // 当前存储版本号，作为下次请求的 since
+    private boolean reset;              // true 表示 upserts 为全量任务
+    private List<TaskSummary> upserts;  // 新增或修改的任务
+    private List<String> deleted;       // 已删除的任务ID
+}
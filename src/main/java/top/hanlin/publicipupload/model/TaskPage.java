@@ -0,0 +1,20 @@
+package top.hanlin.publicipupload.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DDNS任务分页结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskPage {
+    private List<?> items;      // 当前页任务（DdnsTask 或 TaskSummary）
+    private String nextCursor;  // 下一页游标，null 表示已到末尾
+    private int total;          // 过滤后的任务总数
+    private long version;       // 任务存储版本号
+}
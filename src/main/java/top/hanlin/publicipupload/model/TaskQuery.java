@@ -0,0 +1,28 @@
+package top.hanlin.publicipupload.model;
+
+import lombok.Data;
+
+/**
+ * DDNS任务列表查询参数（过滤、排序、游标分页、字段投影）
+ */
+@Data
+public class TaskQuery {
+    private String secretId;        // 按账号过滤
+    private String provider;        // 按云服务商过滤
+    private String status;          // 按状态过滤: running, stopped, error
+    private String recordType;      // 按记录类型过滤: A 或 AAAA
+    private String keyword;         // 域名关键字（模糊匹配 fullDomain）
+    private String sort = "fullDomain"; // 排序字段: fullDomain, status, provider, interval, lastUpdateTime, id
+    private String order = "asc";   // 排序方向: asc 或 desc
+    private String cursor;          // 上一页返回的 nextCursor
+    private int limit;              // 每页数量，0 表示不分页
+    private String view = "full";   // full: 完整任务; summary: 不含凭证的摘要
+
+    public boolean isSummary() {
+        return "summary".equalsIgnoreCase(view);
+    }
+
+    public boolean isDescending() {
+        return "desc".equalsIgnoreCase(order);
+    }
+}
@@ -0,0 +1,53 @@
+package top.hanlin.publicipupload.model;
+
+import lombok.Data;
+import top.hanlin.publicipupload.entity.DdnsTask;
+import top.hanlin.publicipupload.entity.RecordTarget;
+
+import java.util.List;
+
+/**
+ * DDNS任务摘要视图（不含 SecretKey）
+ */
+@Data
+public class TaskSummary {
+    private String id;
+    private String provider;
+    private String secretId;
+    private String fullDomain;
+    private String recordType;
+    private String ipServiceUrl;
+    private String ipServiceName;
+    private int interval;
+    private boolean enabled;
+    private String status;
+    private String lastIp;
+    private String lastIpv6;
+    private String lastUpdateTime;
+    private String lastError;
+    private int targetCount;            // 记录组目标数（单记录任务为0）
+    private List<String> accounts;      // 记录组各目标使用的账号
+
+    public static TaskSummary of(DdnsTask task) {
+        TaskSummary summary = new TaskSummary();
+        summary.setId(task.getId());
+        summary.setProvider(task.getProvider());
+        summary.setSecretId(task.getSecretId());
+        summary.setFullDomain(task.getFullDomain());
+        summary.setRecordType(task.getRecordType());
+        summary.setIpServiceUrl(task.getIpServiceUrl());
+        summary.setIpServiceName(task.getIpServiceName());
+        summary.setInterval(task.getInterval());
+        summary.setEnabled(task.isEnabled());
+        summary.setStatus(task.getStatus());
+        summary.setLastIp(task.getLastIp());
+        summary.setLastIpv6(task.getLastIpv6());
+        summary.setLastUpdateTime(task.getLastUpdateTime());
+        summary.setLastError(task.getLastError());
+        if (task.isGroup()) {
+            summary.setTargetCount(task.getTargets().size());
+            summary.setAccounts(task.getTargets().stream().map(RecordTarget::getSecretId).distinct().toList());
+        }
+        return summary;
+    }
+}
@@ -3,25 +3,59 @@ package top.hanlin.publicipupload.service;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
-import com.tencentcloudapi.common.Credential;
-import com.tencentcloudapi.common.profile.ClientProfile;
-import com.tencentcloudapi.common.profile.HttpProfile;
+import com.tencentcloudapi.common.exception.TencentCloudSDKException;
 import com.tencentcloudapi.dnspod.v20210323.DnspodClient;
 import com.tencentcloudapi.dnspod.v20210323.models.*;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import top.hanlin.publicipupload.entity.DdnsTask;
+import top.hanlin.publicipupload.entity.RecordTarget;
+import top.hanlin.publicipupload.jfr.DnsRecordReadEvent;
+import top.hanlin.publicipupload.jfr.DnsRecordWriteEvent;
+import top.hanlin.publicipupload.jfr.IpProbeEvent;
+import top.hanlin.publicipupload.jfr.TaskRunEvent;
+import top.hanlin.publicipupload.jfr.TaskStoreSaveEvent;
+import top.hanlin.publicipupload.model.AddressChanged;
+import top.hanlin.publicipupload.model.RecordGroupRequest;
+import top.hanlin.publicipupload.model.TaskChanges;
+import top.hanlin.publicipupload.model.TaskPage;
+import top.hanlin.publicipupload.model.TaskQuery;
+import top.hanlin.publicipupload.model.TaskSummary;
+import top.hanlin.publicipupload.util.AddressChangeBus;
+import top.hanlin.publicipupload.util.Bulkhead;
+import top.hanlin.publicipupload.util.CustomIpService;
+import top.hanlin.publicipupload.util.DDNS;
+import top.hanlin.publicipupload.util.DdnsMetrics;
+import top.hanlin.publicipupload.util.DnsClients;
+import top.hanlin.publicipupload.util.DnsWhoami;
+import top.hanlin.publicipupload.util.FaultInjector;
+import top.hanlin.publicipupload.util.FlapDamper;
+import top.hanlin.publicipupload.util.GatewaySource;
 import top.hanlin.publicipupload.util.IP_SERVICES;
+import top.hanlin.publicipupload.util.IpAddress;
+import top.hanlin.publicipupload.util.PrefixTracker;
+import top.hanlin.publicipupload.util.ProbeHttp;
+import top.hanlin.publicipupload.util.ProbeResolver;
+import top.hanlin.publicipupload.util.RunHistory;
+import top.hanlin.publicipupload.util.StunClient;
+import top.hanlin.publicipupload.util.WanInterfaces;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.InetAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * DDNS定时任务管理服务
@@ -31,22 +65,153 @@ import java.util.concurrent.*;
 public class DdnsTaskService {
     
     private static final String TASKS_FILE = "ddns_tasks.json";
+    // 任务持久化文件
+    private final File tasksFile;
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     
     // 任务列表
     private final Map<String, DdnsTask> tasks = new ConcurrentHashMap<>();
-    // 定时任务调度器
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10);
+    // 定时任务调度器（只负责按时触发，任务在虚拟线程中执行）
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(2);
+    // 任务执行器
+    private final ExecutorService runner = Executors.newVirtualThreadPerTaskExecutor();
+    // 定时触发的正在执行的任务（上次执行未结束时跳过本次触发）
+    private final Map<String, RunHandle> runningTasks = new ConcurrentHashMap<>();
+    // 所有正在执行的任务（含手动执行），供卡死检测使用
+    private final Set<RunHandle> activeRuns = ConcurrentHashMap.newKeySet();
+    private static final ThreadLocal<RunHandle> currentRun = new ThreadLocal<>();
+    // 单飞：同一账号下的同一记录（完整域名+记录类型）同时只被一次执行更新，重叠的触发等待并共享其结果
+    private final Map<String, InFlightRun> inFlightRuns = new ConcurrentHashMap<>();
+    private static final long WATCHDOG_PERIOD_SECONDS = 5;
+    // 单次执行总时限，超时中断执行线程；超过两倍仍未结束视为卡死并回收
+    @Value("${ddns.run.timeout-ms:60000}")
+    private long runTimeoutMs = 60000;
+    @Value("${ddns.provider.connect-timeout-ms:5000}")
+    private int providerConnectTimeoutMs = 5000;
+    @Value("${ddns.provider.read-timeout-ms:10000}")
+    private int providerReadTimeoutMs = 10000;
+    // 隔离舱：服务商:调用类型 -> 并发限制，一个服务商故障不会占满其他服务商的执行资源
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    @Value("${ddns.bulkhead.probe:32}")
+    private int probeConcurrency = 32;
+    @Value("${ddns.bulkhead.read:16}")
+    private int readConcurrency = 16;
+    @Value("${ddns.bulkhead.write:8}")
+    private int writeConcurrency = 8;
+    @Value("${ddns.bulkhead.max-wait-ms:2000}")
+    private long bulkheadMaxWaitMs = 2000;
     // 任务Future映射
     private final Map<String, ScheduledFuture<?>> taskFutures = new ConcurrentHashMap<>();
     // 操作日志队列（最多保留100条）
     private final List<Map<String, String>> operationLogs = Collections.synchronizedList(new LinkedList<>());
     private static final int MAX_LOGS = 100;
+    // 任务存储版本号（每次任务数据变化时递增，用于ETag和增量同步）
+    private final AtomicLong storeVersion = new AtomicLong();
+    // 本次启动的存储标识，重启后客户端需全量重置
+    private final String storeEpoch = UUID.randomUUID().toString().substring(0, 8);
+    // 变更索引：版本号 -> 任务ID（每个任务仅保留最新版本；已删除任务保留为墓碑）
+    private final NavigableMap<Long, String> changeIndex = new ConcurrentSkipListMap<>();
+    // 墓碑版本队列（最多保留1000条）
+    private final Queue<Long> tombstones = new ArrayDeque<>();
+    private static final int MAX_TOMBSTONES = 1000;
+    // 已被丢弃的最大墓碑版本
+    private volatile long compactedVersion;
+    // 分页最大条数
+    private static final int MAX_PAGE_SIZE = 500;
+    // 每个任务最近执行记录（环形缓冲区，不持久化）
+    private final Map<String, RunHistory> runHistories = new ConcurrentHashMap<>();
+    private static final int HISTORY_SIZE = 32;
+    // 执行阶段下标
+    private static final int PHASE_PROBE = 0;
+    private static final int PHASE_READ = 1;
+    private static final int PHASE_WRITE = 2;
+    // 双栈任务一次读取的记录类型
+    private static final List<String> DUAL_STACK_TYPES = List.of("A", "AAAA");
+    // 记录组任务的服务商标识（各目标有各自的服务商）
+    public static final String GROUP_PROVIDER = "记录组";
+    // 腾讯云：子域名下没有记录
+    private static final String TENCENT_NO_RECORD = "ResourceNotFound.NoDataOfRecord";
+    // 阿里云：记录列表每页条数（接口上限500）
+    private static final long ALIYUN_PAGE_SIZE = 500;
+    // IP查询的连接/读取超时与应答体上限
+    private static final int PROBE_TIMEOUT_MS = 5000;
+    private static final int MAX_PROBE_BYTES = 64 * 1024;
+    // 任务文件合并写入：短时间内的多次变更只写一次文件
+    private final AtomicBoolean savePending = new AtomicBoolean();
+    private static final long SAVE_DELAY_MS = 500;
+    // 首选IP服务失败时是否尝试内置备用服务
+    private volatile boolean ipFallbackEnabled = true;
+    // 首选服务失败时先向局域网网关查询WAN口地址（UPnP/NAT-PMP/PCP），再尝试在线服务
+    @Value("${ddns.gateway.fallback:true}")
+    private boolean gatewayFallbackEnabled = true;
+    @Value("${ddns.gateway.timeout-ms:250}")
+    private int gatewayTimeoutMs = 250;
+    // STUN：每轮并行查询的服务器数与应答超时
+    @Value("${ddns.stun.parallel:2}")
+    private int stunParallel = 2;
+    @Value("${ddns.stun.timeout-ms:1000}")
+    private int stunTimeoutMs = 1000;
+    // DNS查询来源的应答超时
+    @Value("${ddns.dns-source.timeout-ms:1000}")
+    private int dnsSourceTimeoutMs = 1000;
+    // IP服务域名解析结果的缓存时间（秒）
+    @Value("${ddns.resolver.ttl-seconds:300}")
+    private long resolverTtlSeconds = 300;
+    // IP变化事件订阅：依赖该来源与地址族的任务立即执行，定时轮询仅作兜底
+    private final Consumer<AddressChanged> addressListener = this::onAddressChanged;
+    // 本地网卡地址检测间隔（秒），0 为关闭
+    @Value("${ddns.events.interface-poll-seconds:10}")
+    private long interfacePollSeconds = 10;
+    // 网卡名|地址族 -> 上次检测到的地址
+    private volatile Map<String, String> interfaceAddresses;
+    // 抖动抑制：新地址需连续确认 K 次或被 M 个来源同时观测到才写入（默认关闭）
+    @Value("${ddns.damping.confirmations:1}")
+    private int dampingConfirmations = 1;
+    @Value("${ddns.damping.sources:1}")
+    private int dampingSources = 1;
+    @Value("${ddns.damping.window-seconds:300}")
+    private long dampingWindowSeconds = 300;
+    // 新地址待确认时，隔多久再执行一次确认（秒）
+    @Value("${ddns.damping.recheck-seconds:10}")
+    private long dampingRecheckSeconds = 10;
+    private FlapDamper flapDamper = new FlapDamper(1, 1, 0);
+    // 正在向其他来源查询以确认新地址的 任务ID|地址族
+    private final Set<String> corroborating = ConcurrentHashMap.newKeySet();
+    
+    public DdnsTaskService() {
+        this(new File(TASKS_FILE));
+    }
+    
+    /**
+     * 指定任务文件（基准测试、压测使用）
+     */
+    DdnsTaskService(File tasksFile) {
+        this.tasksFile = tasksFile;
+        // 停止/重启任务时立即从队列移除已取消的调度，避免队列堆积
+        scheduler.setRemoveOnCancelPolicy(true);
+        scheduler.scheduleWithFixedDelay(this::checkStuckRuns, WATCHDOG_PERIOD_SECONDS, WATCHDOG_PERIOD_SECONDS, TimeUnit.SECONDS);
+        AddressChangeBus.subscribe(addressListener);
+    }
     
     @PostConstruct
     public void init() {
+        DnsClients.setTimeouts(providerConnectTimeoutMs, providerReadTimeoutMs);
+        GatewaySource.setTimeoutMs(gatewayTimeoutMs);
+        StunClient.configure(stunParallel, stunTimeoutMs);
+        DnsWhoami.setTimeoutMs(dnsSourceTimeoutMs);
+        ProbeResolver.setTtlSeconds(resolverTtlSeconds);
+        flapDamper = new FlapDamper(dampingConfirmations, dampingSources, TimeUnit.SECONDS.toMillis(dampingWindowSeconds));
+        DdnsMetrics.gauge("ddns.scheduler.queue", "调度器等待执行的任务数", () -> scheduler.getQueue().size());
+        DdnsMetrics.gauge("ddns.scheduler.active", "调度器正在执行的线程数", scheduler::getActiveCount);
+        DdnsMetrics.gauge("ddns.tasks.running", "正在执行的DDNS任务数", activeRuns::size);
+        DdnsMetrics.gauge("ddns.tasks.scheduled", "已调度的DDNS任务数", taskFutures::size);
+        DdnsMetrics.gauge("ddns.operation.logs", "操作日志队列长度", operationLogs::size);
+        if (interfacePollSeconds > 0) {
+            scheduler.scheduleWithFixedDelay(this::pollInterfaces, 0, interfacePollSeconds, TimeUnit.SECONDS);
+        }
         loadTasks();
+        warmUpResolver();
         // 启动所有已启用的任务
         tasks.values().stream()
             .filter(DdnsTask::isEnabled)
@@ -54,9 +219,42 @@ public class DdnsTaskService {
         log.info("DDNS任务服务初始化完成，已加载 {} 个任务", tasks.size());
     }
     
+    /**
+     * 预解析内置服务、自定义服务与各任务IP服务的域名，首次查询无需等待域名解析
+     */
+    private void warmUpResolver() {
+        List<String> urls = new ArrayList<>();
+        DDNS.getAllServices().forEach(service -> urls.add(service.get("url")));
+        for (DdnsTask task : tasks.values()) {
+            urls.add(task.getIpServiceUrl());
+            urls.add(task.getIpv6ServiceUrl());
+        }
+        ProbeResolver.warmUp(urls);
+    }
+    
+    /**
+     * 任务调度器（基准测试使用）
+     */
+    ScheduledThreadPoolExecutor scheduler() {
+        return scheduler;
+    }
+    
+    /**
+     * 设置是否使用内置备用IP服务（压测时关闭，避免访问外网）
+     */
+    void setIpFallbackEnabled(boolean ipFallbackEnabled) {
+        this.ipFallbackEnabled = ipFallbackEnabled;
+    }
+    
     @PreDestroy
     public void destroy() {
+        AddressChangeBus.unsubscribe(addressListener);
         scheduler.shutdownNow();
+        runner.shutdownNow();
+        // 写入尚未落盘的变更
+        if (savePending.getAndSet(false)) {
+            saveTasks();
+        }
         log.info("DDNS任务服务已关闭");
     }
     
@@ -72,8 +270,172 @@ public class DdnsTaskService {
      */
     public List<DdnsTask> getTasksByAccount(String secretId) {
         return tasks.values().stream()
-            .filter(t -> t.getSecretId().equals(secretId))
+            .filter(t -> t.usesAccount(secretId))
+            .toList();
+    }
+    
+    /**
+     * 获取任务存储版本号
+     */
+    public long getStoreVersion() {
+        return storeVersion.get();
+    }
+    
+    /**
+     * 获取本次启动的存储标识（重启后变化，版本号随之重新计数）
+     */
+    public String getStoreEpoch() {
+        return storeEpoch;
+    }
+    
+    /**
+     * 按条件查询任务（过滤、排序、游标分页、字段投影）
+     */
+    public TaskPage queryTasks(TaskQuery query) {
+        long version = storeVersion.get();
+        Function<DdnsTask, String> sortKey = sortKeyOf(query.getSort());
+        boolean desc = query.isDescending();
+        Comparator<DdnsTask> comparator = Comparator.comparing(sortKey).thenComparing(DdnsTask::getId);
+        if (desc) {
+            comparator = comparator.reversed();
+        }
+        
+        List<DdnsTask> matched = tasks.values().stream()
+            .filter(t -> matches(t, query))
+            .sorted(comparator)
             .toList();
+        
+        // 游标定位：从排序位置严格位于游标之后的第一个任务开始
+        int from = 0;
+        if (query.getCursor() != null && !query.getCursor().isEmpty()) {
+            String[] cursor = decodeCursor(query.getCursor());
+            int lo = 0, hi = matched.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                DdnsTask t = matched.get(mid);
+                int c = sortKey.apply(t).compareTo(cursor[0]);
+                if (c == 0) {
+                    c = t.getId().compareTo(cursor[1]);
+                }
+                if (desc) {
+                    c = -c;
+                }
+                if (c <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            from = lo;
+        }
+        
+        int limit = query.getLimit() <= 0 ? matched.size() : Math.min(query.getLimit(), MAX_PAGE_SIZE);
+        int to = Math.min(from + limit, matched.size());
+        List<DdnsTask> page = matched.subList(from, to);
+        
+        String nextCursor = null;
+        if (to < matched.size() && !page.isEmpty()) {
+            DdnsTask last = page.get(page.size() - 1);
+            nextCursor = encodeCursor(sortKey.apply(last), last.getId());
+        }
+        
+        List<?> items = query.isSummary() ? page.stream().map(TaskSummary::of).toList() : new ArrayList<>(page);
+        return new TaskPage(items, nextCursor, matched.size(), version);
+    }
+    
+    /**
+     * 获取指定版本之后的任务变更（新增/修改/删除）
+     * 标识不一致、版本超前或早于已丢弃的墓碑时返回全量并标记 reset
+     */
+    public TaskChanges getChanges(long since, String epoch) {
+        // 版本号与变更索引在同一把锁内读取：版本号递增与写入索引是两步，
+        // 在两步之间读取会返回版本 V 却漏掉 V 的变更，客户端下次从 V 之后查询将永远看不到它
+        long version;
+        boolean reset;
+        List<String> changedIds;
+        synchronized (changeIndex) {
+            version = storeVersion.get();
+            reset = !storeEpoch.equals(epoch) || since > version || since < compactedVersion;
+            changedIds = reset ? List.of() : new ArrayList<>(changeIndex.tailMap(since, false).values());
+        }
+        
+        List<TaskSummary> upserts = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        if (reset) {
+            tasks.values().forEach(t -> upserts.add(TaskSummary.of(t)));
+        } else {
+            for (String taskId : changedIds) {
+                DdnsTask task = tasks.get(taskId);
+                if (task != null) {
+                    upserts.add(TaskSummary.of(task));
+                } else {
+                    deleted.add(taskId);
+                }
+            }
+        }
+        return new TaskChanges(storeEpoch, version, reset, upserts, deleted);
+    }
+    
+    /**
+     * 判断任务是否满足过滤条件
+     */
+    private boolean matches(DdnsTask task, TaskQuery query) {
+        if (query.getSecretId() != null && !task.usesAccount(query.getSecretId())) {
+            return false;
+        }
+        if (query.getProvider() != null && !query.getProvider().equals(task.getProvider())) {
+            return false;
+        }
+        if (query.getStatus() != null && !query.getStatus().equals(task.getStatus())) {
+            return false;
+        }
+        if (query.getRecordType() != null && !query.getRecordType().equalsIgnoreCase(task.getRecordType())) {
+            return false;
+        }
+        if (query.getKeyword() != null && !query.getKeyword().isEmpty()) {
+            String fullDomain = task.getFullDomain();
+            return fullDomain != null && fullDomain.toLowerCase().contains(query.getKeyword().toLowerCase());
+        }
+        return true;
+    }
+    
+    /**
+     * 排序字段取值（统一转为可比较的字符串，数值左补零）
+     */
+    private Function<DdnsTask, String> sortKeyOf(String field) {
+        Function<DdnsTask, String> key = switch (field == null ? "" : field) {
+            case "status" -> DdnsTask::getStatus;
+            case "provider" -> DdnsTask::getProvider;
+            case "lastUpdateTime" -> DdnsTask::getLastUpdateTime;
+            case "interval" -> t -> String.format("%010d", t.getInterval());
+            case "id" -> DdnsTask::getId;
+            default -> DdnsTask::getFullDomain;
+        };
+        return t -> {
+            String value = key.apply(t);
+            return value == null ? "" : value;
+        };
+    }
+    
+    /**
+     * 游标编码：排序键 + 任务ID
+     */
+    private String encodeCursor(String sortKey, String id) {
+        String raw = sortKey + "\n" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int idx = raw.lastIndexOf('\n');
+            if (idx >= 0) {
+                return new String[]{raw.substring(0, idx), raw.substring(idx + 1)};
+            }
+        } catch (IllegalArgumentException e) {
+            // Base64 无效，与缺少分隔符一样在下方按无效游标拒绝
+        }
+        throw new IllegalArgumentException("无效的分页游标");
     }
     
     /**
@@ -83,16 +445,124 @@ public class DdnsTaskService {
         // 生成任务ID
         task.setId(UUID.randomUUID().toString().substring(0, 8));
         task.setFullDomain(buildFullDomain(task.getSubdomain(), task.getDomain()));
+        // 双栈任务未指定IPv6服务时使用第一个内置IPv6服务
+        if (task.isDualStack() && isBlank(task.getIpv6ServiceUrl())) {
+            IP_SERVICES ipv6 = Arrays.stream(IP_SERVICES.values()).filter(IP_SERVICES::isIPv6).findFirst().orElseThrow();
+            task.setIpv6ServiceUrl(ipv6.getUrl());
+            task.setIpv6ServiceName(ipv6.getName());
+        }
+        if (!isBlank(task.getIpv6Suffix()) && !"AAAA".equals(task.getRecordType()) && !task.isDualStack()) {
+            throw new IllegalArgumentException("IPv6后缀仅适用于AAAA或A+AAAA记录");
+        }
+        PrefixTracker.validateSuffix(task.getIpv6Suffix());
+        // 双栈任务的 ipServiceUrl 用于IPv4，前缀跟踪只能填在 ipv6ServiceUrl
+        validatePrefixSource(task.getIpServiceUrl(), "AAAA".equals(task.getRecordType()));
+        PrefixTracker.prefixLength(task.isDualStack() ? task.getIpv6ServiceUrl() : task.getIpServiceUrl());
+        validateSource(task.getIpServiceUrl());
+        validateSource(task.getIpv6ServiceUrl());
+        WanInterfaces.validate(task.getSourceInterface());
         task.setStatus("stopped");
         task.setEnabled(false);
         
         tasks.put(task.getId(), task);
-        saveTasks();
+        saveTask(task);
         
         log.info("添加DDNS任务: {}", task.getFullDomain());
         return task;
     }
     
+    /**
+     * 添加记录组任务：一次IP探测更新多个服务商、账号、域名下的记录，调度与存储开销与单个任务相同
+     */
+    public DdnsTask addGroupTask(RecordGroupRequest request) {
+        if (request.getName() == null || request.getName().isBlank()) {
+            throw new IllegalArgumentException("记录组名称不能为空");
+        }
+        if (request.getTargets() == null || request.getTargets().isEmpty()) {
+            throw new IllegalArgumentException("记录组至少需要一条目标记录");
+        }
+        String recordType = "AAAA".equalsIgnoreCase(request.getRecordType()) ? "AAAA" : "A";
+        List<RecordTarget> targets = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (RecordTarget t : request.getTargets()) {
+            if (!"腾讯云".equals(t.getProvider()) && !"阿里云".equals(t.getProvider())) {
+                throw new IllegalArgumentException("暂不支持 " + t.getProvider());
+            }
+            if (isBlank(t.getSecretId()) || isBlank(t.getSecretKey()) || isBlank(t.getDomain()) || isBlank(t.getSubdomain())) {
+                throw new IllegalArgumentException("目标记录的账号、域名、子域名不能为空");
+            }
+            // 一次探测只得到一个地址族的IP
+            if (!recordType.equalsIgnoreCase(t.getRecordType())) {
+                throw new IllegalArgumentException("目标记录类型必须与记录组一致: " + recordType);
+            }
+            RecordTarget target = new RecordTarget();
+            target.setProvider(t.getProvider());
+            target.setSecretId(t.getSecretId());
+            target.setSecretKey(t.getSecretKey());
+            target.setDomain(t.getDomain());
+            target.setSubdomain(t.getSubdomain());
+            target.setFullDomain(buildFullDomain(t.getSubdomain(), t.getDomain()));
+            target.setRecordType(recordType);
+            if (!isBlank(t.getIpv6Suffix())) {
+                if (!"AAAA".equals(recordType)) {
+                    throw new IllegalArgumentException("IPv6后缀仅适用于AAAA记录: " + target.getFullDomain());
+                }
+                PrefixTracker.validateSuffix(t.getIpv6Suffix());
+                target.setIpv6Suffix(t.getIpv6Suffix().trim());
+            }
+            target.setStatus("stopped");
+            if (!seen.add(target.getSecretId() + "|" + target.getFullDomain())) {
+                throw new IllegalArgumentException("目标记录重复: " + target.getFullDomain());
+            }
+            targets.add(target);
+        }
+        
+        DdnsTask task = new DdnsTask();
+        task.setId(UUID.randomUUID().toString().substring(0, 8));
+        task.setProvider(GROUP_PROVIDER);
+        task.setFullDomain(request.getName().trim());
+        task.setRecordType(recordType);
+        task.setIpServiceUrl(request.getIpServiceUrl());
+        task.setIpServiceName(request.getIpServiceName());
+        validatePrefixSource(task.getIpServiceUrl(), "AAAA".equals(recordType));
+        PrefixTracker.prefixLength(task.getIpServiceUrl());
+        validateSource(task.getIpServiceUrl());
+        WanInterfaces.validate(request.getSourceInterface());
+        task.setSourceInterface(isBlank(request.getSourceInterface()) ? null : request.getSourceInterface().trim());
+        task.setInterval(request.getInterval());
+        task.setTargets(targets);
+        task.setStatus("stopped");
+        task.setEnabled(false);
+        
+        tasks.put(task.getId(), task);
+        saveTask(task);
+        
+        log.info("添加DDNS记录组: {} ({} 条记录)", task.getFullDomain(), targets.size());
+        return task;
+    }
+    
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+    
+    /**
+     * 校验非HTTP来源的地址格式
+     */
+    private static void validateSource(String url) {
+        if (DnsWhoami.isDnsSource(url)) {
+            DnsWhoami.validate(url);
+        }
+    }
+    
+    /**
+     * 前缀跟踪只能得到IPv6地址，只允许作为IPv6地址的来源
+     */
+    private static void validatePrefixSource(String url, boolean isIPv6) {
+        if (PrefixTracker.isPrefixSource(url) && !isIPv6) {
+            throw new IllegalArgumentException("前缀跟踪来源仅适用于AAAA记录（双栈任务请填写IPv6服务）");
+        }
+    }
+    
     /**
      * 更新任务配置
      */
@@ -101,6 +571,9 @@ public class DdnsTaskService {
         if (task == null) {
             return null;
         }
+        validatePrefixSource(ipServiceUrl, "AAAA".equals(task.getRecordType()));
+        PrefixTracker.prefixLength(ipServiceUrl);
+        validateSource(ipServiceUrl);
         
         boolean wasEnabled = task.isEnabled();
         
@@ -118,7 +591,7 @@ public class DdnsTaskService {
             startTask(task);
         }
         
-        saveTasks();
+        saveTask(task);
         log.info("更新DDNS任务配置: {} interval={}s service={}", task.getFullDomain(), interval, ipServiceName);
         return task;
     }
@@ -143,21 +616,18 @@ public class DdnsTaskService {
         
         // 立即执行一次
         try {
-            executeTask(task);
+            runSingleFlight(task, new RunHandle(task));
         } catch (Exception e) {
             log.error("首次执行DDNS任务失败: {} - {}", task.getFullDomain(), e.getMessage());
         }
         
         // 设置定时任务（包装异常处理，防止任务因异常而停止）
+        long intervalNanos = TimeUnit.SECONDS.toNanos(task.getInterval());
+        AtomicLong nextFireTime = new AtomicLong(System.nanoTime() + intervalNanos);
         ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(
             () -> {
-                try {
-                    log.debug("定时执行DDNS任务: {}", task.getFullDomain());
-                    executeTask(task);
-                } catch (Exception e) {
-                    log.error("定时执行DDNS任务异常: {} - {}", task.getFullDomain(), e.getMessage(), e);
-                    addOperationLog("error", "[DDNS] " + task.getFullDomain() + " 定时执行异常: " + e.getMessage());
-                }
+                DdnsMetrics.recordScheduleLag(System.nanoTime() - nextFireTime.getAndAdd(intervalNanos));
+                dispatch(task);
             },
             task.getInterval(),
             task.getInterval(),
@@ -165,13 +635,353 @@ public class DdnsTaskService {
         );
         
         taskFutures.put(task.getId(), future);
-        saveTasks();
+        saveTask(task);
         
         log.info("启动DDNS任务: {} 间隔: {}秒", task.getFullDomain(), task.getInterval());
         addOperationLog("info", "[DDNS] 任务已启动: " + task.getFullDomain() + " 间隔: " + task.getInterval() + "秒");
         return true;
     }
     
+    /**
+     * 稍后再执行一次新IP确认；到时按ID重新查找任务，已删除或已停止的任务不再执行
+     */
+    private void scheduleRecheck(String taskId) {
+        scheduler.schedule(() -> {
+            DdnsTask task = tasks.get(taskId);
+            if (task != null && task.isEnabled()) {
+                dispatch(task);
+            }
+        }, dampingRecheckSeconds, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * 在虚拟线程中执行任务，上次执行未结束时跳过
+     */
+    private void dispatch(DdnsTask task) {
+        dispatch(task, handle -> runSingleFlight(task, handle));
+    }
+    
+    /**
+     * 派发路径本身（登记运行中、提交到虚拟线程），执行体由调用方给出（基准测试使用）
+     */
+    void dispatch(DdnsTask task, Runnable body) {
+        dispatch(task, handle -> body.run());
+    }
+    
+    private void dispatch(DdnsTask task, Consumer<RunHandle> body) {
+        RunHandle handle = new RunHandle(task);
+        if (runningTasks.putIfAbsent(task.getId(), handle) != null) {
+            log.debug("DDNS任务上次执行尚未结束，跳过本次: {}", task.getFullDomain());
+            return;
+        }
+        try {
+            runner.execute(() -> {
+                try {
+                    log.debug("定时执行DDNS任务: {}", task.getFullDomain());
+                    body.accept(handle);
+                } catch (Exception e) {
+                    log.error("定时执行DDNS任务异常: {} - {}", task.getFullDomain(), e.getMessage(), e);
+                    addOperationLog("error", "[DDNS] " + task.getFullDomain() + " 定时执行异常: " + e.getMessage());
+                } finally {
+                    runningTasks.remove(task.getId(), handle);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            runningTasks.remove(task.getId(), handle);
+        }
+    }
+    
+    /**
+     * IP变化事件：已启用且依赖该来源与地址族的任务立即排队执行
+     * 本地网卡地址变化只触发依赖该网卡的任务（前缀跟踪该网卡、或经该网卡/其地址出口查询）
+     */
+    private void onAddressChanged(AddressChanged event) {
+        int triggered = 0;
+        for (DdnsTask task : tasks.values()) {
+            if (!taskFutures.containsKey(task.getId())) {
+                continue;
+            }
+            if (!task.usesFamily(event.family())) {
+                continue;
+            }
+            String via = task.getSourceInterface();
+            boolean depends = event.isInterface() ? dependsOnInterface(task, event)
+                : event.source().equals(WanInterfaces.sourceKey(task.getIpServiceUrl(), via))
+                || event.source().equals(WanInterfaces.sourceKey(task.getIpv6ServiceUrl(), via));
+            if (depends) {
+                DdnsMetrics.recordEventTriggeredRun(task.getProvider());
+                dispatch(task);
+                triggered++;
+            }
+        }
+        if (triggered > 0) {
+            addOperationLog("info", "[DDNS] " + event.source() + " 地址变化: " + event.oldAddress() + " -> "
+                + event.newAddress() + "，立即更新 " + triggered + " 个任务");
+        }
+    }
+    
+    /**
+     * 任务是否依赖发生地址变化的网卡：前缀跟踪来源指向该网卡（或任意网卡），或查询出口为该网卡/其地址
+     */
+    private static boolean dependsOnInterface(DdnsTask task, AddressChanged event) {
+        String name = event.source().substring(AddressChanged.INTERFACE_PREFIX.length());
+        for (String url : new String[]{task.getIpServiceUrl(), task.getIpv6ServiceUrl()}) {
+            if (PrefixTracker.isPrefixSource(url)) {
+                String iface = PrefixTracker.interfaceName(url);
+                if (iface.isEmpty() || "*".equals(iface) || WanInterfaces.isOn(iface, name, List.of())) {
+                    return true;
+                }
+            }
+        }
+        Set<String> addresses = new HashSet<>();
+        for (String list : new String[]{event.oldAddress(), event.newAddress()}) {
+            if (!list.isEmpty()) {
+                addresses.addAll(Arrays.asList(list.split(",")));
+            }
+        }
+        return WanInterfaces.isOn(task.getSourceInterface(), name, addresses);
+    }
+    
+    /**
+     * 检测本地网卡地址变化并发布事件（首次检测只记录）
+     */
+    private void pollInterfaces() {
+        Map<String, String> current = DDNS.getInterfaceAddresses();
+        Map<String, String> previous = interfaceAddresses;
+        interfaceAddresses = current;
+        if (previous == null) {
+            return;
+        }
+        Set<String> keys = new TreeSet<>(previous.keySet());
+        keys.addAll(current.keySet());
+        for (String key : keys) {
+            String old = previous.getOrDefault(key, "");
+            String now = current.getOrDefault(key, "");
+            if (!old.equals(now)) {
+                int sep = key.lastIndexOf('|');
+                AddressChangeBus.publish(new AddressChanged(AddressChanged.INTERFACE_PREFIX + key.substring(0, sep),
+                    key.substring(sep + 1), old, now));
+            }
+        }
+    }
+    
+    /**
+     * 单飞执行：按执行涉及的每条记录（账号+完整域名+记录类型）占位，按固定顺序逐个占用以避免互相等待。
+     * 已有涉及完全相同记录的执行在进行时，等待并共享其结果；只有部分记录重叠时（如单记录任务与包含它的记录组、
+     * 双栈任务与同域名的A任务），等待对方结束后再执行，同一条记录不会被两次执行同时写入
+     */
+    private Map<String, Object> runSingleFlight(DdnsTask task, RunHandle handle) {
+        List<String> keys = flightKeys(task);
+        InFlightRun mine = new InFlightRun(task.getId(), keys, new CompletableFuture<>());
+        List<String> acquired = new ArrayList<>();
+        try {
+            for (String key : keys) {
+                InFlightRun existing;
+                while ((existing = inFlightRuns.putIfAbsent(key, mine)) != null) {
+                    if (acquired.isEmpty() && existing.keys().equals(keys)) {
+                        return awaitSharedRun(task, existing);
+                    }
+                    log.debug("DDNS记录 {} 正在被其他执行更新，等待其结束: {}", key, task.getFullDomain());
+                    try {
+                        existing.result().get(runTimeoutMs * 2, TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException e) {
+                        return Map.of("success", false, "message", "等待同一记录的其他执行超时");
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return Map.of("success", false, "message", "执行已取消");
+                    } catch (ExecutionException e) {
+                        // 对方失败不影响本次执行
+                    }
+                }
+                acquired.add(key);
+            }
+            handle.flightKeys = keys;
+            handle.flight = mine;
+            Map<String, Object> result = runTracked(task, handle);
+            mine.result().complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            acquired.forEach(key -> inFlightRuns.remove(key, mine));
+            // 未执行就返回时（共享结果、等待超时）唤醒等待本次占位的执行
+            mine.result().complete(Map.of("success", false, "message", "执行未进行"));
+        }
+    }
+    
+    /**
+     * 执行涉及的记录（账号|完整域名|记录类型），已排序；记录组按每个目标、双栈按A与AAAA分别占位
+     */
+    private static List<String> flightKeys(DdnsTask task) {
+        Set<String> keys = new TreeSet<>();
+        if (task.isGroup()) {
+            for (RecordTarget target : task.getTargets()) {
+                keys.add(target.getSecretId() + "|" + target.getFullDomain() + "|" + target.getRecordType());
+            }
+        } else if (task.isDualStack()) {
+            keys.add(task.getSecretId() + "|" + task.getFullDomain() + "|A");
+            keys.add(task.getSecretId() + "|" + task.getFullDomain() + "|AAAA");
+        } else {
+            keys.add(task.getSecretId() + "|" + task.getFullDomain() + "|" + task.getRecordType());
+        }
+        return List.copyOf(keys);
+    }
+    
+    /**
+     * 等待进行中的执行并共享结果；由其他任务发起的执行成功时同步本任务状态
+     */
+    private Map<String, Object> awaitSharedRun(DdnsTask task, InFlightRun inFlight) {
+        DdnsMetrics.recordSharedRun(task.getProvider());
+        log.debug("DDNS记录已有执行在进行，等待其结果: {}", task.getFullDomain());
+        Map<String, Object> shared;
+        try {
+            shared = inFlight.result().get(runTimeoutMs * 2, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return Map.of("success", false, "message", "等待进行中的执行超时");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Map.of("success", false, "message", "执行已取消");
+        } catch (ExecutionException e) {
+            return Map.of("success", false, "message", String.valueOf(e.getCause().getMessage()));
+        }
+        
+        if (!inFlight.taskId().equals(task.getId()) && Boolean.TRUE.equals(shared.get("success"))
+            && shared.get("ip") instanceof String ip) {
+            if (!ip.equals(task.getLastIp())) {
+                task.setLastIp(ip);
+                task.setLastUpdateTime(LocalDateTime.now().format(formatter));
+            }
+            task.setLastError(null);
+            if (task.isEnabled()) {
+                task.setStatus("running");
+            }
+            saveTask(task);
+        }
+        Map<String, Object> result = new HashMap<>(shared);
+        result.put("shared", true);
+        return result;
+    }
+    
+    /**
+     * 在当前线程执行任务，并登记到卡死检测
+     */
+    private Map<String, Object> runTracked(DdnsTask task, RunHandle handle) {
+        handle.thread = Thread.currentThread();
+        handle.startNanos = System.nanoTime();
+        activeRuns.add(handle);
+        currentRun.set(handle);
+        try {
+            return executeTask(task);
+        } finally {
+            currentRun.remove();
+            activeRuns.remove(handle);
+            synchronized (handle) {
+                handle.done = true;
+            }
+            if (handle.timedOut) {
+                // 清除超时中断标志，避免影响复用的线程（如手动执行所在的Web线程）
+                Thread.interrupted();
+            }
+        }
+    }
+    
+    /**
+     * 卡死检测：超过时限中断执行线程；超过两倍时限仍未结束则回收，允许任务重新调度
+     */
+    private void checkStuckRuns() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(runTimeoutMs);
+        for (RunHandle run : activeRuns) {
+            long elapsed = now - run.startNanos;
+            synchronized (run) {
+                if (run.done) {
+                    continue;
+                }
+                if (!run.timedOut && elapsed > timeoutNanos) {
+                    run.timedOut = true;
+                    run.thread.interrupt();
+                    run.stages.forEach(Thread::interrupt);
+                    DdnsMetrics.recordStuckRun(run.provider, "cancelled");
+                    log.warn("DDNS任务执行超时（{}ms），已取消: {}", runTimeoutMs, run.fullDomain);
+                    addOperationLog("warn", "[DDNS] " + run.fullDomain + " 执行超过 " + runTimeoutMs / 1000 + " 秒，已取消");
+                } else if (run.timedOut && elapsed > timeoutNanos * 2) {
+                    activeRuns.remove(run);
+                    runningTasks.remove(run.taskId, run);
+                    // 释放单飞占位，等待中的触发按失败返回
+                    if (run.flight != null) {
+                        run.flightKeys.forEach(key -> inFlightRuns.remove(key, run.flight));
+                        run.flight.result().complete(Map.of("success", false, "message", "执行线程无响应，已回收"));
+                    }
+                    run.thread.interrupt();
+                    run.stages.forEach(Thread::interrupt);
+                    DdnsMetrics.recordStuckRun(run.provider, "recycled");
+                    log.error("DDNS任务执行线程无响应，已回收: {} 线程: {}", run.fullDomain, run.thread);
+                    addOperationLog("error", "[DDNS] " + run.fullDomain + " 执行线程无响应，已回收");
+                }
+            }
+        }
+    }
+    
+    /**
+     * 正在执行的任务（卡死排查用）
+     */
+    public List<Map<String, Object>> getActiveRuns() {
+        long now = System.nanoTime();
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (RunHandle run : activeRuns) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("taskId", run.taskId);
+            item.put("fullDomain", run.fullDomain);
+            item.put("provider", run.provider);
+            item.put("elapsedMs", TimeUnit.NANOSECONDS.toMillis(now - run.startNanos));
+            item.put("timedOut", run.timedOut);
+            item.put("thread", String.valueOf(run.thread));
+            result.add(item);
+        }
+        result.sort((a, b) -> Long.compare((Long) b.get("elapsedMs"), (Long) a.get("elapsedMs")));
+        return result;
+    }
+    
+    /**
+     * 获取隔离舱：IP探测按任务的IP来源划分（一个来源挂起不影响使用其他来源的任务），
+     * 记录读取与写入按服务商划分
+     */
+    private Bulkhead bulkhead(DdnsTask task, String callClass) {
+        String key = "probe".equals(callClass)
+            ? "probe:" + probeSource(task.getIpServiceUrl())
+            : task.getProvider() + ":" + callClass;
+        return bulkheads.computeIfAbsent(key, name -> new Bulkhead(name,
+            switch (callClass) {
+                case "probe" -> probeConcurrency;
+                case "read" -> readConcurrency;
+                default -> writeConcurrency;
+            },
+            bulkheadMaxWaitMs));
+    }
+    
+    /**
+     * IP来源的隔离舱标识：HTTP服务取主机名，STUN/DNS/网关/前缀来源取 协议://地址 部分
+     */
+    private static String probeSource(String url) {
+        if (isBlank(url)) {
+            return "default";
+        }
+        try {
+            URI uri = URI.create(url);
+            boolean http = "http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme());
+            if (http && uri.getHost() != null) {
+                return uri.getHost();
+            }
+            if (uri.getRawAuthority() != null) {
+                return uri.getScheme() + "://" + uri.getRawAuthority();
+            }
+        } catch (IllegalArgumentException e) {
+            // 非标准地址按原样作为标识
+        }
+        return url;
+    }
+    
     /**
      * 停止任务
      */
@@ -188,7 +998,7 @@ public class DdnsTaskService {
         
         task.setEnabled(false);
         task.setStatus("stopped");
-        saveTasks();
+        saveTask(task);
         
         log.info("停止DDNS任务: {}", task.getFullDomain());
         return true;
@@ -208,7 +1018,9 @@ public class DdnsTaskService {
             } catch (Exception e) {
                 log.warn("删除云端DNS记录失败: {} - {}", removed.getFullDomain(), e.getMessage());
             }
-            saveTasks();
+            runHistories.remove(taskId);
+            flapDamper.forget(taskId);
+            markDeleted(removed);
             log.info("删除DDNS任务: {}", removed.getFullDomain());
             return true;
         }
@@ -219,6 +1031,25 @@ public class DdnsTaskService {
      * 删除DNS记录（根据provider选择）
      */
     private void deleteDnsRecord(DdnsTask task) throws Exception {
+        if (task.isGroup()) {
+            // 记录组逐条删除，单条失败不影响其他记录
+            List<RecordTarget> targets = task.getTargets();
+            for (int i = 0; i < targets.size(); i++) {
+                DdnsTask view = targetView(task, targets.get(i), i);
+                try {
+                    deleteDnsRecord(view);
+                } catch (Exception e) {
+                    log.warn("删除云端DNS记录失败: {} - {}", view.getFullDomain(), e.getMessage());
+                }
+            }
+            return;
+        }
+        if (task.isDualStack()) {
+            for (String type : DUAL_STACK_TYPES) {
+                deleteDnsRecord(familyView(task, type));
+            }
+            return;
+        }
         if ("腾讯云".equals(task.getProvider())) {
             deleteTencentDnsRecord(task);
         } else if ("阿里云".equals(task.getProvider())) {
@@ -230,12 +1061,7 @@ public class DdnsTaskService {
      * 删除腾讯云DNS记录
      */
     private void deleteTencentDnsRecord(DdnsTask task) throws Exception {
-        Credential cred = new Credential(task.getSecretId(), task.getSecretKey());
-        HttpProfile httpProfile = new HttpProfile();
-        httpProfile.setEndpoint("dnspod.tencentcloudapi.com");
-        ClientProfile clientProfile = new ClientProfile();
-        clientProfile.setHttpProfile(httpProfile);
-        DnspodClient client = new DnspodClient(cred, "", clientProfile);
+        DnspodClient client = DnsClients.tencent(task.getSecretId(), task.getSecretKey());
         
         String recordType = task.getRecordType(); // A 或 AAAA
         
@@ -243,7 +1069,7 @@ public class DdnsTaskService {
         DescribeRecordListRequest listReq = new DescribeRecordListRequest();
         listReq.setDomain(task.getDomain());
         listReq.setSubdomain(task.getSubdomain());
-        DescribeRecordListResponse listResp = client.DescribeRecordList(listReq);
+        DescribeRecordListResponse listResp = callProvider(task.getProvider(), "describe", () -> client.DescribeRecordList(listReq));
         
         if (listResp.getRecordList() != null && listResp.getRecordList().length > 0) {
             for (RecordListItem record : listResp.getRecordList()) {
@@ -251,7 +1077,7 @@ public class DdnsTaskService {
                     DeleteRecordRequest deleteReq = new DeleteRecordRequest();
                     deleteReq.setDomain(task.getDomain());
                     deleteReq.setRecordId(record.getRecordId());
-                    client.DeleteRecord(deleteReq);
+                    callProvider(task.getProvider(), "delete", () -> client.DeleteRecord(deleteReq));
                     log.info("删除DNS记录: {} (ID: {}) 类型: {}", task.getFullDomain(), record.getRecordId(), recordType);
                 }
             }
@@ -262,187 +1088,749 @@ public class DdnsTaskService {
      * 删除阿里云DNS记录
      */
     private void deleteAliyunDnsRecord(DdnsTask task) throws Exception {
-        com.aliyun.alidns20150109.Client client = createAliyunClient(task.getSecretId(), task.getSecretKey());
+        com.aliyun.alidns20150109.Client client = DnsClients.aliyun(task.getSecretId(), task.getSecretKey());
         
         String recordType = task.getRecordType(); // A 或 AAAA
         
         // 查找记录ID
-        com.aliyun.alidns20150109.models.DescribeDomainRecordsRequest listReq = 
-            new com.aliyun.alidns20150109.models.DescribeDomainRecordsRequest()
-                .setDomainName(task.getDomain())
-                .setRRKeyWord(task.getSubdomain())
-                .setType(recordType);
-        com.aliyun.alidns20150109.models.DescribeDomainRecordsResponse listResp = client.describeDomainRecords(listReq);
-        
-        if (listResp.getBody().getDomainRecords() != null && 
-            listResp.getBody().getDomainRecords().getRecord() != null) {
-            for (var record : listResp.getBody().getDomainRecords().getRecord()) {
-                if (task.getSubdomain().equals(record.getRR()) && recordType.equals(record.getType())) {
-                    com.aliyun.alidns20150109.models.DeleteDomainRecordRequest deleteReq = 
-                        new com.aliyun.alidns20150109.models.DeleteDomainRecordRequest()
-                            .setRecordId(record.getRecordId());
-                    client.deleteDomainRecord(deleteReq);
-                    log.info("删除阿里云DNS记录: {} (ID: {}) 类型: {}", task.getFullDomain(), record.getRecordId(), recordType);
-                }
+        for (var record : listAliyunRecords(task, client, recordType)) {
+            if (recordType.equals(record.getType())) {
+                com.aliyun.alidns20150109.models.DeleteDomainRecordRequest deleteReq = 
+                    new com.aliyun.alidns20150109.models.DeleteDomainRecordRequest()
+                        .setRecordId(record.getRecordId());
+                callProvider(task.getProvider(), "delete", () -> client.deleteDomainRecord(deleteReq));
+                log.info("删除阿里云DNS记录: {} (ID: {}) 类型: {}", task.getFullDomain(), record.getRecordId(), recordType);
             }
         }
     }
     
     /**
-     * 手动执行一次任务
+     * 获取任务最近执行记录及耗时统计
+     */
+    public Map<String, Object> getTaskHistory(String taskId) {
+        if (!tasks.containsKey(taskId)) {
+            return null;
+        }
+        RunHistory history = runHistories.get(taskId);
+        return history != null ? history.snapshot() : new RunHistory(HISTORY_SIZE).snapshot();
+    }
+    
+    /**
+     * 手动执行一次任务
      */
     public Map<String, Object> executeTaskNow(String taskId) {
         DdnsTask task = tasks.get(taskId);
         if (task == null) {
             return Map.of("success", false, "message", "任务不存在");
         }
-        return executeTask(task);
+        return runSingleFlight(task, new RunHandle(task));
     }
     
     /**
      * 执行DDNS更新
+     * IP探测与记录读取并行执行，两者都完成后判断是否需要写入，仅在IP不一致时写入记录
      */
     private Map<String, Object> executeTask(DdnsTask task) {
+        if (task.isGroup()) {
+            return executeGroup(task);
+        }
+        if (task.isDualStack()) {
+            return executeDualStack(task);
+        }
         Map<String, Object> result = new HashMap<>();
+        TaskRunEvent event = new TaskRunEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        String outcome = "failed";
+        // 各阶段耗时（纳秒）：探测、读取、写入
+        AtomicLongArray phaseNanos = new AtomicLongArray(3);
+        RunHandle handle = currentRun.get();
         
         try {
-            // 获取当前本地公网IP（优先使用用户选择的服务，失败则自动切换备用服务）
-            String currentIp = fetchIPWithFallback(task);
-            if (currentIp == null || currentIp.isEmpty()) {
-                throw new Exception("所有IP服务均不可用");
-            }
+            CompletableFuture<IpAddress> probe = probeStage(task, handle, phaseNanos);
+            Observation observation = await(handle, reconcile(task, handle, phaseNanos, probe));
+            String currentIp = observation.currentIp();
             
-            // 从云服务商API获取域名当前解析的IP
-            String dnsIp = getDnsRecordIp(task);
+            if (observation.deferred()) {
+                log.info("检测到新IP，等待确认后再更新: {} DNS={} 本地={}", task.getFullDomain(), observation.record().value(), currentIp);
+                addOperationLog("warn", "[DDNS] " + task.getFullDomain() + " 检测到新IP " + currentIp + "，等待确认后再更新");
+                // 稍后再执行一次确认，避免等待整个定时周期
+                scheduleRecheck(task.getId());
+                result.put("success", true);
+                result.put("message", "IP变化待确认");
+                result.put("ip", observation.record().value());
+                outcome = "deferred";
+                return result;
+            }
             
-            // 检查是否需要更新：DNS记录IP与本地IP不一致
-            if (dnsIp != null && currentIp.equals(dnsIp)) {
+            if (observation.isUnchanged()) {
                 log.debug("DNS记录IP与本地IP一致，跳过更新: {} -> {}", task.getFullDomain(), currentIp);
                 // 更新lastIp以保持同步
-                if (!currentIp.equals(task.getLastIp())) {
+                if (!IpAddress.same(currentIp, task.getLastIp())) {
                     task.setLastIp(currentIp);
-                    saveTasks();
+                    saveTask(task);
                 }
                 result.put("success", true);
                 result.put("message", "IP未变化");
                 result.put("ip", currentIp);
+                outcome = "unchanged";
                 return result;
             }
             
-            // 记录更新原因
-            if (dnsIp == null) {
-                log.info("DNS记录不存在，创建新记录: {} -> {}", task.getFullDomain(), currentIp);
-                addOperationLog("info", "[DDNS] " + task.getFullDomain() + " DNS记录不存在，创建: " + currentIp);
-            } else {
-                log.info("DNS记录IP与本地IP不一致，执行更新: {} DNS={} 本地={}", task.getFullDomain(), dnsIp, currentIp);
-                addOperationLog("warn", "[DDNS] " + task.getFullDomain() + " DNS记录(" + dnsIp + ")与本地IP(" + currentIp + ")不一致，执行更新");
-            }
-            
-            // 更新DNS记录
-            if ("腾讯云".equals(task.getProvider())) {
-                updateTencentDns(task, currentIp);
-            } else if ("阿里云".equals(task.getProvider())) {
-                updateAliyunDns(task, currentIp);
-            } else {
-                throw new Exception("暂不支持 " + task.getProvider());
-            }
-            
             // 更新任务状态
             task.setLastIp(currentIp);
             task.setLastUpdateTime(LocalDateTime.now().format(formatter));
             task.setStatus("running");
             task.setLastError(null);
-            saveTasks();
+            saveTask(task);
             
+            outcome = "updated";
+            DdnsMetrics.recordRecordChange(task.getProvider(), task.getRecordType());
             log.info("DDNS更新成功: {} -> {}", task.getFullDomain(), currentIp);
             addOperationLog("success", "[DDNS] " + task.getFullDomain() + " 更新成功: " + currentIp);
             result.put("success", true);
             result.put("message", "更新成功");
             result.put("ip", currentIp);
             
+        } catch (Bulkhead.BulkheadFullException e) {
+            // 满载丢弃本次执行，下个周期再试，不标记任务错误
+            outcome = "shed";
+            log.warn("DDNS任务因{}，本次执行已跳过: {}", e.getMessage(), task.getFullDomain());
+            result.put("success", false);
+            result.put("message", "系统繁忙，本次执行已跳过");
         } catch (Exception e) {
+            String message = handle != null && handle.timedOut
+                ? "执行超时（超过 " + runTimeoutMs / 1000 + " 秒），已取消"
+                : e.getMessage();
             task.setStatus("error");
-            task.setLastError(e.getMessage());
+            task.setLastError(message);
             task.setLastUpdateTime(LocalDateTime.now().format(formatter));
-            saveTasks();
+            saveTask(task);
+            
+            log.error("DDNS更新失败: {} - {}", task.getFullDomain(), message);
+            addOperationLog("error", "[DDNS] " + task.getFullDomain() + " 更新失败: " + message);
+            result.put("success", false);
+            result.put("message", message);
+        } finally {
+            finishRun(task, event, outcome, phaseNanos, System.nanoTime() - startTime);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * 执行记录组任务：一次IP探测，各目标记录并行读取、判断与写入，分别记录状态
+     */
+    private Map<String, Object> executeGroup(DdnsTask task) {
+        Map<String, Object> result = new HashMap<>();
+        TaskRunEvent event = new TaskRunEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        String outcome = "failed";
+        AtomicLongArray phaseNanos = new AtomicLongArray(3);
+        RunHandle handle = currentRun.get();
+        
+        try {
+            CompletableFuture<IpAddress> probe = probeStage(task, handle, phaseNanos);
+            List<RecordTarget> targets = task.getTargets();
+            List<CompletableFuture<String>> pending = new ArrayList<>(targets.size());
+            for (int i = 0; i < targets.size(); i++) {
+                RecordTarget target = targets.get(i);
+                DdnsTask view = targetView(task, target, i);
+                // 同一前缀下各主机按自身后缀得到地址
+                CompletableFuture<IpAddress> address = isBlank(target.getIpv6Suffix())
+                    ? probe
+                    : probe.thenApply(ip -> withSuffix(view, ip));
+                // 探测失败由整组处理，不改写各目标状态
+                pending.add(reconcile(view, handle, phaseNanos, address)
+                    .handle((o, e) -> e != null && probe.isCompletedExceptionally()
+                        ? "failed"
+                        : applyTargetResult(view, target, o, e)));
+            }
+            await(handle, CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)));
+            // 探测失败时所有目标都无法判断，按整组失败处理
+            String currentIp = await(handle, probe).toString();
             
-            log.error("DDNS更新失败: {} - {}", task.getFullDomain(), e.getMessage());
-            addOperationLog("error", "[DDNS] " + task.getFullDomain() + " 更新失败: " + e.getMessage());
+            Map<String, Integer> counts = new TreeMap<>();
+            for (CompletableFuture<String> f : pending) {
+                counts.merge(f.join(), 1, Integer::sum);
+            }
+            int updated = counts.getOrDefault("updated", 0);
+            int failed = counts.getOrDefault("failed", 0);
+            int shed = counts.getOrDefault("shed", 0);
+            
+            task.setLastIp(currentIp);
+            if (updated > 0) {
+                task.setLastUpdateTime(LocalDateTime.now().format(formatter));
+            }
+            if (failed > 0) {
+                task.setStatus("error");
+                task.setLastError(failed + "/" + targets.size() + " 条记录更新失败");
+                outcome = "failed";
+            } else {
+                task.setStatus("running");
+                task.setLastError(null);
+                outcome = updated > 0 ? "updated" : shed > 0 ? "shed" : "unchanged";
+            }
+            if (counts.containsKey("deferred")) {
+                scheduleRecheck(task.getId());
+            }
+            saveTask(task);
+            
+            String summary = "更新 " + updated + " 条，未变化 " + counts.getOrDefault("unchanged", 0) + " 条"
+                + (counts.containsKey("deferred") ? "，待确认 " + counts.get("deferred") + " 条" : "")
+                + (shed > 0 ? "，跳过 " + shed + " 条" : "")
+                + (failed > 0 ? "，失败 " + failed + " 条" : "");
+            if (updated > 0 || failed > 0) {
+                addOperationLog(failed > 0 ? "error" : "success", "[DDNS] 记录组 " + task.getFullDomain() + " " + summary + ": " + currentIp);
+            }
+            result.put("success", failed == 0);
+            result.put("message", summary);
+            result.put("ip", currentIp);
+            result.put("targets", targets.stream().map(RecordTarget::getStatus).toList());
+            
+        } catch (Bulkhead.BulkheadFullException e) {
+            outcome = "shed";
+            log.warn("DDNS记录组因{}，本次执行已跳过: {}", e.getMessage(), task.getFullDomain());
+            result.put("success", false);
+            result.put("message", "系统繁忙，本次执行已跳过");
+        } catch (Exception e) {
+            String message = handle != null && handle.timedOut
+                ? "执行超时（超过 " + runTimeoutMs / 1000 + " 秒），已取消"
+                : e.getMessage();
+            task.setStatus("error");
+            task.setLastError(message);
+            task.setLastUpdateTime(LocalDateTime.now().format(formatter));
+            saveTask(task);
+            
+            log.error("DDNS记录组更新失败: {} - {}", task.getFullDomain(), message);
+            addOperationLog("error", "[DDNS] 记录组 " + task.getFullDomain() + " 更新失败: " + message);
             result.put("success", false);
-            result.put("message", e.getMessage());
+            result.put("message", message);
+        } finally {
+            finishRun(task, event, outcome, phaseNanos, System.nanoTime() - startTime);
         }
         
         return result;
     }
     
     /**
-     * 从云服务商API获取域名当前DNS记录的IP
+     * 执行双栈任务：IPv4与IPv6并行探测，记录列表只读取一次，A与AAAA各自判断、按需写入
      */
-    private String getDnsRecordIp(DdnsTask task) {
+    private Map<String, Object> executeDualStack(DdnsTask task) {
+        Map<String, Object> result = new HashMap<>();
+        TaskRunEvent event = new TaskRunEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        String outcome = "failed";
+        AtomicLongArray phaseNanos = new AtomicLongArray(3);
+        RunHandle handle = currentRun.get();
+        
+        try {
+            CompletableFuture<Map<String, RecordState>> read = stage(handle, phaseNanos, PHASE_READ,
+                () -> bulkhead(task, "read").call(() -> readDnsRecords(task, DUAL_STACK_TYPES)));
+            Map<String, CompletableFuture<Observation>> runs = new LinkedHashMap<>();
+            for (String type : DUAL_STACK_TYPES) {
+                DdnsTask view = familyView(task, type);
+                runs.put(type, decide(view, handle, phaseNanos, probeStage(view, handle, phaseNanos),
+                    read.thenApply(records -> records.get(type))));
+            }
+            // 等待两个地址族都结束，一个失败不影响另一个
+            await(handle, CompletableFuture.allOf(runs.values().stream()
+                .map(f -> f.handle((o, e) -> null))
+                .toArray(CompletableFuture[]::new)));
+            
+            List<String> errors = new ArrayList<>();
+            List<String> changed = new ArrayList<>();
+            Exception shed = null;
+            boolean deferred = false;
+            for (Map.Entry<String, CompletableFuture<Observation>> entry : runs.entrySet()) {
+                String type = entry.getKey();
+                Observation o;
+                try {
+                    o = entry.getValue().join();
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof Bulkhead.BulkheadFullException full) {
+                        shed = full;
+                    } else {
+                        errors.add(type + ": " + cause.getMessage());
+                    }
+                    continue;
+                }
+                if (o.deferred()) {
+                    deferred = true;
+                    continue;
+                }
+                if ("AAAA".equals(type)) {
+                    task.setLastIpv6(o.currentIp());
+                } else {
+                    task.setLastIp(o.currentIp());
+                }
+                if (!o.isUnchanged()) {
+                    changed.add(type + " " + o.currentIp());
+                    DdnsMetrics.recordRecordChange(task.getProvider(), type);
+                }
+            }
+            if (shed != null && errors.isEmpty() && changed.isEmpty() && !deferred) {
+                throw shed;
+            }
+            if (deferred) {
+                scheduleRecheck(task.getId());
+            }
+            
+            if (!changed.isEmpty()) {
+                task.setLastUpdateTime(LocalDateTime.now().format(formatter));
+                log.info("DDNS双栈更新成功: {} -> {}", task.getFullDomain(), changed);
+                addOperationLog("success", "[DDNS] " + task.getFullDomain() + " 更新成功: " + String.join("，", changed));
+            }
+            if (errors.isEmpty()) {
+                task.setStatus("running");
+                task.setLastError(null);
+                outcome = !changed.isEmpty() ? "updated" : deferred ? "deferred" : "unchanged";
+                result.put("success", true);
+                result.put("message", !changed.isEmpty() ? "更新成功" : deferred ? "IP变化待确认" : "IP未变化");
+            } else {
+                String message = String.join("；", errors);
+                task.setStatus("error");
+                task.setLastError(message);
+                log.error("DDNS双栈更新失败: {} - {}", task.getFullDomain(), message);
+                addOperationLog("error", "[DDNS] " + task.getFullDomain() + " 更新失败: " + message);
+                result.put("success", false);
+                result.put("message", message);
+            }
+            saveTask(task);
+            result.put("ip", task.getLastIp());
+            result.put("ipv6", task.getLastIpv6());
+            
+        } catch (Bulkhead.BulkheadFullException e) {
+            outcome = "shed";
+            log.warn("DDNS任务因{}，本次执行已跳过: {}", e.getMessage(), task.getFullDomain());
+            result.put("success", false);
+            result.put("message", "系统繁忙，本次执行已跳过");
+        } catch (Exception e) {
+            String message = handle != null && handle.timedOut
+                ? "执行超时（超过 " + runTimeoutMs / 1000 + " 秒），已取消"
+                : e.getMessage();
+            task.setStatus("error");
+            task.setLastError(message);
+            task.setLastUpdateTime(LocalDateTime.now().format(formatter));
+            saveTask(task);
+            
+            log.error("DDNS更新失败: {} - {}", task.getFullDomain(), message);
+            addOperationLog("error", "[DDNS] " + task.getFullDomain() + " 更新失败: " + message);
+            result.put("success", false);
+            result.put("message", message);
+        } finally {
+            finishRun(task, event, outcome, phaseNanos, System.nanoTime() - startTime);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * 双栈任务单个地址族的执行视图：记录类型固定为A或AAAA，AAAA使用IPv6服务
+     */
+    private DdnsTask familyView(DdnsTask task, String type) {
+        DdnsTask view = new DdnsTask();
+        view.setId(task.getId() + "#" + type);
+        view.setProvider(task.getProvider());
+        view.setSecretId(task.getSecretId());
+        view.setSecretKey(task.getSecretKey());
+        view.setDomain(task.getDomain());
+        view.setSubdomain(task.getSubdomain());
+        view.setFullDomain(task.getFullDomain());
+        view.setRecordType(type);
+        view.setSourceInterface(task.getSourceInterface());
+        if ("AAAA".equals(type)) {
+            view.setIpServiceUrl(task.getIpv6ServiceUrl());
+            view.setIpServiceName(task.getIpv6ServiceName());
+            view.setIpv6Suffix(task.getIpv6Suffix());
+        } else {
+            view.setIpServiceUrl(task.getIpServiceUrl());
+            view.setIpServiceName(task.getIpServiceName());
+        }
+        return view;
+    }
+    
+    /**
+     * 记录组中单个目标的执行结果写回目标状态，返回结果: updated/unchanged/deferred/shed/failed
+     */
+    private String applyTargetResult(DdnsTask view, RecordTarget target, Observation observation, Throwable error) {
+        synchronized (target) {
+            if (error == null) {
+                if (observation.deferred()) {
+                    target.setStatus("pending");
+                    return "deferred";
+                }
+                target.setLastIp(observation.currentIp());
+                target.setStatus("running");
+                target.setLastError(null);
+                if (observation.isUnchanged()) {
+                    return "unchanged";
+                }
+                target.setLastUpdateTime(LocalDateTime.now().format(formatter));
+                DdnsMetrics.recordRecordChange(view.getProvider(), view.getRecordType());
+                return "updated";
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof Bulkhead.BulkheadFullException) {
+                return "shed";
+            }
+            target.setStatus("error");
+            target.setLastError(cause.getMessage());
+            target.setLastUpdateTime(LocalDateTime.now().format(formatter));
+            log.warn("记录组目标更新失败: {} - {}", view.getFullDomain(), cause.getMessage());
+            return "failed";
+        }
+    }
+    
+    /**
+     * 记录组目标的执行视图：沿用单记录任务的读取、写入与抖动抑制逻辑
+     */
+    private DdnsTask targetView(DdnsTask group, RecordTarget target, int index) {
+        DdnsTask view = new DdnsTask();
+        view.setId(group.getId() + "#" + index);
+        view.setProvider(target.getProvider());
+        view.setSecretId(target.getSecretId());
+        view.setSecretKey(target.getSecretKey());
+        view.setDomain(target.getDomain());
+        view.setSubdomain(target.getSubdomain());
+        view.setFullDomain(target.getFullDomain());
+        view.setRecordType(target.getRecordType());
+        view.setIpServiceUrl(group.getIpServiceUrl());
+        view.setIpServiceName(group.getIpServiceName());
+        view.setSourceInterface(group.getSourceInterface());
+        view.setIpv6Suffix(target.getIpv6Suffix());
+        return view;
+    }
+    
+    /**
+     * IP探测阶段：获取当前本地公网IP（优先使用用户选择的服务，失败则自动切换备用服务）
+     */
+    private CompletableFuture<IpAddress> probeStage(DdnsTask task, RunHandle handle, AtomicLongArray phaseNanos) {
+        return stage(handle, phaseNanos, PHASE_PROBE, () -> {
+            IpAddress ip = IpAddress.parse(bulkhead(task, "probe").call(() -> fetchIPWithFallback(task)));
+            if (ip == null) {
+                throw new Exception("所有IP服务均不可用");
+            }
+            return withSuffix(task, ip);
+        });
+    }
+    
+    /**
+     * 设置了IPv6后缀时，以探测到的地址为前缀拼出本主机地址（前缀长度取自 prefix:// 来源，默认64）
+     */
+    private IpAddress withSuffix(DdnsTask task, IpAddress ip) {
+        return PrefixTracker.applySuffix(ip, PrefixTracker.prefixLength(task.getIpServiceUrl()), task.getIpv6Suffix());
+    }
+    
+    /**
+     * 与探测同时读取记录当前值；两者都完成后判断，IP不一致且通过抖动抑制时才写入
+     */
+    private CompletableFuture<Observation> reconcile(DdnsTask task, RunHandle handle, AtomicLongArray phaseNanos,
+                                                     CompletableFuture<IpAddress> probe) {
+        CompletableFuture<RecordState> read = stage(handle, phaseNanos, PHASE_READ,
+            () -> bulkhead(task, "read").call(() -> readDnsRecord(task)));
+        return decide(task, handle, phaseNanos, probe, read);
+    }
+    
+    /**
+     * 判断阶段：探测与读取都完成后比较，IP不一致且通过抖动抑制时才写入
+     */
+    private CompletableFuture<Observation> decide(DdnsTask task, RunHandle handle, AtomicLongArray phaseNanos,
+                                                  CompletableFuture<IpAddress> probe, CompletableFuture<RecordState> read) {
+        String family = "AAAA".equals(task.getRecordType()) ? "ipv6" : "ipv4";
+        return probe
+            .thenCombine(read, (ip, record) -> new Observation(ip, record, false))
+            .thenCompose(o -> {
+                if (o.isUnchanged()) {
+                    flapDamper.settle(task.getId(), family);
+                    return CompletableFuture.completedFuture(o);
+                }
+                // 记录不存在时直接创建，不需要抑制
+                if (o.record() != null && !flapDamper.admit(task.getId(), family, o.current())) {
+                    if (flapDamper.needsSources()) {
+                        corroborate(task, family);
+                    }
+                    return CompletableFuture.completedFuture(new Observation(o.current(), o.record(), true));
+                }
+                return stage(handle, phaseNanos, PHASE_WRITE, () -> {
+                    writeDnsRecord(task, o);
+                    return o;
+                });
+            });
+    }
+    
+    /**
+     * 新地址需要其他来源确认时，在后台向其他内置服务查询一次（结果发布到地址变化总线），
+     * 下次确认执行即可据此判断；同一任务同一地址族同时只查询一次
+     */
+    private void corroborate(DdnsTask task, String family) {
+        String key = task.getId() + "|" + family;
+        if (!corroborating.add(key)) {
+            return;
+        }
+        boolean isIPv6 = "ipv6".equals(family);
+        String primary = isIPv6 && task.isDualStack() ? task.getIpv6ServiceUrl() : task.getIpServiceUrl();
+        try {
+            runner.execute(() -> {
+                try {
+                    for (IP_SERVICES service : IP_SERVICES.values()) {
+                        if (service.isIPv6() == isIPv6 && !service.getUrl().equals(primary)) {
+                            fetchIP(service.getUrl(), isIPv6, task.getId(), task.getSourceInterface());
+                        }
+                    }
+                } finally {
+                    corroborating.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            corroborating.remove(key);
+        }
+    }
+    
+    /**
+     * 记录一次执行的指标、执行历史与JFR事件
+     */
+    private void finishRun(DdnsTask task, TaskRunEvent event, String outcome, AtomicLongArray phaseNanos, long totalNanos) {
+        DdnsMetrics.recordTaskRun(task.getProvider(), outcome, totalNanos);
+        byte outcomeCode = switch (outcome) {
+            case "updated" -> RunHistory.OUTCOME_UPDATED;
+            case "unchanged", "deferred" -> RunHistory.OUTCOME_UNCHANGED;
+            case "shed" -> RunHistory.OUTCOME_SHED;
+            default -> RunHistory.OUTCOME_FAILED;
+        };
+        runHistories.computeIfAbsent(task.getId(), id -> new RunHistory(HISTORY_SIZE))
+            .record(System.currentTimeMillis(), phaseNanos.get(PHASE_PROBE), phaseNanos.get(PHASE_READ),
+                phaseNanos.get(PHASE_WRITE), totalNanos, outcomeCode, "updated".equals(outcome));
+        if (event.shouldCommit()) {
+            event.taskId = task.getId();
+            event.provider = task.getProvider();
+            event.domain = task.getFullDomain();
+            event.recordType = task.getRecordType();
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+    
+    /**
+     * 在执行器中异步执行一个阶段，记录耗时，并登记线程以便超时时一并中断
+     */
+    private <T> CompletableFuture<T> stage(RunHandle handle, AtomicLongArray phaseNanos, int phase, Bulkhead.Call<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            Thread self = Thread.currentThread();
+            if (handle != null) {
+                handle.stages.add(self);
+            }
+            long start = System.nanoTime();
+            try {
+                return call.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                // 同一阶段并行执行多次时（记录组）取最长耗时
+                phaseNanos.accumulateAndGet(phase, System.nanoTime() - start, Math::max);
+                if (handle != null) {
+                    handle.stages.remove(self);
+                }
+            }
+        }, runner);
+    }
+    
+    /**
+     * 等待流水线完成并还原阶段抛出的异常；等待被中断时同时中断各阶段
+     */
+    private <T> T await(RunHandle handle, CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception ex) {
+                throw ex;
+            }
+            throw new Exception(cause);
+        } catch (InterruptedException e) {
+            if (handle != null) {
+                handle.stages.forEach(Thread::interrupt);
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * 写入DNS记录：记录存在则修改，不存在则创建
+     */
+    private void writeDnsRecord(DdnsTask task, Observation observation) throws Exception {
+        String currentIp = observation.currentIp();
+        RecordState record = observation.record();
+        // 记录更新原因
+        if (record == null) {
+            log.info("DNS记录不存在，创建新记录: {} -> {}", task.getFullDomain(), currentIp);
+            addOperationLog("info", "[DDNS] " + task.getFullDomain() + " DNS记录不存在，创建: " + currentIp);
+        } else {
+            log.info("DNS记录IP与本地IP不一致，执行更新: {} DNS={} 本地={}", task.getFullDomain(), record.value(), currentIp);
+            addOperationLog("warn", "[DDNS] " + task.getFullDomain() + " DNS记录(" + record.value() + ")与本地IP(" + currentIp + ")不一致，执行更新");
+        }
+        
+        bulkhead(task, "write").call(() -> {
+            if ("腾讯云".equals(task.getProvider())) {
+                updateTencentDns(task, currentIp, record);
+            } else if ("阿里云".equals(task.getProvider())) {
+                updateAliyunDns(task, currentIp, record);
+            } else {
+                throw new Exception("暂不支持 " + task.getProvider());
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * 云服务商API调用
+     */
+    @FunctionalInterface
+    private interface ProviderCall<T> {
+        T call() throws Exception;
+    }
+    
+    /**
+     * 执行云服务商API调用并记录耗时
+     * @param operation describe/modify/create/delete
+     */
+    private <T> T callProvider(String provider, String operation, ProviderCall<T> call) throws Exception {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            FaultInjector.beforeProviderCall(provider, operation);
+            T result = call.call();
+            success = true;
+            return result;
+        } finally {
+            DdnsMetrics.recordProviderCall(provider, operation, System.nanoTime() - start, success);
+        }
+    }
+    
+    /**
+     * 从云服务商API读取域名当前的DNS记录，记录不存在返回 null
+     * 读取失败直接抛出，不能把“未读到”当作记录不存在而去创建重复记录
+     */
+    private RecordState readDnsRecord(DdnsTask task) throws Exception {
+        return readDnsRecords(task, List.of(task.getRecordType())).get(task.getRecordType());
+    }
+    
+    /**
+     * 一次读取子域名下指定类型的记录（类型 -> 记录，不存在的类型不在结果中）
+     */
+    private Map<String, RecordState> readDnsRecords(DdnsTask task, List<String> types) throws Exception {
+        DnsRecordReadEvent event = new DnsRecordReadEvent();
+        event.begin();
+        Map<String, RecordState> records;
+        String outcome = "failure";
         try {
             if ("腾讯云".equals(task.getProvider())) {
-                return getTencentDnsRecordIp(task);
+                records = readTencentDnsRecords(task, types);
             } else if ("阿里云".equals(task.getProvider())) {
-                return getAliyunDnsRecordIp(task);
+                records = readAliyunDnsRecords(task, types);
+            } else {
+                throw new Exception("暂不支持 " + task.getProvider());
             }
+            outcome = !records.isEmpty() ? "found" : "missing";
+            return records;
         } catch (Exception e) {
-            log.debug("获取DNS记录IP失败: {} - {}", task.getFullDomain(), e.getMessage());
+            log.debug("获取DNS记录失败: {} - {}", task.getFullDomain(), e.getMessage());
+            throw e;
+        } finally {
+            if (event.shouldCommit()) {
+                event.taskId = task.getId();
+                event.provider = task.getProvider();
+                event.domain = task.getFullDomain();
+                event.outcome = outcome;
+                event.commit();
+            }
         }
-        return null;
     }
     
     /**
-     * 获取腾讯云DNS记录的IP
+     * 读取腾讯云DNS记录（记录列表包含子域名下所有类型）
      */
-    private String getTencentDnsRecordIp(DdnsTask task) throws Exception {
-        Credential cred = new Credential(task.getSecretId(), task.getSecretKey());
-        HttpProfile httpProfile = new HttpProfile();
-        httpProfile.setEndpoint("dnspod.tencentcloudapi.com");
-        ClientProfile clientProfile = new ClientProfile();
-        clientProfile.setHttpProfile(httpProfile);
-        DnspodClient client = new DnspodClient(cred, "", clientProfile);
-        
-        String recordType = task.getRecordType(); // A 或 AAAA
+    private Map<String, RecordState> readTencentDnsRecords(DdnsTask task, List<String> types) throws Exception {
+        DnspodClient client = DnsClients.tencent(task.getSecretId(), task.getSecretKey());
+        Map<String, RecordState> records = new HashMap<>();
         
         DescribeRecordListRequest listReq = new DescribeRecordListRequest();
         listReq.setDomain(task.getDomain());
         listReq.setSubdomain(task.getSubdomain());
-        DescribeRecordListResponse listResp = client.DescribeRecordList(listReq);
+        DescribeRecordListResponse listResp;
+        try {
+            listResp = callProvider(task.getProvider(), "describe", () -> client.DescribeRecordList(listReq));
+        } catch (TencentCloudSDKException e) {
+            // 子域名下没有任何记录时接口返回错误而不是空列表
+            if (TENCENT_NO_RECORD.equals(e.getErrorCode())) {
+                return records;
+            }
+            throw e;
+        }
         
         if (listResp.getRecordList() != null && listResp.getRecordList().length > 0) {
             for (RecordListItem record : listResp.getRecordList()) {
-                if (recordType.equals(record.getType())) {
-                    return record.getValue();
+                if (types.contains(record.getType())) {
+                    records.putIfAbsent(record.getType(), RecordState.of(String.valueOf(record.getRecordId()), record.getValue()));
                 }
             }
         }
-        return null;
+        return records;
     }
     
     /**
-     * 获取阿里云DNS记录的IP
+     * 读取阿里云DNS记录（读取多种类型时不按类型过滤）
      */
-    private String getAliyunDnsRecordIp(DdnsTask task) throws Exception {
-        com.aliyun.alidns20150109.Client client = createAliyunClient(task.getSecretId(), task.getSecretKey());
-        
-        String recordType = task.getRecordType(); // A 或 AAAA
+    private Map<String, RecordState> readAliyunDnsRecords(DdnsTask task, List<String> types) throws Exception {
+        com.aliyun.alidns20150109.Client client = DnsClients.aliyun(task.getSecretId(), task.getSecretKey());
+        Map<String, RecordState> records = new HashMap<>();
         
-        com.aliyun.alidns20150109.models.DescribeDomainRecordsRequest listReq = 
-            new com.aliyun.alidns20150109.models.DescribeDomainRecordsRequest()
-                .setDomainName(task.getDomain())
-                .setRRKeyWord(task.getSubdomain())
-                .setType(recordType);
-        com.aliyun.alidns20150109.models.DescribeDomainRecordsResponse listResp = client.describeDomainRecords(listReq);
-        
-        if (listResp.getBody().getDomainRecords() != null && 
-            listResp.getBody().getDomainRecords().getRecord() != null) {
-            for (var record : listResp.getBody().getDomainRecords().getRecord()) {
-                if (task.getSubdomain().equals(record.getRR()) && recordType.equals(record.getType())) {
-                    return record.getValue();
+        for (var record : listAliyunRecords(task, client, types.size() == 1 ? types.get(0) : null)) {
+            if (types.contains(record.getType())) {
+                records.putIfAbsent(record.getType(), RecordState.of(record.getRecordId(), record.getValue()));
+            }
+        }
+        return records;
+    }
+    
+    /**
+     * 列出阿里云子域名下的记录（主机记录精确匹配，按页读完；type 为空时不按类型过滤）
+     * 默认的模糊匹配会带出 home2、myhome 等记录，目标记录可能落在第一页之外
+     */
+    private List<com.aliyun.alidns20150109.models.DescribeDomainRecordsResponseBody.DescribeDomainRecordsResponseBodyDomainRecordsRecord> listAliyunRecords(
+            DdnsTask task, com.aliyun.alidns20150109.Client client, String type) throws Exception {
+        List<com.aliyun.alidns20150109.models.DescribeDomainRecordsResponseBody.DescribeDomainRecordsResponseBodyDomainRecordsRecord> result = new ArrayList<>();
+        for (long page = 1; ; page++) {
+            com.aliyun.alidns20150109.models.DescribeDomainRecordsRequest listReq = 
+                new com.aliyun.alidns20150109.models.DescribeDomainRecordsRequest()
+                    .setDomainName(task.getDomain())
+                    .setRRKeyWord(task.getSubdomain())
+                    .setSearchMode("EXACT")
+                    .setPageNumber(page)
+                    .setPageSize(ALIYUN_PAGE_SIZE);
+            if (type != null) {
+                listReq.setType(type);
+            }
+            com.aliyun.alidns20150109.models.DescribeDomainRecordsResponse listResp = callProvider(task.getProvider(), "describe", () -> client.describeDomainRecords(listReq));
+            
+            var body = listResp.getBody();
+            if (body.getDomainRecords() == null || body.getDomainRecords().getRecord() == null
+                || body.getDomainRecords().getRecord().isEmpty()) {
+                return result;
+            }
+            for (var record : body.getDomainRecords().getRecord()) {
+                // 服务端不支持精确匹配时仍按主机记录过滤
+                if (task.getSubdomain().equals(record.getRR())) {
+                    result.add(record);
                 }
             }
+            if (body.getTotalCount() == null || page * ALIYUN_PAGE_SIZE >= body.getTotalCount()) {
+                return result;
+            }
         }
-        return null;
     }
     
     /**
@@ -452,16 +1840,35 @@ public class DdnsTaskService {
     private String fetchIPWithFallback(DdnsTask task) {
         boolean isIPv6 = "AAAA".equals(task.getRecordType());
         
+        // 前缀跟踪直接读取本地网卡，不回退到在线服务（在线服务只能得到本机地址）
+        if (PrefixTracker.isPrefixSource(task.getIpServiceUrl())) {
+            return detectPrefix(task.getIpServiceUrl());
+        }
+        
         // 1. 优先尝试用户选择的服务
-        String ip = fetchIP(task.getIpServiceUrl(), isIPv6);
+        String via = task.getSourceInterface();
+        String ip = fetchIP(task.getIpServiceUrl(), isIPv6, task.getId(), via);
         if (ip != null) {
             return ip;
         }
         
+        if (!ipFallbackEnabled) {
+            return null;
+        }
+        
         log.warn("首选IP服务不可用: {}，尝试备用服务", task.getIpServiceName());
         addOperationLog("warn", "[DDNS] " + task.getFullDomain() + " 首选服务 " + task.getIpServiceName() + " 不可用，切换备用服务");
         
-        // 2. 依次尝试内置服务（根据记录类型选择IPv4或IPv6服务）
+        // 2. 局域网网关（一跳即达，不经过公网）
+        if (!isIPv6 && gatewayFallbackEnabled && isBlank(via) && !GatewaySource.isGatewaySource(task.getIpServiceUrl())) {
+            ip = fetchIP(GatewaySource.AUTO, false, task.getId(), null);
+            if (ip != null) {
+                log.info("使用网关获取IP成功: {}", ip);
+                return ip;
+            }
+        }
+        
+        // 3. 依次尝试内置服务（根据记录类型选择IPv4或IPv6服务，沿用任务指定的出口）
         for (IP_SERVICES service : IP_SERVICES.values()) {
             // 跳过已尝试的服务
             if (service.getUrl().equals(task.getIpServiceUrl())) {
@@ -472,7 +1879,7 @@ public class DdnsTaskService {
                 continue;
             }
             
-            ip = fetchIP(service.getUrl(), isIPv6);
+            ip = fetchIP(service.getUrl(), isIPv6, task.getId(), via);
             if (ip != null) {
                 log.info("使用备用服务获取IP成功: {} -> {}", service.getName(), ip);
                 addOperationLog("info", "[DDNS] " + task.getFullDomain() + " 使用备用服务 " + service.getName() + " 获取IP: " + ip);
@@ -491,11 +1898,13 @@ public class DdnsTaskService {
         logEntry.put("time", LocalDateTime.now().format(formatter));
         logEntry.put("type", type);
         logEntry.put("message", message);
-        operationLogs.add(logEntry);
-        
-        // 保持日志数量不超过上限
-        while (operationLogs.size() > MAX_LOGS) {
-            operationLogs.remove(0);
+        synchronized (operationLogs) {
+            operationLogs.add(logEntry);
+            
+            // 保持日志数量不超过上限
+            while (operationLogs.size() > MAX_LOGS) {
+                operationLogs.remove(0);
+            }
         }
     }
     
@@ -503,10 +1912,13 @@ public class DdnsTaskService {
      * 获取操作日志（从指定索引开始）
      */
     public List<Map<String, String>> getOperationLogs(int fromIndex) {
-        if (fromIndex >= operationLogs.size()) {
-            return Collections.emptyList();
+        // 子列表视图需在锁内复制，否则并发裁剪时会抛出 ConcurrentModificationException
+        synchronized (operationLogs) {
+            if (fromIndex >= operationLogs.size()) {
+                return Collections.emptyList();
+            }
+            return new ArrayList<>(operationLogs.subList(fromIndex, operationLogs.size()));
         }
-        return new ArrayList<>(operationLogs.subList(fromIndex, operationLogs.size()));
     }
     
     /**
@@ -517,198 +1929,161 @@ public class DdnsTaskService {
     }
     
     /**
-     * 更新阿里云DNS
+     * 更新阿里云DNS：已读到记录则修改，否则创建
      */
-    private void updateAliyunDns(DdnsTask task, String ip) throws Exception {
-        com.aliyun.alidns20150109.Client client = createAliyunClient(task.getSecretId(), task.getSecretKey());
+    private void updateAliyunDns(DdnsTask task, String ip, RecordState existing) throws Exception {
+        com.aliyun.alidns20150109.Client client = DnsClients.aliyun(task.getSecretId(), task.getSecretKey());
         
         String recordType = task.getRecordType(); // A 或 AAAA
+        String recordId = existing != null ? existing.recordId() : null;
         
-        // 查找已存在的记录
-        String recordId = null;
+        DnsRecordWriteEvent event = new DnsRecordWriteEvent();
+        event.begin();
+        boolean success = false;
         try {
-            com.aliyun.alidns20150109.models.DescribeDomainRecordsRequest listReq = 
-                new com.aliyun.alidns20150109.models.DescribeDomainRecordsRequest()
-                    .setDomainName(task.getDomain())
-                    .setRRKeyWord(task.getSubdomain())
-                    .setType(recordType);
-            com.aliyun.alidns20150109.models.DescribeDomainRecordsResponse listResp = client.describeDomainRecords(listReq);
-            
-            if (listResp.getBody().getDomainRecords() != null && 
-                listResp.getBody().getDomainRecords().getRecord() != null) {
-                for (var record : listResp.getBody().getDomainRecords().getRecord()) {
-                    if (task.getSubdomain().equals(record.getRR()) && recordType.equals(record.getType())) {
-                        recordId = record.getRecordId();
-                        break;
-                    }
-                }
+            if (recordId != null) {
+                // 更新记录
+                com.aliyun.alidns20150109.models.UpdateDomainRecordRequest updateReq = 
+                    new com.aliyun.alidns20150109.models.UpdateDomainRecordRequest()
+                        .setRecordId(recordId)
+                        .setRR(task.getSubdomain())
+                        .setType(recordType)
+                        .setValue(ip);
+                callProvider(task.getProvider(), "modify", () -> client.updateDomainRecord(updateReq));
+            } else {
+                // 创建记录
+                com.aliyun.alidns20150109.models.AddDomainRecordRequest addReq = 
+                    new com.aliyun.alidns20150109.models.AddDomainRecordRequest()
+                        .setDomainName(task.getDomain())
+                        .setRR(task.getSubdomain())
+                        .setType(recordType)
+                        .setValue(ip);
+                callProvider(task.getProvider(), "create", () -> client.addDomainRecord(addReq));
             }
-        } catch (Exception e) {
-            log.debug("查询阿里云DNS记录失败: {}", e.getMessage());
-        }
-        
-        if (recordId != null) {
-            // 更新记录
-            com.aliyun.alidns20150109.models.UpdateDomainRecordRequest updateReq = 
-                new com.aliyun.alidns20150109.models.UpdateDomainRecordRequest()
-                    .setRecordId(recordId)
-                    .setRR(task.getSubdomain())
-                    .setType(recordType)
-                    .setValue(ip);
-            client.updateDomainRecord(updateReq);
-        } else {
-            // 创建记录
-            com.aliyun.alidns20150109.models.AddDomainRecordRequest addReq = 
-                new com.aliyun.alidns20150109.models.AddDomainRecordRequest()
-                    .setDomainName(task.getDomain())
-                    .setRR(task.getSubdomain())
-                    .setType(recordType)
-                    .setValue(ip);
-            client.addDomainRecord(addReq);
+            success = true;
+        } finally {
+            commitWriteEvent(event, task, recordId != null ? "modify" : "create", success);
         }
     }
     
     /**
-     * 创建阿里云DNS客户端
+     * 提交DNS记录写入事件
      */
-    private com.aliyun.alidns20150109.Client createAliyunClient(String accessKeyId, String accessKeySecret) throws Exception {
-        com.aliyun.teaopenapi.models.Config config = new com.aliyun.teaopenapi.models.Config()
-            .setAccessKeyId(accessKeyId)
-            .setAccessKeySecret(accessKeySecret)
-            .setEndpoint("alidns.cn-hangzhou.aliyuncs.com");
-        return new com.aliyun.alidns20150109.Client(config);
+    private void commitWriteEvent(DnsRecordWriteEvent event, DdnsTask task, String operation, boolean success) {
+        if (event.shouldCommit()) {
+            event.taskId = task.getId();
+            event.provider = task.getProvider();
+            event.domain = task.getFullDomain();
+            event.operation = operation;
+            event.outcome = success ? "success" : "failure";
+            event.commit();
+        }
     }
     
     /**
-     * 更新腾讯云DNS
+     * 更新腾讯云DNS：已读到记录则修改，否则创建
      */
-    private void updateTencentDns(DdnsTask task, String ip) throws Exception {
-        Credential cred = new Credential(task.getSecretId(), task.getSecretKey());
-        HttpProfile httpProfile = new HttpProfile();
-        httpProfile.setEndpoint("dnspod.tencentcloudapi.com");
-        ClientProfile clientProfile = new ClientProfile();
-        clientProfile.setHttpProfile(httpProfile);
-        DnspodClient client = new DnspodClient(cred, "", clientProfile);
+    private void updateTencentDns(DdnsTask task, String ip, RecordState existing) throws Exception {
+        DnspodClient client = DnsClients.tencent(task.getSecretId(), task.getSecretKey());
         
         String recordType = task.getRecordType(); // A 或 AAAA
+        Long recordId = existing != null ? Long.valueOf(existing.recordId()) : null;
         
-        // 查找已存在的记录
-        Long recordId = null;
+        DnsRecordWriteEvent event = new DnsRecordWriteEvent();
+        event.begin();
+        boolean success = false;
         try {
-            DescribeRecordListRequest listReq = new DescribeRecordListRequest();
-            listReq.setDomain(task.getDomain());
-            listReq.setSubdomain(task.getSubdomain());
-            DescribeRecordListResponse listResp = client.DescribeRecordList(listReq);
-            
-            if (listResp.getRecordList() != null && listResp.getRecordList().length > 0) {
-                for (RecordListItem record : listResp.getRecordList()) {
-                    if (recordType.equals(record.getType())) {
-                        recordId = record.getRecordId();
-                        break;
-                    }
-                }
+            if (recordId != null) {
+                // 更新记录
+                ModifyRecordRequest modifyReq = new ModifyRecordRequest();
+                modifyReq.setDomain(task.getDomain());
+                modifyReq.setRecordId(recordId);
+                modifyReq.setSubDomain(task.getSubdomain());
+                modifyReq.setRecordType(recordType);
+                modifyReq.setRecordLine("默认");
+                modifyReq.setValue(ip);
+                callProvider(task.getProvider(), "modify", () -> client.ModifyRecord(modifyReq));
+            } else {
+                // 创建记录
+                CreateRecordRequest createReq = new CreateRecordRequest();
+                createReq.setDomain(task.getDomain());
+                createReq.setSubDomain(task.getSubdomain());
+                createReq.setRecordType(recordType);
+                createReq.setRecordLine("默认");
+                createReq.setValue(ip);
+                callProvider(task.getProvider(), "create", () -> client.CreateRecord(createReq));
             }
-        } catch (Exception e) {
-            // 记录不存在
-        }
-        
-        if (recordId != null) {
-            // 更新记录
-            ModifyRecordRequest modifyReq = new ModifyRecordRequest();
-            modifyReq.setDomain(task.getDomain());
-            modifyReq.setRecordId(recordId);
-            modifyReq.setSubDomain(task.getSubdomain());
-            modifyReq.setRecordType(recordType);
-            modifyReq.setRecordLine("默认");
-            modifyReq.setValue(ip);
-            client.ModifyRecord(modifyReq);
-        } else {
-            // 创建记录
-            CreateRecordRequest createReq = new CreateRecordRequest();
-            createReq.setDomain(task.getDomain());
-            createReq.setSubDomain(task.getSubdomain());
-            createReq.setRecordType(recordType);
-            createReq.setRecordLine("默认");
-            createReq.setValue(ip);
-            client.CreateRecord(createReq);
+            success = true;
+        } finally {
+            commitWriteEvent(event, task, recordId != null ? "modify" : "create", success);
         }
     }
     
     /**
-     * 从URL获取IP
+     * 从本地网卡识别IPv6前缀，前缀变化通过地址变化总线通知（只按前缀判断，避免临时地址轮换触发执行）
      */
-    private String fetchIP(String urlStr, boolean isIPv6) {
-        try {
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(5000);
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36");
-            
-            try (BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = in.readLine()) != null) {
-                    response.append(line);
-                }
-                return isIPv6 ? extractIPv6(response.toString()) : extractIPv4(response.toString());
-            }
-        } catch (Exception e) {
-            log.debug("获取IP失败: {} - {}", urlStr, e.getMessage());
+    private String detectPrefix(String url) {
+        IpAddress address = PrefixTracker.detect(url);
+        if (address == null) {
+            log.debug("网卡无全局IPv6地址: {}", url);
+            return null;
         }
-        return null;
+        AddressChangeBus.observe(url, "ipv6", address.prefix(PrefixTracker.prefixLength(url)).toString());
+        return address.toString();
     }
     
     /**
-     * 从响应内容中提取IPv4地址
+     * 从URL获取IP，via 为出口网卡或源地址（多线路时指定经哪条线路查询，空为默认路由）
      */
-    private String extractIPv4(String content) {
-        if (content == null || content.isEmpty()) {
-            return null;
-        }
-        // 使用正则匹配IPv4地址
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("(\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3})");
-        java.util.regex.Matcher matcher = pattern.matcher(content);
-        if (matcher.find()) {
-            String ip = matcher.group(1);
-            // 验证IP格式有效性
-            String[] parts = ip.split("\\.");
-            for (String part : parts) {
-                int num = Integer.parseInt(part);
-                if (num < 0 || num > 255) {
-                    return null;
+    private String fetchIP(String urlStr, boolean isIPv6, String taskId, String via) {
+        IpProbeEvent event = new IpProbeEvent();
+        event.begin();
+        long start = System.nanoTime();
+        String source = WanInterfaces.sourceKey(urlStr, via);
+        String ip = null;
+        long bytesRead = 0;
+        try {
+            FaultInjector.beforeProbe(urlStr);
+            InetAddress local = WanInterfaces.localAddress(via, isIPv6);
+            if (GatewaySource.isGatewaySource(urlStr)) {
+                // 网关只提供默认线路的WAN口IPv4
+                ip = isIPv6 || local != null ? null : GatewaySource.lookup(urlStr);
+            } else if (StunClient.isStunSource(urlStr)) {
+                ip = StunClient.lookup(urlStr, isIPv6, local);
+            } else if (DnsWhoami.isDnsSource(urlStr)) {
+                ip = DnsWhoami.lookup(urlStr, isIPv6, local);
+            } else {
+                // 自定义服务按声明的方式提取，应答体只读到声明的上限
+                CustomIpService custom = DDNS.findCustomService(urlStr);
+                ProbeHttp.Reply reply = ProbeHttp.fetch(urlStr, local, isIPv6, PROBE_TIMEOUT_MS,
+                    custom != null ? custom.getLimit() : MAX_PROBE_BYTES);
+                bytesRead = reply.body().length;
+                if (custom != null) {
+                    ip = custom.extract(reply);
+                } else {
+                    String content = new String(reply.body(), StandardCharsets.UTF_8);
+                    // 统一为规范文本，格式无效视为失败
+                    IpAddress address = IpAddress.parse(isIPv6 ? DDNS.extractIPv6(content) : DDNS.extractIPv4(content));
+                    ip = address != null ? address.toString() : null;
                 }
             }
-            return ip;
-        }
-        return null;
-    }
-    
-    /**
-     * 从响应内容中提取IPv6地址
-     */
-    private String extractIPv6(String content) {
-        if (content == null || content.isEmpty()) {
-            return null;
+        } catch (Exception e) {
+            log.debug("获取IP失败: {} - {}", source, e.getMessage());
+        } finally {
+            DdnsMetrics.recordProbe(source, isIPv6, System.nanoTime() - start, ip != null);
+            if (event.shouldCommit()) {
+                event.taskId = taskId;
+                event.serviceUrl = source;
+                event.family = isIPv6 ? "ipv6" : "ipv4";
+                event.bytesRead = bytesRead;
+                event.outcome = ip != null ? "success" : "failure";
+                event.commit();
+            }
         }
-        // IPv6地址正则
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(
-            "([0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}|" +
-            "([0-9a-fA-F]{1,4}:){1,7}:|" +
-            "([0-9a-fA-F]{1,4}:){1,6}:[0-9a-fA-F]{1,4}|" +
-            "([0-9a-fA-F]{1,4}:){1,5}(:[0-9a-fA-F]{1,4}){1,2}|" +
-            "([0-9a-fA-F]{1,4}:){1,4}(:[0-9a-fA-F]{1,4}){1,3}|" +
-            "([0-9a-fA-F]{1,4}:){1,3}(:[0-9a-fA-F]{1,4}){1,4}|" +
-            "([0-9a-fA-F]{1,4}:){1,2}(:[0-9a-fA-F]{1,4}){1,5}|" +
-            "[0-9a-fA-F]{1,4}:((:[0-9a-fA-F]{1,4}){1,6})|" +
-            ":((:[0-9a-fA-F]{1,4}){1,7}|:)"
-        );
-        java.util.regex.Matcher matcher = pattern.matcher(content.trim());
-        if (matcher.find()) {
-            return matcher.group(0);
+        if (ip != null) {
+            AddressChangeBus.observe(source, isIPv6 ? "ipv6" : "ipv4", ip);
         }
-        return null;
+        return ip;
     }
     
     /**
@@ -724,13 +2099,12 @@ public class DdnsTaskService {
     /**
      * 加载任务
      */
-    private void loadTasks() {
-        File file = new File(TASKS_FILE);
-        if (!file.exists()) {
+    void loadTasks() {
+        if (!tasksFile.exists()) {
             return;
         }
         
-        try (Reader reader = new FileReader(file)) {
+        try (Reader reader = new FileReader(tasksFile)) {
             List<DdnsTask> list = gson.fromJson(reader, new TypeToken<List<DdnsTask>>(){}.getType());
             if (list != null) {
                 list.forEach(t -> tasks.put(t.getId(), t));
@@ -740,14 +2114,133 @@ public class DdnsTaskService {
         }
     }
     
+    /**
+     * 标记任务已变化并保存
+     */
+    private void saveTask(DdnsTask task) {
+        synchronized (changeIndex) {
+            changeIndex.remove(task.getVersion());
+            task.setVersion(storeVersion.incrementAndGet());
+            changeIndex.put(task.getVersion(), task.getId());
+        }
+        requestSave();
+    }
+    
+    /**
+     * 记录任务删除（墓碑）并保存
+     */
+    private void markDeleted(DdnsTask task) {
+        synchronized (changeIndex) {
+            changeIndex.remove(task.getVersion());
+            long version = storeVersion.incrementAndGet();
+            changeIndex.put(version, task.getId());
+            tombstones.add(version);
+            // 墓碑过多时丢弃最早的，早于该版本的增量请求需要全量重置
+            while (tombstones.size() > MAX_TOMBSTONES) {
+                long oldest = tombstones.poll();
+                changeIndex.remove(oldest);
+                compactedVersion = oldest;
+            }
+        }
+        requestSave();
+    }
+    
+    /**
+     * 延迟保存任务，合并短时间内的多次变更
+     */
+    private void requestSave() {
+        if (savePending.compareAndSet(false, true)) {
+            try {
+                scheduler.schedule(() -> {
+                    savePending.set(false);
+                    saveTasks();
+                }, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // 调度器已关闭，直接写入
+                savePending.set(false);
+                saveTasks();
+            }
+        }
+    }
+    
     /**
      * 保存任务
      */
-    private void saveTasks() {
-        try (Writer writer = new FileWriter(TASKS_FILE)) {
-            gson.toJson(new ArrayList<>(tasks.values()), writer);
+    synchronized void saveTasks() {
+        TaskStoreSaveEvent event = new TaskStoreSaveEvent();
+        event.begin();
+        List<DdnsTask> snapshot = new ArrayList<>(tasks.values());
+        boolean success = false;
+        try (Writer writer = new FileWriter(tasksFile)) {
+            gson.toJson(snapshot, writer);
+            success = true;
         } catch (Exception e) {
             log.error("保存DDNS任务失败", e);
+        } finally {
+            if (event.shouldCommit()) {
+                event.taskCount = snapshot.size();
+                event.bytesWritten = tasksFile.length();
+                event.outcome = success ? "success" : "failure";
+                event.commit();
+            }
+        }
+    }
+    
+    /**
+     * 一次任务执行的登记信息
+     */
+    private static class RunHandle {
+        final String taskId;
+        final String fullDomain;
+        final String provider;
+        volatile Thread thread;
+        volatile long startNanos;
+        volatile boolean timedOut;
+        boolean done;
+        // 该执行占用的单飞位置
+        volatile List<String> flightKeys;
+        volatile InFlightRun flight;
+        // 执行中的探测/读取/写入阶段线程
+        final Set<Thread> stages = ConcurrentHashMap.newKeySet();
+        
+        RunHandle(DdnsTask task) {
+            this.taskId = task.getId();
+            this.fullDomain = task.getFullDomain();
+            this.provider = task.getProvider();
+        }
+    }
+    
+    /**
+     * 进行中的执行（发起任务ID + 占用的记录 + 结果）
+     */
+    private record InFlightRun(String taskId, List<String> keys, CompletableFuture<Map<String, Object>> result) {
+    }
+    
+    /**
+     * 云服务商上的现有记录
+     */
+    private record RecordState(String recordId, String value, IpAddress address) {
+        static RecordState of(String recordId, String value) {
+            return new RecordState(recordId, value, IpAddress.parse(value));
+        }
+    }
+    
+    /**
+     * 一次执行的观测结果：本地公网IP + 现有记录（不存在为 null），deferred 表示新IP待确认暂不写入
+     */
+    private record Observation(IpAddress current, RecordState record, boolean deferred) {
+        /**
+         * 本地公网IP的规范文本
+         */
+        String currentIp() {
+            return current.toString();
+        }
+        
+        /**
+         * 按二进制值比较，服务商返回的文本格式（前导零、:: 压缩、大小写）不同不算变化
+         */
+        boolean isUnchanged() {
+            return record != null && current.equals(record.address());
         }
     }
 }
@@ -0,0 +1,85 @@
+package top.hanlin.publicipupload.util;
+
+import lombok.extern.slf4j.Slf4j;
+import top.hanlin.publicipupload.model.AddressChanged;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * IP地址变化事件总线
+ * 各IP来源（IP服务探测、本地网卡）上报观测到的地址，与上次观测不同时向订阅者发布 AddressChanged
+ */
+@Slf4j
+public final class AddressChangeBus {
+
+    // 来源|地址族 -> 最近一次观测（地址按规范二进制值保存与比较）
+    private static final Map<String, Sighting> lastSeen = new ConcurrentHashMap<>();
+    private static final List<Consumer<AddressChanged>> listeners = new CopyOnWriteArrayList<>();
+
+    private AddressChangeBus() {
+    }
+
+    /**
+     * 上报一次观测结果，与上次不同则发布变化事件；首次观测只记录不发布
+     *
+     * @return 是否发布了变化事件
+     */
+    public static boolean observe(String source, String family, String address) {
+        IpAddress parsed = IpAddress.parse(address);
+        if (source == null || parsed == null) {
+            return false;
+        }
+        Sighting old = lastSeen.put(source + "|" + family, new Sighting(parsed, System.currentTimeMillis()));
+        if (old == null || old.address().equals(parsed)) {
+            return false;
+        }
+        publish(new AddressChanged(source, family, old.address().toString(), parsed.toString()));
+        return true;
+    }
+
+    /**
+     * 统计最近 withinMs 毫秒内观测到该地址的不同来源数
+     */
+    public static int agreeingSources(String family, IpAddress address, long withinMs) {
+        long since = System.currentTimeMillis() - withinMs;
+        String suffix = "|" + family;
+        int count = 0;
+        for (Map.Entry<String, Sighting> entry : lastSeen.entrySet()) {
+            Sighting sighting = entry.getValue();
+            if (entry.getKey().endsWith(suffix) && sighting.atMillis() >= since && sighting.address().equals(address)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 发布变化事件，订阅者在发布线程中同步调用，应只做排队等轻量操作
+     */
+    public static void publish(AddressChanged event) {
+        DdnsMetrics.recordAddressChange(event.family(), event.isInterface() ? "interface" : "probe");
+        log.info("检测到IP变化: {} [{}] {} -> {}", event.source(), event.family(), event.oldAddress(), event.newAddress());
+        for (Consumer<AddressChanged> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                log.error("处理IP变化事件失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    public static void subscribe(Consumer<AddressChanged> listener) {
+        listeners.add(listener);
+    }
+
+    public static void unsubscribe(Consumer<AddressChanged> listener) {
+        listeners.remove(listener);
+    }
+
+    private record Sighting(IpAddress address, long atMillis) {
+    }
+}
@@ -0,0 +1,89 @@
+package top.hanlin.publicipupload.util;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 隔离舱：限制某类调用（如某服务商的记录写入）的并发数
+ * 满载时最多等待 maxWaitMs（延后），仍无空位则拒绝（丢弃本次执行）
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int limit;
+    private final long maxWaitMs;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(String name, int limit, long maxWaitMs) {
+        this.name = name;
+        this.limit = limit;
+        this.maxWaitMs = maxWaitMs;
+        this.permits = new Semaphore(limit);
+        DdnsMetrics.gauge("ddns.bulkhead.active", "隔离舱正在执行的调用数", this::getActive, "bulkhead", name);
+        DdnsMetrics.gauge("ddns.bulkhead.waiting", "隔离舱排队等待的调用数", waiting::get, "bulkhead", name);
+        DdnsMetrics.gauge("ddns.bulkhead.limit", "隔离舱并发上限", () -> limit, "bulkhead", name);
+    }
+
+    /**
+     * 在隔离舱内执行，满载超时抛出 BulkheadFullException
+     */
+    public <T> T call(Call<T> call) throws Exception {
+        if (!permits.tryAcquire()) {
+            waiting.incrementAndGet();
+            boolean acquired;
+            try {
+                acquired = maxWaitMs > 0 && permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+            } finally {
+                waiting.decrementAndGet();
+            }
+            if (!acquired) {
+                rejected.increment();
+                DdnsMetrics.recordBulkheadRejected(name);
+                throw new BulkheadFullException(name);
+            }
+        }
+        try {
+            return call.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getActive() {
+        return limit - permits.availablePermits();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws Exception;
+    }
+
+    /**
+     * 隔离舱已满
+     */
+    public static class BulkheadFullException extends Exception {
+        public BulkheadFullException(String name) {
+            super("隔离舱已满: " + name);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package top.hanlin.publicipupload.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 自定义IP服务定义：声明地址族、提取方式与应答体上限，注册时编译一次，每次查询复用
+ * <p>
+ * ip_services.txt 每行一个服务：URL|family=ipv4|mode=json|expr=/ip|limit=4096|name=ipinfo
+ * （参数值按URL编码，只写URL的旧格式按 IPv4、全文扫描处理）。提取方式：
+ * <ul>
+ *   <li>plain：应答体整体为地址</li>
+ *   <li>json：expr 为 JSON Pointer（如 /ip、/data/0/addr）</li>
+ *   <li>regex：expr 为正则，取第一个分组（没有分组时取整个匹配）</li>
+ *   <li>header：expr 为应答头名称（如 X-Client-IP），多个值取第一个</li>
+ *   <li>scan：在应答体中扫描第一个地址（旧格式的默认方式）</li>
+ * </ul>
+ */
+public final class CustomIpService {
+
+    public static final String DEFAULT_NAME = "自定义";
+    // 应答体上限：默认值与最大值
+    private static final int DEFAULT_LIMIT = 64 * 1024;
+    private static final int MAX_LIMIT = 1024 * 1024;
+
+    private final String url;
+    private final String name;
+    private final boolean ipv6;
+    private final String mode;
+    private final String expression;
+    private final int limit;
+    private final Extractor extractor;
+
+    private CustomIpService(String url, String name, boolean ipv6, String mode, String expression, int limit) {
+        this.url = url;
+        this.name = name;
+        this.ipv6 = ipv6;
+        this.mode = mode;
+        this.expression = expression;
+        this.limit = limit;
+        this.extractor = compile(mode, expression);
+    }
+
+    /**
+     * 创建服务定义，参数无效抛出 IllegalArgumentException
+     *
+     * @param family     ipv4 或 ipv6
+     * @param mode       plain、json、regex、header 或 scan
+     * @param expression JSON Pointer、正则或应答头名称（plain、scan 不需要）
+     * @param limit      读取的应答体字节数上限，0 为默认值（header 方式为0时不读取应答体）
+     */
+    public static CustomIpService of(String url, String name, String family, String mode, String expression, int limit) {
+        if (url == null || !(url.startsWith("http://") || url.startsWith("https://"))) {
+            throw new IllegalArgumentException("URL必须以 http:// 或 https:// 开头");
+        }
+        if (url.contains("|")) {
+            throw new IllegalArgumentException("URL不能包含 |");
+        }
+        String f = family == null || family.isBlank() ? "ipv4" : family.trim().toLowerCase(Locale.ROOT);
+        if (!"ipv4".equals(f) && !"ipv6".equals(f)) {
+            throw new IllegalArgumentException("地址族必须为 ipv4 或 ipv6: " + family);
+        }
+        String m = mode == null || mode.isBlank() ? "plain" : mode.trim().toLowerCase(Locale.ROOT);
+        if (limit < 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("应答体上限必须在 0~" + MAX_LIMIT + " 字节之间");
+        }
+        int l = limit > 0 || "header".equals(m) ? limit : DEFAULT_LIMIT;
+        String n = name == null || name.isBlank() ? DEFAULT_NAME : name.trim();
+        return new CustomIpService(url.trim(), n, "ipv6".equals(f), m, expression == null ? "" : expression, l);
+    }
+
+    /**
+     * 解析 ip_services.txt 中的一行，格式无效抛出 IllegalArgumentException
+     */
+    public static CustomIpService parse(String line) {
+        String[] parts = line.trim().split("\\|");
+        if (parts.length == 1) {
+            return of(parts[0], null, "ipv4", "scan", null, 0);
+        }
+        String name = null;
+        String family = null;
+        String mode = null;
+        String expression = null;
+        int limit = 0;
+        for (int i = 1; i < parts.length; i++) {
+            int eq = parts[i].indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("服务参数格式无效: " + parts[i]);
+            }
+            String value = URLDecoder.decode(parts[i].substring(eq + 1), StandardCharsets.UTF_8);
+            switch (parts[i].substring(0, eq).trim()) {
+                case "name" -> name = value;
+                case "family" -> family = value;
+                case "mode" -> mode = value;
+                case "expr" -> expression = value;
+                case "limit" -> {
+                    try {
+                        limit = Integer.parseInt(value.trim());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("应答体上限无效: " + value);
+                    }
+                }
+                default -> throw new IllegalArgumentException("未知的服务参数: " + parts[i]);
+            }
+        }
+        return of(parts[0], name, family, mode, expression, limit);
+    }
+
+    /**
+     * 写入 ip_services.txt 的一行
+     */
+    public String toLine() {
+        StringBuilder line = new StringBuilder(url)
+            .append("|family=").append(ipv6 ? "ipv6" : "ipv4")
+            .append("|mode=").append(mode);
+        if (!expression.isEmpty()) {
+            line.append("|expr=").append(URLEncoder.encode(expression, StandardCharsets.UTF_8));
+        }
+        line.append("|limit=").append(limit);
+        if (!DEFAULT_NAME.equals(name)) {
+            line.append("|name=").append(URLEncoder.encode(name, StandardCharsets.UTF_8));
+        }
+        return line.toString();
+    }
+
+    /**
+     * 从应答中提取地址（规范文本），没有所需地址族的地址返回 null
+     */
+    public String extract(ProbeHttp.Reply reply) {
+        IpAddress address = extractor.apply(reply);
+        return address != null && address.isIPv6() == ipv6 ? address.toString() : null;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isIPv6() {
+        return ipv6;
+    }
+
+    public String getFamily() {
+        return ipv6 ? "ipv6" : "ipv4";
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    private Extractor compile(String mode, String expression) {
+        return switch (mode) {
+            case "plain" -> reply -> IpAddress.parse(body(reply).trim());
+            case "scan" -> reply -> {
+                String body = body(reply);
+                return IpAddress.parse(ipv6 ? DDNS.extractIPv6(body) : DDNS.extractIPv4(body));
+            };
+            case "json" -> {
+                List<String> tokens = pointer(expression);
+                yield reply -> {
+                    JsonElement node;
+                    try {
+                        node = JsonParser.parseString(body(reply));
+                    } catch (JsonParseException e) {
+                        return null;
+                    }
+                    for (String token : tokens) {
+                        if (node.isJsonObject()) {
+                            node = node.getAsJsonObject().get(token);
+                        } else if (node.isJsonArray() && token.matches("\\d+") && Integer.parseInt(token) < node.getAsJsonArray().size()) {
+                            node = node.getAsJsonArray().get(Integer.parseInt(token));
+                        } else {
+                            return null;
+                        }
+                        if (node == null) {
+                            return null;
+                        }
+                    }
+                    return node.isJsonPrimitive() ? IpAddress.parse(node.getAsString().trim()) : null;
+                };
+            }
+            case "regex" -> {
+                Pattern pattern;
+                try {
+                    pattern = Pattern.compile(expression);
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("正则表达式无效: " + e.getDescription());
+                }
+                yield reply -> {
+                    Matcher matcher = pattern.matcher(body(reply));
+                    if (!matcher.find()) {
+                        return null;
+                    }
+                    String match = matcher.groupCount() >= 1 ? matcher.group(1) : matcher.group();
+                    return match != null ? IpAddress.parse(match.trim()) : null;
+                };
+            }
+            case "header" -> {
+                if (expression.isBlank()) {
+                    throw new IllegalArgumentException("header 方式需要填写应答头名称");
+                }
+                String header = expression.trim().toLowerCase(Locale.ROOT);
+                yield reply -> {
+                    String value = reply.headers().get(header);
+                    if (value == null) {
+                        return null;
+                    }
+                    int comma = value.indexOf(',');
+                    return IpAddress.parse((comma >= 0 ? value.substring(0, comma) : value).trim());
+                };
+            }
+            default -> throw new IllegalArgumentException("不支持的提取方式: " + mode);
+        };
+    }
+
+    /**
+     * JSON Pointer（RFC 6901）拆分为路径片段
+     */
+    private static List<String> pointer(String expression) {
+        if (expression.isEmpty()) {
+            return List.of();
+        }
+        if (!expression.startsWith("/")) {
+            throw new IllegalArgumentException("JSON Pointer 必须以 / 开头: " + expression);
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : expression.substring(1).split("/", -1)) {
+            tokens.add(token.replace("~1", "/").replace("~0", "~"));
+        }
+        return List.copyOf(tokens);
+    }
+
+    private static String body(ProbeHttp.Reply reply) {
+        return new String(reply.body(), StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface Extractor {
+        IpAddress apply(ProbeHttp.Reply reply);
+    }
+}
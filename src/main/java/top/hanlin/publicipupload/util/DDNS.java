@@ -4,16 +4,43 @@ import java.io.*;
 import java.net.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class DDNS {
 
-    // 自定义IP服务列表（从文件加载）
-    private static List<String> customServices = new ArrayList<>();
+    // 自定义IP服务列表（从文件加载，文件未变化时沿用已编译的定义）
+    private static volatile List<CustomIpService> customServices = List.of();
+    private static long customServicesModified = -1;
     private static final String CUSTOM_SERVICES_FILE = "ip_services.txt";
     
     // 本地网卡监控列表 (格式: interfaceName|ipType)
     private static List<String> localInterfaceMonitors = new ArrayList<>();
     private static final String LOCAL_INTERFACES_FILE = "local_interfaces.txt";
+    // 内置公共STUN服务器
+    private static final String STUN_SERVERS = "stun://stun.cloudflare.com:3478,stun.l.google.com:19302";
+    // 内置DNS查询来源
+    private static final String DNS_WHOAMI_V4 = "dns://resolver1.opendns.com/myip.opendns.com?type=A";
+    private static final String DNS_WHOAMI_V6 = "dns://resolver1.opendns.com/myip.opendns.com?type=AAAA";
+    // Linux IPv6地址表（地址 网卡序号 前缀长度 作用域 标志 网卡名），标志中的临时地址与已弃用位
+    private static final String IF_INET6_FILE = "/proc/net/if_inet6";
+    private static final int IFA_F_TEMPORARY = 0x01;
+    private static final int IFA_F_DEPRECATED = 0x20;
+
+    // IPv4地址正则
+    private static final Pattern IPV4_PATTERN = Pattern.compile("(\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3})");
+    // IPv6地址正则：匹配标准IPv6格式
+    private static final Pattern IPV6_PATTERN = Pattern.compile(
+        "([0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}|" +  // 完整格式
+        "([0-9a-fA-F]{1,4}:){1,7}:|" +                // 末尾省略
+        "([0-9a-fA-F]{1,4}:){1,6}:[0-9a-fA-F]{1,4}|" +
+        "([0-9a-fA-F]{1,4}:){1,5}(:[0-9a-fA-F]{1,4}){1,2}|" +
+        "([0-9a-fA-F]{1,4}:){1,4}(:[0-9a-fA-F]{1,4}){1,3}|" +
+        "([0-9a-fA-F]{1,4}:){1,3}(:[0-9a-fA-F]{1,4}){1,4}|" +
+        "([0-9a-fA-F]{1,4}:){1,2}(:[0-9a-fA-F]{1,4}){1,5}|" +
+        "[0-9a-fA-F]{1,4}:((:[0-9a-fA-F]{1,4}){1,6})|" +
+        ":((:[0-9a-fA-F]{1,4}){1,7}|:)"              // ::开头
+    );
 
     static {
         loadCustomServices();
@@ -23,22 +50,45 @@ public class DDNS {
     /**
      * 加载自定义IP服务列表
      */
-    public static void loadCustomServices() {
-        customServices.clear();
+    public static synchronized void loadCustomServices() {
         File file = new File(CUSTOM_SERVICES_FILE);
+        long modified = file.exists() ? file.lastModified() : 0;
+        if (modified == customServicesModified) {
+            return;
+        }
+        List<CustomIpService> loaded = new ArrayList<>();
         if (file.exists()) {
             try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
                 String line;
                 while ((line = reader.readLine()) != null) {
                     line = line.trim();
                     if (!line.isEmpty() && !line.startsWith("#")) {
-                        customServices.add(line);
+                        try {
+                            loaded.add(CustomIpService.parse(line));
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("自定义IP服务格式无效 [" + line + "]: " + e.getMessage());
+                        }
                     }
                 }
             } catch (IOException e) {
                 System.err.println("加载自定义IP服务失败: " + e.getMessage());
             }
         }
+        customServices = List.copyOf(loaded);
+        customServicesModified = modified;
+    }
+
+    /**
+     * 按URL查找自定义IP服务，不是自定义服务返回 null
+     */
+    public static CustomIpService findCustomService(String url) {
+        loadCustomServices();
+        for (CustomIpService service : customServices) {
+            if (service.getUrl().equals(url)) {
+                return service;
+            }
+        }
+        return null;
     }
 
     /**
@@ -96,24 +146,34 @@ public class DDNS {
         if (url == null || url.trim().isEmpty()) {
             return false;
         }
-        url = url.trim();
-        
+        try {
+            return addCustomService(CustomIpService.parse(url.trim()));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 添加自定义IP服务（已编译的定义）
+     */
+    public static synchronized boolean addCustomService(CustomIpService service) {
         // 检查是否已存在
-        if (customServices.contains(url)) {
+        if (findCustomService(service.getUrl()) != null) {
             return false;
         }
         
-        // 添加到列表
-        customServices.add(url);
-        
         // 保存到文件
         try (FileWriter writer = new FileWriter(CUSTOM_SERVICES_FILE, true)) {
-            writer.write(url + "\n");
-            return true;
+            writer.write(service.toLine() + "\n");
         } catch (IOException e) {
             System.err.println("保存自定义IP服务失败: " + e.getMessage());
             return false;
         }
+        List<CustomIpService> updated = new ArrayList<>(customServices);
+        updated.add(service);
+        customServices = List.copyOf(updated);
+        customServicesModified = new File(CUSTOM_SERVICES_FILE).lastModified();
+        return true;
     }
 
     /**
@@ -132,14 +192,41 @@ public class DDNS {
             services.add(item);
         }
         
+        // 添加局域网网关（UPnP/NAT-PMP/PCP 查询WAN口地址）
+        Map<String, String> gateway = new HashMap<>();
+        gateway.put("name", "路由器网关");
+        gateway.put("url", GatewaySource.AUTO);
+        gateway.put("type", "gateway");
+        gateway.put("ipType", "ipv4");
+        services.add(gateway);
+        
+        // 添加公共STUN服务器（一次UDP往返）
+        Map<String, String> stun = new HashMap<>();
+        stun.put("name", "STUN");
+        stun.put("url", STUN_SERVERS);
+        stun.put("type", "stun");
+        stun.put("ipType", "ipv4");
+        services.add(stun);
+        
+        // 添加DNS查询来源（OpenDNS 对 myip.opendns.com 返回查询方地址）
+        for (String family : new String[]{"ipv4", "ipv6"}) {
+            Map<String, String> dns = new HashMap<>();
+            dns.put("name", "OpenDNS");
+            dns.put("url", "ipv4".equals(family) ? DNS_WHOAMI_V4 : DNS_WHOAMI_V6);
+            dns.put("type", "dns");
+            dns.put("ipType", family);
+            services.add(dns);
+        }
+        
         // 添加自定义服务
-        loadCustomServices(); // 重新加载
-        for (String url : customServices) {
+        loadCustomServices(); // 文件变化时重新加载
+        for (CustomIpService custom : customServices) {
             Map<String, String> item = new HashMap<>();
-            item.put("name", "自定义");
-            item.put("url", url);
+            item.put("name", custom.getName());
+            item.put("url", custom.getUrl());
             item.put("type", "custom");
-            item.put("ipType", "ipv4"); // 自定义默认为IPv4
+            item.put("ipType", custom.getFamily());
+            item.put("mode", custom.getMode());
             services.add(item);
         }
         
@@ -324,6 +411,62 @@ public class DDNS {
         return results;
     }
     
+    /**
+     * 多线路：经每个出口网卡分别查询公网IP（每个网卡、每个地址族依次尝试内置服务，取第一个成功的结果）
+     */
+    public static List<Map<String, String>> getWanPublicIPs() {
+        List<Map<String, String>> results = new ArrayList<>();
+        List<Future<Map<String, String>>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Map.Entry<String, List<String>> entry : WanInterfaces.list().entrySet()) {
+                for (String family : entry.getValue()) {
+                    futures.add(executor.submit(() -> probeWan(entry.getKey(), "ipv6".equals(family))));
+                }
+            }
+            for (Future<Map<String, String>> future : futures) {
+                try {
+                    results.add(future.get(30, TimeUnit.SECONDS));
+                } catch (Exception e) {
+                    // 超时或异常
+                }
+            }
+        }
+        return results;
+    }
+
+    private static Map<String, String> probeWan(String interfaceName, boolean isIPv6) {
+        Map<String, String> result = new HashMap<>();
+        result.put("name", interfaceName);
+        result.put("ipType", isIPv6 ? "ipv6" : "ipv4");
+        result.put("ip", "");
+        result.put("status", "failed");
+        try {
+            InetAddress local = WanInterfaces.localAddress(interfaceName, isIPv6);
+            result.put("localAddress", local.getHostAddress());
+            for (IP_SERVICES service : IP_SERVICES.values()) {
+                if (!service.getType().equals(result.get("ipType"))) {
+                    continue;
+                }
+                try {
+                    String content = new String(ProbeHttp.get(service.getUrl(), local, isIPv6, 5000, 64 * 1024)).trim();
+                    String ip = isIPv6 ? extractIPv6(content) : extractIPv4(content);
+                    if (ip != null) {
+                        result.put("ip", ip);
+                        result.put("status", "success");
+                        result.put("service", service.getName());
+                        result.remove("error");
+                        break;
+                    }
+                } catch (IOException e) {
+                    result.put("error", service.getName() + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            result.put("error", e.getMessage());
+        }
+        return result;
+    }
+
     /**
      * 获取用户监控的本地网卡IP
      */
@@ -389,50 +532,54 @@ public class DDNS {
      * 从指定URL获取IP
      */
     private static String fetchIP(String urlStr, int timeout, boolean isIPv6) {
+        long start = System.nanoTime();
+        String ip = null;
         try {
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setConnectTimeout(timeout);
-            conn.setReadTimeout(timeout);
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("User-Agent", "curl/7.64.1");
-            conn.setRequestProperty("Accept", "text/plain");
-            
-            try (BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = in.readLine()) != null) {
-                    response.append(line);
-                }
-                String content = response.toString().trim();
-                // 先尝试直接返回（如果是纯IP）
-                if (isIPv6) {
-                    String ip = extractIPv6(content);
-                    // 如果提取失败，尝试直接使用内容（某些服务直接返回纯IP）
-                    if (ip == null && content.contains(":") && !content.contains("<")) {
-                        return content.trim();
-                    }
-                    return ip;
-                } else {
-                    return extractIPv4(content);
+            if (GatewaySource.isGatewaySource(urlStr)) {
+                ip = isIPv6 ? null : GatewaySource.lookup(urlStr);
+                return ip;
+            }
+            if (StunClient.isStunSource(urlStr)) {
+                ip = StunClient.lookup(urlStr, isIPv6);
+                return ip;
+            }
+            if (DnsWhoami.isDnsSource(urlStr)) {
+                ip = DnsWhoami.lookup(urlStr, isIPv6);
+                return ip;
+            }
+            CustomIpService custom = findCustomService(urlStr);
+            if (custom != null) {
+                ip = custom.extract(ProbeHttp.fetch(urlStr, null, isIPv6, timeout, custom.getLimit()));
+                return ip;
+            }
+            String content = new String(ProbeHttp.get(urlStr, null, isIPv6, timeout, 64 * 1024)).trim();
+            // 先尝试直接返回（如果是纯IP）
+            if (isIPv6) {
+                ip = extractIPv6(content);
+                // 如果提取失败，尝试直接使用内容（某些服务直接返回纯IP）
+                if (ip == null && content.contains(":") && !content.contains("<")) {
+                    ip = content.trim();
                 }
+            } else {
+                ip = extractIPv4(content);
             }
         } catch (Exception e) {
             System.err.println("获取IP失败 [" + urlStr + "]: " + e.getMessage());
+        } finally {
+            DdnsMetrics.recordProbe(urlStr, isIPv6, System.nanoTime() - start, ip != null);
         }
-        return null;
+        return ip;
     }
     
     /**
      * 从响应内容中提取IPv4地址
      */
-    private static String extractIPv4(String content) {
+    public static String extractIPv4(String content) {
         if (content == null || content.isEmpty()) {
             return null;
         }
         // 使用正则匹配IPv4地址
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("(\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3})");
-        java.util.regex.Matcher matcher = pattern.matcher(content);
+        Matcher matcher = IPV4_PATTERN.matcher(content);
         if (matcher.find()) {
             String ip = matcher.group(1);
             // 验证IP格式有效性
@@ -447,27 +594,15 @@ public class DDNS {
         }
         return null;
     }
-    
+
     /**
      * 从响应内容中提取IPv6地址
      */
-    private static String extractIPv6(String content) {
+    public static String extractIPv6(String content) {
         if (content == null || content.isEmpty()) {
             return null;
         }
-        // IPv6地址正则：匹配标准IPv6格式
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(
-            "([0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}|" +  // 完整格式
-            "([0-9a-fA-F]{1,4}:){1,7}:|" +                // 末尾省略
-            "([0-9a-fA-F]{1,4}:){1,6}:[0-9a-fA-F]{1,4}|" +
-            "([0-9a-fA-F]{1,4}:){1,5}(:[0-9a-fA-F]{1,4}){1,2}|" +
-            "([0-9a-fA-F]{1,4}:){1,4}(:[0-9a-fA-F]{1,4}){1,3}|" +
-            "([0-9a-fA-F]{1,4}:){1,3}(:[0-9a-fA-F]{1,4}){1,4}|" +
-            "([0-9a-fA-F]{1,4}:){1,2}(:[0-9a-fA-F]{1,4}){1,5}|" +
-            "[0-9a-fA-F]{1,4}:((:[0-9a-fA-F]{1,4}){1,6})|" +
-            ":((:[0-9a-fA-F]{1,4}){1,7}|:)"              // ::开头
-        );
-        java.util.regex.Matcher matcher = pattern.matcher(content.trim());
+        Matcher matcher = IPV6_PATTERN.matcher(content.trim());
         if (matcher.find()) {
             return matcher.group(0);
         }
@@ -621,4 +756,85 @@ public class DDNS {
         
         return results;
     }
+
+    /**
+     * 获取各网卡当前的全局地址，键为 网卡名|地址族（ipv4/ipv6），值为排序后逗号分隔的地址
+     * 跳过回环、未启用网卡以及链路本地、内网（含IPv6 ULA）地址，供网卡地址变化检测使用；
+     * 临时（隐私扩展）与已弃用的IPv6地址会定期轮换或属于旧前缀，同样跳过
+     */
+    public static Map<String, String> getInterfaceAddresses() {
+        Map<String, String> results = new TreeMap<>();
+        Set<String> unstable = unstableIPv6Addresses();
+        try {
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            while (interfaces.hasMoreElements()) {
+                NetworkInterface ni = interfaces.nextElement();
+                if (ni.isLoopback() || !ni.isUp()) {
+                    continue;
+                }
+                Set<String> ipv4 = new TreeSet<>();
+                Set<String> ipv6 = new TreeSet<>();
+                for (InetAddress addr : Collections.list(ni.getInetAddresses())) {
+                    if (addr.isLinkLocalAddress() || addr.isLoopbackAddress() || addr.isSiteLocalAddress()) {
+                        continue;
+                    }
+                    // IPv6 唯一本地地址 fc00::/7
+                    if (addr instanceof Inet6Address && (addr.getAddress()[0] & 0xfe) == 0xfc) {
+                        continue;
+                    }
+                    String ip = addr.getHostAddress();
+                    int scopeIdx = ip.indexOf('%');
+                    if (scopeIdx > 0) {
+                        ip = ip.substring(0, scopeIdx);
+                    }
+                    ip = IpAddress.canonical(ip);
+                    if (addr instanceof Inet6Address && unstable.contains(ip)) {
+                        continue;
+                    }
+                    (addr instanceof Inet6Address ? ipv6 : ipv4).add(ip);
+                }
+                if (!ipv4.isEmpty()) {
+                    results.put(ni.getName() + "|ipv4", String.join(",", ipv4));
+                }
+                if (!ipv6.isEmpty()) {
+                    results.put(ni.getName() + "|ipv6", String.join(",", ipv6));
+                }
+            }
+        } catch (SocketException e) {
+            System.err.println("获取网卡地址失败: " + e.getMessage());
+        }
+        return results;
+    }
+
+    /**
+     * 临时与已弃用的IPv6地址（规范文本），JDK不提供地址标志，从 /proc/net/if_inet6 读取；非Linux系统返回空集合
+     */
+    static Set<String> unstableIPv6Addresses() {
+        File file = new File(IF_INET6_FILE);
+        if (!file.canRead()) {
+            return Set.of();
+        }
+        Set<String> results = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length < 6 || parts[0].length() != 32) {
+                    continue;
+                }
+                int flags = Integer.parseInt(parts[4], 16);
+                if ((flags & (IFA_F_TEMPORARY | IFA_F_DEPRECATED)) == 0) {
+                    continue;
+                }
+                byte[] bytes = new byte[16];
+                for (int i = 0; i < 16; i++) {
+                    bytes[i] = (byte) Integer.parseInt(parts[0].substring(i * 2, i * 2 + 2), 16);
+                }
+                results.add(IpAddress.fromBytes(bytes, 0, 16).toString());
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("读取IPv6地址标志失败: " + e.getMessage());
+        }
+        return results;
+    }
 }
@@ -0,0 +1,177 @@
+package top.hanlin.publicipupload.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * DDNS引擎监控指标（Micrometer）
+ * 注册到全局注册表，Spring Boot 会将其桥接到 Prometheus 端点；未启用监控时为空操作
+ */
+public final class DdnsMetrics {
+
+    private static final MeterRegistry registry = Metrics.globalRegistry;
+
+    private DdnsMetrics() {
+    }
+
+    /**
+     * IP服务探测耗时（按服务、地址族、结果）
+     */
+    public static void recordProbe(String serviceUrl, boolean isIPv6, long nanos, boolean success) {
+        Timer.builder("ddns.ip.probe")
+                .description("IP服务探测耗时")
+                .tag("service", serviceUrl == null ? "unknown" : serviceUrl)
+                .tag("family", isIPv6 ? "ipv6" : "ipv4")
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 云服务商API调用耗时（按服务商、操作: describe/modify/create/delete、结果）
+     */
+    public static void recordProviderCall(String provider, String operation, long nanos, boolean success) {
+        Timer.builder("ddns.provider.call")
+                .description("云服务商DNS API调用耗时")
+                .tag("provider", provider == null ? "unknown" : provider)
+                .tag("operation", operation)
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 任务执行耗时（结果: updated/unchanged/failed）
+     */
+    public static void recordTaskRun(String provider, String outcome, long nanos) {
+        Timer.builder("ddns.task.run")
+                .description("DDNS任务单次执行耗时")
+                .tag("provider", provider == null ? "unknown" : provider)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 实际修改了DNS记录的次数（按服务商、记录类型）
+     */
+    public static void recordRecordChange(String provider, String recordType) {
+        Counter.builder("ddns.record.changes")
+                .description("实际写入DNS记录的次数")
+                .tag("provider", provider == null ? "unknown" : provider)
+                .tag("type", recordType)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 注入的故障次数（按注入点、故障类型）
+     */
+    public static void recordFault(String target, String type) {
+        Counter.builder("ddns.faults.injected")
+                .description("故障注入触发次数")
+                .tag("target", target)
+                .tag("type", type)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 隔离舱满载被拒绝的调用次数
+     */
+    public static void recordBulkheadRejected(String bulkhead) {
+        Counter.builder("ddns.bulkhead.rejected")
+                .description("隔离舱满载被拒绝的调用次数")
+                .tag("bulkhead", bulkhead)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 因同一记录已有执行在进行而共享结果的触发次数
+     */
+    public static void recordSharedRun(String provider) {
+        Counter.builder("ddns.runs.shared")
+                .description("等待并共享进行中执行结果的触发次数")
+                .tag("provider", provider == null ? "unknown" : provider)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 超时被取消或卡死被回收的任务执行次数
+     */
+    public static void recordStuckRun(String provider, String action) {
+        Counter.builder("ddns.runs.stuck")
+                .description("超过执行时限被取消(cancelled)或卡死被回收(recycled)的任务执行次数")
+                .tag("provider", provider == null ? "unknown" : provider)
+                .tag("action", action)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 检测到的IP地址变化次数（按地址族、来源类型: probe/interface）
+     */
+    public static void recordAddressChange(String family, String sourceKind) {
+        Counter.builder("ddns.address.changes")
+                .description("IP来源上报的地址变化次数")
+                .tag("family", family)
+                .tag("source", sourceKind)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 因IP变化事件立即触发的任务执行次数
+     */
+    public static void recordEventTriggeredRun(String provider) {
+        Counter.builder("ddns.runs.event_triggered")
+                .description("因IP变化事件立即触发的任务执行次数")
+                .tag("provider", provider == null ? "unknown" : provider)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 抖动抑制次数（stage: deferred 新地址待确认暂不写入 / discarded 待确认地址未获确认即被放弃）
+     */
+    public static void recordFlapSuppressed(String family, String stage) {
+        Counter.builder("ddns.flaps.suppressed")
+                .description("抖动抑制：暂缓写入(deferred)与放弃的未确认地址(discarded)次数")
+                .tag("family", family)
+                .tag("stage", stage)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 定时调度延迟（实际执行时间 - 计划执行时间）
+     */
+    public static void recordScheduleLag(long nanos) {
+        Timer.builder("ddns.schedule.lag")
+                .description("定时任务实际执行相对计划时间的延迟")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(Math.max(nanos, 0), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 注册队列深度等瞬时值
+     */
+    public static void gauge(String name, String description, Supplier<Number> value, String... tags) {
+        Gauge.builder(name, value)
+                .description(description)
+                .tags(tags)
+                .register(registry);
+    }
+}
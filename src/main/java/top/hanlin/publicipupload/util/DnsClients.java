@@ -0,0 +1,80 @@
+package top.hanlin.publicipupload.util;
+
+import com.tencentcloudapi.common.Credential;
+import com.tencentcloudapi.common.profile.ClientProfile;
+import com.tencentcloudapi.common.profile.HttpProfile;
+import com.tencentcloudapi.dnspod.v20210323.DnspodClient;
+
+/**
+ * 云解析SDK客户端工厂
+ * 接口地址可通过系统属性覆盖（如 -Dddns.dnspod.endpoint=http://127.0.0.1:18080），用于本地压测替身
+ */
+public final class DnsClients {
+
+    private static final String DNSPOD_ENDPOINT = "dnspod.tencentcloudapi.com";
+    private static final String ALIDNS_ENDPOINT = "alidns.cn-hangzhou.aliyuncs.com";
+
+    // 连接/读取超时（毫秒），避免挂起的连接长期占用执行线程
+    private static volatile int connectTimeoutMs = 5000;
+    private static volatile int readTimeoutMs = 10000;
+
+    private DnsClients() {
+    }
+
+    /**
+     * 设置SDK调用的连接/读取超时（毫秒）
+     */
+    public static void setTimeouts(int connectTimeoutMs, int readTimeoutMs) {
+        if (connectTimeoutMs <= 0 || readTimeoutMs <= 0) {
+            throw new IllegalArgumentException("超时时间必须大于0");
+        }
+        DnsClients.connectTimeoutMs = connectTimeoutMs;
+        DnsClients.readTimeoutMs = readTimeoutMs;
+    }
+
+    /**
+     * 创建腾讯云 DnspodClient
+     */
+    public static DnspodClient tencent(String secretId, String secretKey) {
+        Credential cred = new Credential(secretId, secretKey);
+        HttpProfile httpProfile = new HttpProfile();
+        String endpoint = System.getProperty("ddns.dnspod.endpoint", DNSPOD_ENDPOINT);
+        if (endpoint.startsWith("http://")) {
+            httpProfile.setProtocol(HttpProfile.REQ_HTTP);
+        }
+        httpProfile.setEndpoint(stripScheme(endpoint));
+        // 腾讯云SDK超时单位为秒
+        httpProfile.setConnTimeout(toSeconds(connectTimeoutMs));
+        httpProfile.setReadTimeout(toSeconds(readTimeoutMs));
+        httpProfile.setWriteTimeout(toSeconds(readTimeoutMs));
+        ClientProfile clientProfile = new ClientProfile();
+        clientProfile.setHttpProfile(httpProfile);
+        return new DnspodClient(cred, "", clientProfile);
+    }
+
+    /**
+     * 创建阿里云DNS客户端
+     */
+    public static com.aliyun.alidns20150109.Client aliyun(String accessKeyId, String accessKeySecret) throws Exception {
+        String endpoint = System.getProperty("ddns.alidns.endpoint", ALIDNS_ENDPOINT);
+        com.aliyun.teaopenapi.models.Config config = new com.aliyun.teaopenapi.models.Config()
+            .setAccessKeyId(accessKeyId)
+            .setAccessKeySecret(accessKeySecret)
+            .setEndpoint(stripScheme(endpoint))
+            .setConnectTimeout(connectTimeoutMs)
+            .setReadTimeout(readTimeoutMs);
+        if (endpoint.startsWith("http://")) {
+            config.setProtocol("HTTP");
+        }
+        return new com.aliyun.alidns20150109.Client(config);
+    }
+
+    private static int toSeconds(int millis) {
+        return Math.max(1, (millis + 999) / 1000);
+    }
+
+    private static String stripScheme(String endpoint) {
+        int idx = endpoint.indexOf("://");
+        return idx >= 0 ? endpoint.substring(idx + 3) : endpoint;
+    }
+}
@@ -0,0 +1,321 @@
+package top.hanlin.publicipupload.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 通过DNS查询获取本机公网地址：部分解析服务器对特殊域名返回查询方的地址
+ * （如 myip.opendns.com 的 A/AAAA 记录、o-o.myaddr.l.google.com 与 whoami.cloudflare 的 TXT 记录）
+ * <p>
+ * 来源地址格式：dns://服务器[:端口]/域名?type=A|AAAA|TXT&class=IN|CH
+ * 例：dns://resolver1.opendns.com/myip.opendns.com?type=A、dns://1.1.1.1/whoami.cloudflare?type=TXT&class=CH
+ * 查询走与任务地址族相同的传输（IPv4任务经IPv4发往服务器，IPv6任务经IPv6），未指定 type 时按地址族取 A/AAAA。
+ * 一次UDP往返，请求与应答共用一块512字节缓冲区，应答在缓冲区内直接解析，不构建中间对象
+ */
+@Slf4j
+public final class DnsWhoami {
+
+    public static final String SCHEME = "dns://";
+
+    private static final int DEFAULT_PORT = 53;
+    private static final int TYPE_A = 1;
+    private static final int TYPE_TXT = 16;
+    private static final int TYPE_AAAA = 28;
+    private static final int CLASS_IN = 1;
+    private static final int CLASS_CH = 3;
+    private static final int MAX_PACKET = 512;
+
+    private static volatile int timeoutMs = 1000;
+
+    // 来源地址 -> 解析后的查询参数
+    private static final Map<String, Query> queries = new ConcurrentHashMap<>();
+
+    private DnsWhoami() {
+    }
+
+    /**
+     * 设置应答超时（毫秒），超时后重试一次
+     */
+    public static void setTimeoutMs(int timeoutMs) {
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException("超时时间必须大于0");
+        }
+        DnsWhoami.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * 是否为DNS来源
+     */
+    public static boolean isDnsSource(String url) {
+        return url != null && url.startsWith(SCHEME);
+    }
+
+    /**
+     * 查询本机公网地址（规范文本），无应答或应答中没有所需地址族的地址返回 null
+     */
+    public static String lookup(String url, boolean isIPv6) {
+        return lookup(url, isIPv6, null);
+    }
+
+    /**
+     * 从指定本地地址（多线路出口）查询，localAddress 为 null 时按默认路由
+     */
+    public static String lookup(String url, boolean isIPv6, InetAddress localAddress) {
+        Query query = queries.computeIfAbsent(url, DnsWhoami::parse);
+        InetSocketAddress server = server(query, isIPv6);
+        if (server == null) {
+            return null;
+        }
+        int type = query.type != 0 ? query.type : isIPv6 ? TYPE_AAAA : TYPE_A;
+        byte[] buffer = new byte[MAX_PACKET];
+        // 已发出的查询ID：重试后仍接受上一次查询的迟到应答
+        int[] ids = new int[2];
+        try (DatagramSocket socket = new DatagramSocket(new InetSocketAddress(localAddress, 0))) {
+            socket.connect(server);
+            int timeout = timeoutMs;
+            for (int attempt = 0; attempt < 2; attempt++, timeout *= 2) {
+                ids[attempt] = ThreadLocalRandom.current().nextInt(0x10000);
+                int length = encode(buffer, ids[attempt], query.name, type, query.dnsClass);
+                socket.send(new DatagramPacket(buffer, length));
+                long deadline = System.nanoTime() + timeout * 1_000_000L;
+                while (true) {
+                    long remaining = (deadline - System.nanoTime()) / 1_000_000L;
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    socket.setSoTimeout((int) remaining);
+                    DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                    try {
+                        socket.receive(packet);
+                    } catch (SocketTimeoutException e) {
+                        break;
+                    }
+                    // 来源、ID或问题不一致的报文（伪造或过期的应答）丢弃，继续等待到本次超时
+                    if (!server.equals(packet.getSocketAddress())
+                        || !matches(buffer, packet.getLength(), ids, attempt + 1, query, type)) {
+                        log.debug("丢弃不匹配的DNS应答: {} 来自 {}", url, packet.getSocketAddress());
+                        continue;
+                    }
+                    IpAddress address = decode(buffer, packet.getLength(), type, isIPv6);
+                    return address != null ? address.toString() : null;
+                }
+            }
+        } catch (IOException e) {
+            log.debug("DNS查询失败: {} - {}", url, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 校验来源地址格式，无效抛出 IllegalArgumentException
+     */
+    public static void validate(String url) {
+        queries.computeIfAbsent(url, DnsWhoami::parse);
+    }
+
+    /**
+     * 解析来源地址，格式无效抛出 IllegalArgumentException
+     */
+    static Query parse(String url) {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("DNS来源格式无效: " + url);
+        }
+        String host = uri.getHost();
+        String path = uri.getPath();
+        if (host == null || path == null || path.length() <= 1) {
+            throw new IllegalArgumentException("DNS来源需包含服务器与域名: " + url);
+        }
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        int type = 0;
+        int dnsClass = CLASS_IN;
+        if (uri.getQuery() != null) {
+            for (String pair : uri.getQuery().split("&")) {
+                int eq = pair.indexOf('=');
+                String key = eq >= 0 ? pair.substring(0, eq) : pair;
+                String value = eq >= 0 ? pair.substring(eq + 1).toUpperCase() : "";
+                if ("type".equalsIgnoreCase(key)) {
+                    type = switch (value) {
+                        case "A" -> TYPE_A;
+                        case "AAAA" -> TYPE_AAAA;
+                        case "TXT" -> TYPE_TXT;
+                        default -> throw new IllegalArgumentException("不支持的记录类型: " + value);
+                    };
+                } else if ("class".equalsIgnoreCase(key)) {
+                    dnsClass = switch (value) {
+                        case "IN" -> CLASS_IN;
+                        case "CH" -> CLASS_CH;
+                        default -> throw new IllegalArgumentException("不支持的查询类: " + value);
+                    };
+                }
+            }
+        }
+        String name = path.substring(1);
+        if (name.endsWith(".")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        return new Query(host, uri.getPort() > 0 ? uri.getPort() : DEFAULT_PORT, encodeName(name), type, dnsClass);
+    }
+
+    private static InetSocketAddress server(Query query, boolean isIPv6) {
+        try {
+            return new InetSocketAddress(ProbeResolver.resolve(query.host, isIPv6).get(0), query.port);
+        } catch (UnknownHostException e) {
+            log.debug("DNS服务器解析失败: {} - {}", query.host, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 域名编码为 长度+标签 序列（以0结尾）
+     */
+    private static byte[] encodeName(String name) {
+        byte[] result = new byte[name.length() + 2];
+        int pos = 0;
+        for (String label : name.split("\\.")) {
+            byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+            if (bytes.length == 0 || bytes.length > 63) {
+                throw new IllegalArgumentException("域名格式无效: " + name);
+            }
+            result[pos++] = (byte) bytes.length;
+            System.arraycopy(bytes, 0, result, pos, bytes.length);
+            pos += bytes.length;
+        }
+        result[pos] = 0;
+        return result;
+    }
+
+    private static int encode(byte[] buffer, int id, byte[] name, int type, int dnsClass) {
+        putShort(buffer, 0, id);
+        // 标准查询，期望递归
+        putShort(buffer, 2, 0x0100);
+        putShort(buffer, 4, 1);
+        putShort(buffer, 6, 0);
+        putShort(buffer, 8, 0);
+        putShort(buffer, 10, 0);
+        System.arraycopy(name, 0, buffer, 12, name.length);
+        int pos = 12 + name.length;
+        putShort(buffer, pos, type);
+        putShort(buffer, pos + 2, dnsClass);
+        return pos + 4;
+    }
+
+    /**
+     * 应答是否对应已发出的查询：ID为其中之一、是应答报文，且问题与查询一致（域名不区分大小写）
+     */
+    private static boolean matches(byte[] buffer, int length, int[] ids, int sent, Query query, int type) {
+        if (length < 12 || (buffer[2] & 0x80) == 0 || getShort(buffer, 4) != 1) {
+            return false;
+        }
+        int id = getShort(buffer, 0);
+        boolean known = false;
+        for (int i = 0; i < sent; i++) {
+            known |= ids[i] == id;
+        }
+        int end = 12 + query.name.length;
+        if (!known || end + 4 > length) {
+            return false;
+        }
+        for (int i = 0; i < query.name.length; i++) {
+            byte b = buffer[12 + i];
+            byte expected = query.name[i];
+            if (b != expected && Character.toLowerCase((char) b) != Character.toLowerCase((char) expected)) {
+                return false;
+            }
+        }
+        return getShort(buffer, end) == type && getShort(buffer, end + 2) == query.dnsClass;
+    }
+
+    /**
+     * 在缓冲区内解析应答（已确认与查询匹配），返回第一个与地址族一致的地址
+     */
+    private static IpAddress decode(byte[] buffer, int length, int type, boolean isIPv6) throws IOException {
+        int flags = getShort(buffer, 2);
+        if ((flags & 0x8000) == 0 || (flags & 0x0200) != 0) {
+            throw new IOException("DNS应答无效或被截断");
+        }
+        if ((flags & 0x000f) != 0) {
+            throw new IOException("DNS应答错误码 " + (flags & 0x000f));
+        }
+        int questions = getShort(buffer, 4);
+        int answers = getShort(buffer, 6);
+        int pos = 12;
+        for (int i = 0; i < questions; i++) {
+            pos = skipName(buffer, pos, length) + 4;
+        }
+        for (int i = 0; i < answers && pos < length; i++) {
+            pos = skipName(buffer, pos, length);
+            if (pos + 10 > length) {
+                break;
+            }
+            int rrType = getShort(buffer, pos);
+            int rdLength = getShort(buffer, pos + 8);
+            int rdata = pos + 10;
+            pos = rdata + rdLength;
+            if (pos > length || rrType != type) {
+                continue;
+            }
+            IpAddress address = null;
+            if (rrType == TYPE_A || rrType == TYPE_AAAA) {
+                address = IpAddress.fromBytes(buffer, rdata, rdLength);
+            } else if (rrType == TYPE_TXT) {
+                // TXT 由若干 长度+文本 组成，取第一个可解析为地址的字符串
+                for (int p = rdata; p < pos; ) {
+                    int len = buffer[p] & 0xff;
+                    if (p + 1 + len > pos) {
+                        break;
+                    }
+                    IpAddress candidate = IpAddress.parse(new String(buffer, p + 1, len, StandardCharsets.US_ASCII));
+                    if (candidate != null && candidate.isIPv6() == isIPv6) {
+                        address = candidate;
+                        break;
+                    }
+                    p += 1 + len;
+                }
+            }
+            if (address != null && address.isIPv6() == isIPv6) {
+                return address;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 跳过报文中的域名（支持压缩指针），返回其后的位置
+     */
+    private static int skipName(byte[] buffer, int pos, int length) throws IOException {
+        while (pos < length) {
+            int len = buffer[pos] & 0xff;
+            if (len == 0) {
+                return pos + 1;
+            }
+            if ((len & 0xc0) == 0xc0) {
+                return pos + 2;
+            }
+            pos += 1 + len;
+        }
+        throw new IOException("DNS应答格式错误");
+    }
+
+    private static int getShort(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 8) | (data[offset + 1] & 0xff);
+    }
+
+    private static void putShort(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 8);
+        data[offset + 1] = (byte) value;
+    }
+
+    record Query(String host, int port, byte[] name, int type, int dnsClass) {
+    }
+}
@@ -0,0 +1,18 @@
+package top.hanlin.publicipupload.util;
+
+/**
+ * 注入的云解析API故障
+ */
+public class FaultInjectedException extends Exception {
+
+    private final String errorCode;
+
+    public FaultInjectedException(String errorCode, String message) {
+        super("[" + errorCode + "] " + message);
+        this.errorCode = errorCode;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+}
@@ -0,0 +1,195 @@
+package top.hanlin.publicipupload.util;
+
+import top.hanlin.publicipupload.model.FaultRule;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 故障注入：在IP探测和云解析API调用前按规则注入延迟、错误、限流或挂起
+ * 未配置规则时仅有一次 volatile 读开销
+ */
+public final class FaultInjector {
+
+    public static final String TARGET_PROBE = "probe";
+    public static final String TARGET_PROVIDER = "provider";
+
+    private static final Set<String> TARGETS = Set.of(TARGET_PROBE, TARGET_PROVIDER);
+    private static final Set<String> TYPES = Set.of("latency", "error", "throttle", "hang");
+    private static final Set<String> DISTRIBUTIONS = Set.of("fixed", "uniform", "exponential");
+
+    private static final List<FaultRule> rules = new CopyOnWriteArrayList<>();
+    // 规则ID -> 触发次数
+    private static final Map<String, LongAdder> hits = new ConcurrentHashMap<>();
+    // 是否有规则；只在持有 lock 时随 rules 一起修改，避免并发增删后与规则列表不一致
+    private static volatile boolean active;
+    private static final Object lock = new Object();
+
+    private FaultInjector() {
+    }
+
+    /**
+     * 添加规则，参数无效时抛出 IllegalArgumentException
+     */
+    public static FaultRule addRule(FaultRule rule) {
+        if (rule.getTarget() == null || !TARGETS.contains(rule.getTarget())) {
+            throw new IllegalArgumentException("注入点必须是 probe 或 provider");
+        }
+        if (rule.getType() == null || !TYPES.contains(rule.getType())) {
+            throw new IllegalArgumentException("故障类型必须是 latency/error/throttle/hang");
+        }
+        if (rule.getDistribution() == null || !DISTRIBUTIONS.contains(rule.getDistribution())) {
+            throw new IllegalArgumentException("延迟分布必须是 fixed/uniform/exponential");
+        }
+        if (rule.getProbability() < 0 || rule.getProbability() > 1) {
+            throw new IllegalArgumentException("触发概率必须在 0~1 之间");
+        }
+        if (rule.getLatencyMs() < 0 || rule.getLatencyMaxMs() < 0 || rule.getHangMs() < 0) {
+            throw new IllegalArgumentException("时长不能为负数");
+        }
+        rule.setId(UUID.randomUUID().toString().substring(0, 8));
+        synchronized (lock) {
+            hits.put(rule.getId(), new LongAdder());
+            rules.add(rule);
+            active = true;
+        }
+        return rule;
+    }
+
+    public static boolean removeRule(String id) {
+        synchronized (lock) {
+            boolean removed = rules.removeIf(rule -> rule.getId().equals(id));
+            hits.remove(id);
+            active = !rules.isEmpty();
+            return removed;
+        }
+    }
+
+    public static void clear() {
+        synchronized (lock) {
+            rules.clear();
+            hits.clear();
+            active = false;
+        }
+    }
+
+    /**
+     * 当前规则及触发次数
+     */
+    public static List<Map<String, Object>> getRules() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (FaultRule rule : rules) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("rule", rule);
+            LongAdder count = hits.get(rule.getId());
+            item.put("hits", count != null ? count.sum() : 0);
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * IP探测前注入，故障以 IOException 形式抛出
+     */
+    public static void beforeProbe(String url) throws IOException {
+        if (!active) {
+            return;
+        }
+        FaultRule rule = pick(TARGET_PROBE, url, null);
+        if (rule == null) {
+            return;
+        }
+        try {
+            switch (apply(rule)) {
+                case "error" -> throw new IOException("注入故障: " + codeOf(rule, "HTTP 503"));
+                case "throttle" -> throw new IOException("注入限流: " + codeOf(rule, "HTTP 429"));
+                case "hang" -> throw new SocketTimeoutException("注入挂起");
+                default -> { }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("探测被中断", e);
+        }
+    }
+
+    /**
+     * 云解析API调用前注入，故障以 FaultInjectedException 形式抛出
+     */
+    public static void beforeProviderCall(String provider, String operation) throws FaultInjectedException, InterruptedException {
+        if (!active) {
+            return;
+        }
+        FaultRule rule = pick(TARGET_PROVIDER, provider, operation);
+        if (rule == null) {
+            return;
+        }
+        switch (apply(rule)) {
+            case "error" -> throw new FaultInjectedException(codeOf(rule, "InternalError"), "注入故障");
+            case "throttle" -> throw new FaultInjectedException(
+                codeOf(rule, "阿里云".equals(provider) ? "Throttling.User" : "RequestLimitExceeded"), "注入限流");
+            case "hang" -> throw new FaultInjectedException("RequestTimeout", "注入挂起");
+            default -> { }
+        }
+    }
+
+    private static FaultRule pick(String target, String key, String operation) {
+        for (FaultRule rule : rules) {
+            if (!target.equals(rule.getTarget())) {
+                continue;
+            }
+            if (rule.getMatch() != null && !rule.getMatch().isEmpty() && (key == null || !key.contains(rule.getMatch()))) {
+                continue;
+            }
+            if (rule.getOperation() != null && !rule.getOperation().isEmpty() && !rule.getOperation().equals(operation)) {
+                continue;
+            }
+            if (ThreadLocalRandom.current().nextDouble() >= rule.getProbability()) {
+                continue;
+            }
+            LongAdder count = hits.get(rule.getId());
+            if (count != null) {
+                count.increment();
+            }
+            DdnsMetrics.recordFault(target, rule.getType());
+            return rule;
+        }
+        return null;
+    }
+
+    /**
+     * 执行延迟（挂起类型阻塞 hangMs），返回故障类型
+     */
+    private static String apply(FaultRule rule) throws InterruptedException {
+        long delay = sampleLatency(rule);
+        if ("hang".equals(rule.getType())) {
+            delay += rule.getHangMs();
+        }
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+        return rule.getType();
+    }
+
+    private static long sampleLatency(FaultRule rule) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long min = rule.getLatencyMs();
+        long max = rule.getLatencyMaxMs();
+        return switch (rule.getDistribution()) {
+            case "uniform" -> max > min ? random.nextLong(min, max + 1) : min;
+            case "exponential" -> {
+                long value = (long) (-min * Math.log(1 - random.nextDouble()));
+                yield max > 0 ? Math.min(value, max) : value;
+            }
+            default -> min;
+        };
+    }
+
+    private static String codeOf(FaultRule rule, String defaultCode) {
+        return rule.getErrorCode() != null && !rule.getErrorCode().isEmpty() ? rule.getErrorCode() : defaultCode;
+    }
+}
@@ -0,0 +1,90 @@
+package top.hanlin.publicipupload.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 抖动抑制：IP服务短暂返回错误地址（如代理出口IP）或双WAN来回切换时，避免每次都改写DNS记录
+ * 新地址需在时间窗口内被连续观测到 confirmations 次，或被 sources 个不同来源同时观测到，才允许写入
+ * <p>
+ * 只按来源确认时（confirmations 为1），其他来源可能始终没有观测；此时本任务连续观测到 sources 次同样视为确认，
+ * 保证新地址不会一直停留在待确认状态
+ */
+public class FlapDamper {
+
+    private final int confirmations;
+    private final int sources;
+    private final long windowMs;
+    // 任务ID -> 待确认的新地址
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    public FlapDamper(int confirmations, int sources, long windowMs) {
+        this.confirmations = confirmations;
+        this.sources = sources;
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * 是否开启抑制
+     */
+    public boolean isEnabled() {
+        return confirmations > 1 || sources > 1;
+    }
+
+    /**
+     * 是否需要其他来源的观测来确认新地址
+     */
+    public boolean needsSources() {
+        return sources > 1;
+    }
+
+    /**
+     * 观测到与记录不同的地址，返回是否允许写入；不允许时该地址进入待确认
+     */
+    public boolean admit(String taskId, String family, IpAddress address) {
+        if (!isEnabled()) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        Pending previous = pending.get(taskId);
+        int count = 1;
+        long firstSeen = now;
+        if (previous != null && previous.address().equals(address) && now - previous.firstSeen() <= windowMs) {
+            count = previous.count() + 1;
+            firstSeen = previous.firstSeen();
+        } else if (previous != null) {
+            // 上一个待确认地址未得到确认就被替换，视为一次被抑制的抖动
+            DdnsMetrics.recordFlapSuppressed(family, "discarded");
+        }
+        int required = confirmations > 1 ? confirmations : sources;
+        boolean confirmed = count >= required
+            || (sources > 1 && AddressChangeBus.agreeingSources(family, address, windowMs) >= sources);
+        if (confirmed) {
+            pending.remove(taskId);
+            return true;
+        }
+        pending.put(taskId, new Pending(address, count, firstSeen));
+        DdnsMetrics.recordFlapSuppressed(family, "deferred");
+        return false;
+    }
+
+    /**
+     * 观测到的地址与记录一致：丢弃待确认的地址（地址已回退，抖动被抑制）
+     */
+    public void settle(String taskId, String family) {
+        if (pending.remove(taskId) != null) {
+            DdnsMetrics.recordFlapSuppressed(family, "discarded");
+        }
+    }
+
+    /**
+     * 任务删除时清理状态（含记录组各目标 taskId#序号）
+     */
+    public void forget(String taskId) {
+        String prefix = taskId + "#";
+        pending.keySet().removeIf(key -> key.equals(taskId) || key.startsWith(prefix));
+    }
+
+    private record Pending(IpAddress address, int count, long firstSeen) {
+    }
+}
@@ -0,0 +1,455 @@
+package top.hanlin.publicipupload.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 从局域网网关获取WAN口IPv4地址：UPnP IGD（GetExternalIPAddress）、NAT-PMP、PCP
+ * <p>
+ * 来源地址格式：gateway://协议[/目标]
+ * <ul>
+ *   <li>gateway://auto：依次尝试 NAT-PMP、PCP、UPnP，自动发现网关</li>
+ *   <li>gateway://natpmp 或 gateway://natpmp/192.168.1.1[:5351]</li>
+ *   <li>gateway://pcp 或 gateway://pcp/192.168.1.1[:5351]</li>
+ *   <li>gateway://upnp 或 gateway://upnp/http://192.168.1.1:5000/rootDesc.xml（设备描述地址）</li>
+ * </ul>
+ * 发现结果（网关地址、UPnP控制地址）缓存一段时间，查询只需一次局域网往返；查询失败时清除缓存重新发现，
+ * 发现失败后一段时间内不再尝试。WAN口为内网或运营商级NAT地址（多层NAT）时视为失败，由在线服务兜底
+ */
+@Slf4j
+public final class GatewaySource {
+
+    public static final String SCHEME = "gateway://";
+    public static final String AUTO = SCHEME + "auto";
+
+    private static final int NATPMP_PORT = 5351;
+    private static final byte PCP_OPCODE_MAP = 1;
+    // PCP MAP 请求的生存期（秒）：足够网关分配外部地址，映射很快自动过期
+    private static final int PCP_LIFETIME_SECONDS = 120;
+    // PCP 映射 nonce：进程内只生成一次。同一内部端口的已有映射只能用相同 nonce 续期，
+    // 否则网关按 RFC 6887 11.3 返回 NOT_AUTHORIZED
+    private static final byte[] PCP_NONCE = new byte[12];
+
+    static {
+        new SecureRandom().nextBytes(PCP_NONCE);
+    }
+    private static final String SSDP_HOST = "239.255.255.250";
+    private static final int SSDP_PORT = 1900;
+    private static final List<String> PROTOCOLS = List.of("natpmp", "pcp", "upnp");
+    private static final Pattern WAN_SERVICE = Pattern.compile(
+        "<service>\\s*<serviceType>(urn:schemas-upnp-org:service:WAN(?:IP|PPP)Connection:\\d)</serviceType>.*?<controlURL>([^<]+)</controlURL>",
+        Pattern.DOTALL);
+    private static final Pattern URL_BASE = Pattern.compile("<URLBase>([^<]+)</URLBase>");
+    private static final Pattern EXTERNAL_IP = Pattern.compile("<NewExternalIPAddress>([^<]*)</NewExternalIPAddress>");
+    private static final Pattern LOCATION = Pattern.compile("(?im)^LOCATION:\\s*(\\S+)");
+
+    // 发现结果有效期与发现失败后的退避时间
+    private static final long DISCOVERY_TTL_MS = 10 * 60 * 1000;
+    private static final long FAILURE_BACKOFF_MS = 60 * 1000;
+
+    // 单次局域网请求超时（毫秒），NAT-PMP/PCP 按 RFC 6886 加倍重试一次
+    private static volatile int timeoutMs = 250;
+
+    // 协议 -> 已发现的端点（NAT-PMP/PCP 为 host:port，UPnP 为 服务类型|控制地址）
+    private static final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    // 协议 -> 发现失败时间
+    private static final Map<String, Long> failures = new ConcurrentHashMap<>();
+    // 自动模式上次成功的协议，优先尝试
+    private static volatile String preferred;
+
+    private GatewaySource() {
+    }
+
+    /**
+     * 设置单次局域网请求超时（毫秒）
+     */
+    public static void setTimeoutMs(int timeoutMs) {
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException("超时时间必须大于0");
+        }
+        GatewaySource.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * 是否为网关来源
+     */
+    public static boolean isGatewaySource(String url) {
+        return url != null && url.startsWith(SCHEME);
+    }
+
+    /**
+     * 查询网关WAN口IPv4地址（规范文本），不可用返回 null
+     */
+    public static String lookup(String url) {
+        return lookup(url, true);
+    }
+
+    /**
+     * 测速用查询：只读取发现缓存，不写入发现结果、失败退避与自动模式的首选协议
+     */
+    public static String measure(String url) {
+        return lookup(url, false);
+    }
+
+    private static String lookup(String url, boolean update) {
+        String rest = url.substring(SCHEME.length());
+        int slash = rest.indexOf('/');
+        String protocol = (slash >= 0 ? rest.substring(0, slash) : rest).toLowerCase();
+        String target = slash >= 0 && slash < rest.length() - 1 ? rest.substring(slash + 1) : null;
+        if (protocol.isEmpty() || "auto".equals(protocol)) {
+            String first = preferred;
+            if (first != null) {
+                IpAddress address = query(first, null, update);
+                if (address != null) {
+                    return address.toString();
+                }
+            }
+            for (String p : PROTOCOLS) {
+                if (p.equals(first)) {
+                    continue;
+                }
+                IpAddress address = query(p, null, update);
+                if (address != null) {
+                    if (update) {
+                        preferred = p;
+                    }
+                    return address.toString();
+                }
+            }
+            return null;
+        }
+        if (!PROTOCOLS.contains(protocol)) {
+            throw new IllegalArgumentException("不支持的网关协议: " + protocol);
+        }
+        IpAddress address = query(protocol, target, update);
+        return address != null ? address.toString() : null;
+    }
+
+    /**
+     * 清除发现缓存（网关更换后使用）
+     */
+    public static void reset() {
+        endpoints.clear();
+        failures.clear();
+        preferred = null;
+    }
+
+    /**
+     * 查询一个协议；update 为 false 时不修改发现缓存与失败退避
+     */
+    private static IpAddress query(String protocol, String target, boolean update) {
+        String key = target == null ? protocol : protocol + "|" + target;
+        Endpoint endpoint = endpoints.get(key);
+        long now = System.currentTimeMillis();
+        if (endpoint == null || now - endpoint.atMillis > DISCOVERY_TTL_MS) {
+            Long failedAt = failures.get(key);
+            if (failedAt != null && now - failedAt < FAILURE_BACKOFF_MS) {
+                return null;
+            }
+            String discovered;
+            try {
+                discovered = target != null && !"upnp".equals(protocol) ? target : discover(protocol, target);
+            } catch (Exception e) {
+                log.debug("网关发现失败: {} - {}", protocol, e.getMessage());
+                discovered = null;
+            }
+            if (discovered == null) {
+                if (update) {
+                    failures.put(key, now);
+                    endpoints.remove(key);
+                }
+                return null;
+            }
+            endpoint = new Endpoint(discovered, now);
+            if (update) {
+                failures.remove(key);
+                endpoints.put(key, endpoint);
+            }
+        }
+        try {
+            IpAddress address = switch (protocol) {
+                case "natpmp" -> natPmp(socketAddress(endpoint.value));
+                case "pcp" -> pcp(socketAddress(endpoint.value));
+                default -> upnp(endpoint.value);
+            };
+            if (address == null || address.isIPv6() || !isPublic(address)) {
+                log.debug("网关WAN口不是公网IPv4: {} -> {}", protocol, address);
+                return null;
+            }
+            return address;
+        } catch (Exception e) {
+            // 网关可能已更换或重启，下次重新发现
+            log.debug("网关查询失败: {} {} - {}", protocol, endpoint.value, e.getMessage());
+            if (update) {
+                endpoints.remove(key);
+            }
+            return null;
+        }
+    }
+
+    private static String discover(String protocol, String target) throws IOException {
+        if ("upnp".equals(protocol)) {
+            String location = target != null ? target : ssdpLocation();
+            return location == null ? null : controlEndpoint(location);
+        }
+        InetAddress gateway = defaultGateway();
+        return gateway == null ? null : gateway.getHostAddress() + ":" + NATPMP_PORT;
+    }
+
+    // ===== NAT-PMP（RFC 6886） =====
+
+    private static IpAddress natPmp(InetSocketAddress gateway) throws IOException {
+        // 版本0，操作码0：查询外部地址
+        byte[] response = udpExchange(gateway, new byte[]{0, 0}, 4);
+        if (response[0] != 0 || (response[1] & 0xff) != 128) {
+            throw new IOException("NAT-PMP响应格式错误");
+        }
+        int result = ((response[2] & 0xff) << 8) | (response[3] & 0xff);
+        if (result != 0) {
+            throw new IOException("NAT-PMP结果码 " + result);
+        }
+        if (response.length < 12) {
+            throw new IOException("NAT-PMP响应长度不足: " + response.length);
+        }
+        return ipv4(response, 8);
+    }
+
+    // ===== PCP（RFC 6887） =====
+
+    private static IpAddress pcp(InetSocketAddress gateway) throws IOException {
+        // MAP 请求：内部端口9（discard）、短生存期，从响应中读取分配的外部地址；
+        // 生存期为0表示删除映射，网关不会分配外部地址。每次查询用同一 nonce 续期同一映射
+        byte[] request = new byte[60];
+        request[0] = 2;
+        request[1] = PCP_OPCODE_MAP;
+        putInt(request, 4, PCP_LIFETIME_SECONDS);
+        InetAddress local = localAddressTowards(gateway);
+        byte[] mapped = mappedAddress(local);
+        System.arraycopy(mapped, 0, request, 8, 16);
+        System.arraycopy(PCP_NONCE, 0, request, 24, 12);
+        request[36] = 17;
+        request[41] = 9;
+        // 建议的外部地址 ::ffff:0.0.0.0：请求IPv4外部地址，不指定具体值
+        request[54] = (byte) 0xff;
+        request[55] = (byte) 0xff;
+        byte[] response = udpExchange(gateway, request, 24);
+        // 版本2，R位置位且操作码为 MAP
+        if (response[0] != 2 || (response[1] & 0xff) != (0x80 | PCP_OPCODE_MAP)) {
+            throw new IOException("PCP响应格式错误");
+        }
+        if (response[3] != 0) {
+            throw new IOException("PCP结果码 " + (response[3] & 0xff));
+        }
+        if (response.length < 60) {
+            throw new IOException("PCP响应长度不足: " + response.length);
+        }
+        if (!Arrays.equals(response, 24, 36, PCP_NONCE, 0, 12)) {
+            throw new IOException("PCP响应与请求不匹配");
+        }
+        // 外部地址为 IPv4 映射的 IPv6（::ffff:a.b.c.d）
+        if ((response[54] & 0xff) != 0xff || (response[55] & 0xff) != 0xff) {
+            throw new IOException("PCP外部地址不是IPv4");
+        }
+        IpAddress address = ipv4(response, 56);
+        return address.ipv4Value() == 0 ? null : address;
+    }
+
+    // ===== UPnP IGD =====
+
+    /**
+     * SSDP 搜索 InternetGatewayDevice，返回设备描述地址
+     */
+    private static String ssdpLocation() throws IOException {
+        String search = "M-SEARCH * HTTP/1.1\r\n"
+            + "HOST: " + SSDP_HOST + ":" + SSDP_PORT + "\r\n"
+            + "MAN: \"ssdp:discover\"\r\n"
+            + "MX: 1\r\n"
+            + "ST: urn:schemas-upnp-org:device:InternetGatewayDevice:1\r\n\r\n";
+        byte[] data = search.getBytes(StandardCharsets.US_ASCII);
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.setSoTimeout(timeoutMs * 4);
+            socket.send(new DatagramPacket(data, data.length, InetAddress.getByName(SSDP_HOST), SSDP_PORT));
+            byte[] buffer = new byte[2048];
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            socket.receive(packet);
+            Matcher m = LOCATION.matcher(new String(buffer, 0, packet.getLength(), StandardCharsets.US_ASCII));
+            return m.find() ? m.group(1) : null;
+        } catch (SocketTimeoutException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 读取设备描述，返回 WANIPConnection/WANPPPConnection 服务的 服务类型|控制地址
+     */
+    private static String controlEndpoint(String location) throws IOException {
+        String description = http(location, "GET", null, null);
+        Matcher m = WAN_SERVICE.matcher(description);
+        if (!m.find()) {
+            return null;
+        }
+        Matcher base = URL_BASE.matcher(description);
+        URI baseUri = URI.create(base.find() ? base.group(1).trim() : location);
+        return m.group(1) + "|" + baseUri.resolve(m.group(2).trim());
+    }
+
+    private static IpAddress upnp(String endpoint) throws IOException {
+        int sep = endpoint.indexOf('|');
+        String serviceType = endpoint.substring(0, sep);
+        String body = "<?xml version=\"1.0\"?>"
+            + "<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+            + "s:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\">"
+            + "<s:Body><u:GetExternalIPAddress xmlns:u=\"" + serviceType + "\"/></s:Body></s:Envelope>";
+        String response = http(endpoint.substring(sep + 1), "POST", body, "\"" + serviceType + "#GetExternalIPAddress\"");
+        Matcher m = EXTERNAL_IP.matcher(response);
+        return m.find() ? IpAddress.parseIPv4(m.group(1)) : null;
+    }
+
+    private static String http(String url, String method, String body, String soapAction) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) URI.create(url).toURL().openConnection();
+        conn.setConnectTimeout(timeoutMs * 4);
+        conn.setReadTimeout(timeoutMs * 4);
+        conn.setRequestMethod(method);
+        if (body != null) {
+            conn.setDoOutput(true);
+            conn.setRequestProperty("Content-Type", "text/xml; charset=\"utf-8\"");
+            conn.setRequestProperty("SOAPAction", soapAction);
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        try (InputStream in = conn.getInputStream()) {
+            return new String(in.readNBytes(64 * 1024), StandardCharsets.UTF_8);
+        }
+    }
+
+    // ===== 工具方法 =====
+
+    private static byte[] udpExchange(InetSocketAddress gateway, byte[] request, int minLength) throws IOException {
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.connect(gateway);
+            byte[] buffer = new byte[1100];
+            int timeout = timeoutMs;
+            for (int attempt = 0; attempt < 2; attempt++, timeout *= 2) {
+                socket.setSoTimeout(timeout);
+                socket.send(new DatagramPacket(request, request.length));
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                try {
+                    socket.receive(packet);
+                } catch (SocketTimeoutException e) {
+                    continue;
+                }
+                if (packet.getLength() < minLength) {
+                    throw new IOException("响应长度不足: " + packet.getLength());
+                }
+                byte[] response = new byte[packet.getLength()];
+                System.arraycopy(buffer, 0, response, 0, response.length);
+                return response;
+            }
+            throw new SocketTimeoutException("网关无响应: " + gateway);
+        }
+    }
+
+    /**
+     * 默认网关：Linux 读取 /proc/net/route，其他系统按内网地址猜测 x.x.x.1
+     */
+    private static InetAddress defaultGateway() throws IOException {
+        Path route = Path.of("/proc/net/route");
+        if (Files.isReadable(route)) {
+            for (String line : Files.readAllLines(route)) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length < 4 || !"00000000".equals(fields[1]) || "00000000".equals(fields[2])) {
+                    continue;
+                }
+                // 网关为小端十六进制
+                int value = (int) Long.parseLong(fields[2], 16);
+                return InetAddress.getByAddress(new byte[]{
+                    (byte) value, (byte) (value >>> 8), (byte) (value >>> 16), (byte) (value >>> 24)});
+            }
+        }
+        for (NetworkInterface ni : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+            if (ni.isLoopback() || !ni.isUp()) {
+                continue;
+            }
+            for (InetAddress addr : Collections.list(ni.getInetAddresses())) {
+                if (addr instanceof Inet4Address && addr.isSiteLocalAddress()) {
+                    byte[] bytes = addr.getAddress();
+                    bytes[3] = 1;
+                    return InetAddress.getByAddress(bytes);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static InetSocketAddress socketAddress(String hostPort) {
+        int colon = hostPort.lastIndexOf(':');
+        if (colon < 0) {
+            return new InetSocketAddress(hostPort, NATPMP_PORT);
+        }
+        return new InetSocketAddress(hostPort.substring(0, colon), Integer.parseInt(hostPort.substring(colon + 1)));
+    }
+
+    private static InetAddress localAddressTowards(InetSocketAddress gateway) throws IOException {
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.connect(gateway);
+            return socket.getLocalAddress();
+        }
+    }
+
+    private static byte[] mappedAddress(InetAddress address) {
+        byte[] result = new byte[16];
+        byte[] raw = address.getAddress();
+        if (raw.length == 16) {
+            return raw;
+        }
+        result[10] = (byte) 0xff;
+        result[11] = (byte) 0xff;
+        System.arraycopy(raw, 0, result, 12, 4);
+        return result;
+    }
+
+    private static void putInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    private static IpAddress ipv4(byte[] data, int offset) {
+        return IpAddress.parseIPv4((data[offset] & 0xff) + "." + (data[offset + 1] & 0xff) + "."
+            + (data[offset + 2] & 0xff) + "." + (data[offset + 3] & 0xff));
+    }
+
+    /**
+     * 排除内网（10/8、172.16/12、192.168/16）、运营商级NAT（100.64/10）、回环与链路本地地址
+     */
+    private static boolean isPublic(IpAddress address) {
+        int v = address.ipv4Value();
+        int a = v >>> 24;
+        int b = (v >>> 16) & 0xff;
+        return a != 0 && a != 10 && a != 127
+            && !(a == 172 && b >= 16 && b <= 31)
+            && !(a == 192 && b == 168)
+            && !(a == 169 && b == 254)
+            && !(a == 100 && b >= 64 && b <= 127);
+    }
+
+    private record Endpoint(String value, long atMillis) {
+    }
+}
@@ -0,0 +1,361 @@
+package top.hanlin.publicipupload.util;
+
+import java.util.regex.Pattern;
+
+/**
+ * IP地址的规范二进制形式：IPv4 为一个 int，IPv6 为两个 long（高64位、低64位）
+ * 比较、哈希均基于二进制值，不受前导零、:: 压缩、大小写等文本差异影响；不做DNS解析
+ */
+public final class IpAddress {
+
+    private final boolean ipv6;
+    private final int v4;
+    private final long hi;
+    private final long lo;
+
+    private IpAddress(boolean ipv6, int v4, long hi, long lo) {
+        this.ipv6 = ipv6;
+        this.v4 = v4;
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    /**
+     * 解析IPv4或IPv6地址文本，格式无效返回 null
+     */
+    public static IpAddress parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        String s = text.trim();
+        return s.indexOf(':') >= 0 ? parseIPv6(s) : parseIPv4(s);
+    }
+
+    /**
+     * 解析点分十进制IPv4地址，格式无效返回 null
+     */
+    public static IpAddress parseIPv4(String text) {
+        if (text == null) {
+            return null;
+        }
+        String s = text.trim();
+        Integer value = ipv4Value(s, 0, s.length());
+        return value == null ? null : new IpAddress(false, value, 0, 0);
+    }
+
+    /**
+     * 解析IPv6地址（支持 :: 压缩与内嵌IPv4，忽略 %作用域），格式无效返回 null
+     */
+    public static IpAddress parseIPv6(String text) {
+        if (text == null) {
+            return null;
+        }
+        String s = text.trim();
+        int scope = s.indexOf('%');
+        if (scope >= 0) {
+            s = s.substring(0, scope);
+        }
+        if (s.isEmpty()) {
+            return null;
+        }
+        int[] groups = new int[8];
+        int count = 0;
+        int gap = -1;
+        int i = 0;
+        int n = s.length();
+        if (s.startsWith("::")) {
+            gap = 0;
+            i = 2;
+        } else if (s.charAt(0) == ':') {
+            return null;
+        }
+        while (i < n) {
+            if (count == 8) {
+                return null;
+            }
+            int end = i;
+            while (end < n && s.charAt(end) != ':') {
+                end++;
+            }
+            if (end < n || s.indexOf('.', i) < 0) {
+                // 十六进制分组
+                int len = end - i;
+                if (len == 0 || len > 4) {
+                    return null;
+                }
+                int value = 0;
+                for (int j = i; j < end; j++) {
+                    int digit = Character.digit(s.charAt(j), 16);
+                    if (digit < 0) {
+                        return null;
+                    }
+                    value = (value << 4) | digit;
+                }
+                groups[count++] = value;
+            } else {
+                // 末尾内嵌IPv4（如 ::ffff:1.2.3.4）
+                Integer v4 = ipv4Value(s, i, end);
+                if (v4 == null || count > 6) {
+                    return null;
+                }
+                groups[count++] = v4 >>> 16;
+                groups[count++] = v4 & 0xffff;
+            }
+            if (end == n) {
+                break;
+            }
+            // end 指向 ':'
+            if (end + 1 < n && s.charAt(end + 1) == ':') {
+                if (gap >= 0) {
+                    return null;
+                }
+                gap = count;
+                i = end + 2;
+            } else if (end + 1 == n) {
+                return null;
+            } else {
+                i = end + 1;
+            }
+        }
+        if (gap >= 0) {
+            if (count == 8) {
+                return null;
+            }
+            int move = count - gap;
+            System.arraycopy(groups, gap, groups, 8 - move, move);
+            for (int j = gap; j < 8 - move; j++) {
+                groups[j] = 0;
+            }
+        } else if (count != 8) {
+            return null;
+        }
+        long hi = 0;
+        long lo = 0;
+        for (int j = 0; j < 4; j++) {
+            hi = (hi << 16) | groups[j];
+            lo = (lo << 16) | groups[j + 4];
+        }
+        return new IpAddress(true, 0, hi, lo);
+    }
+
+    /**
+     * 由网络字节序的原始地址构造：4字节为IPv4，16字节为IPv6，长度无效返回 null
+     */
+    public static IpAddress fromBytes(byte[] data, int offset, int length) {
+        if (length == 4) {
+            int v4 = ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16)
+                | ((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff);
+            return new IpAddress(false, v4, 0, 0);
+        }
+        if (length == 16) {
+            long hi = 0;
+            long lo = 0;
+            for (int j = 0; j < 8; j++) {
+                hi = (hi << 8) | (data[offset + j] & 0xff);
+                lo = (lo << 8) | (data[offset + 8 + j] & 0xff);
+            }
+            return new IpAddress(true, 0, hi, lo);
+        }
+        return null;
+    }
+
+    /**
+     * 将地址文本转为规范文本，格式无效时原样返回
+     */
+    public static String canonical(String text) {
+        IpAddress address = parse(text);
+        return address == null ? text : address.toString();
+    }
+
+    /**
+     * 两个地址文本是否表示同一地址（任一无效时退化为文本比较）
+     */
+    public static boolean same(String a, String b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        IpAddress x = parse(a);
+        IpAddress y = parse(b);
+        return x != null && y != null ? x.equals(y) : a.trim().equals(b.trim());
+    }
+
+    /**
+     * 由MAC地址按 EUI-64 生成接口标识（低64位：翻转U/L位并在中间插入 fffe），格式无效返回 null
+     */
+    public static IpAddress eui64(String mac) {
+        if (mac == null) {
+            return null;
+        }
+        String hex = mac.trim().replaceAll("[:\\-.]", "");
+        if (hex.length() != 12) {
+            return null;
+        }
+        long value;
+        try {
+            value = Long.parseLong(hex, 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        long high24 = (value >>> 24) ^ 0x020000L;
+        long low24 = value & 0xffffffL;
+        return new IpAddress(true, 0, 0, (high24 << 40) | (0xfffeL << 24) | low24);
+    }
+
+    /**
+     * 解析主机后缀：MAC地址（EUI-64）或IPv6接口标识（如 ::1234:5678），格式无效返回 null
+     */
+    public static IpAddress parseSuffix(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        String s = text.trim();
+        if (MAC.matcher(s).matches()) {
+            return eui64(s);
+        }
+        return parseIPv6(s);
+    }
+
+    private static final Pattern MAC = Pattern.compile(
+        "[0-9a-fA-F]{2}([:-][0-9a-fA-F]{2}){5}|[0-9a-fA-F]{4}(\\.[0-9a-fA-F]{4}){2}");
+
+    private static Integer ipv4Value(String s, int from, int to) {
+        int value = 0;
+        int parts = 0;
+        int i = from;
+        while (i <= to) {
+            int start = i;
+            int octet = 0;
+            while (i < to && s.charAt(i) != '.') {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9' || i - start >= 3) {
+                    return null;
+                }
+                octet = octet * 10 + (c - '0');
+                i++;
+            }
+            if (i == start || octet > 255) {
+                return null;
+            }
+            value = (value << 8) | octet;
+            parts++;
+            if (i == to) {
+                break;
+            }
+            i++;
+        }
+        return parts == 4 ? value : null;
+    }
+
+    /**
+     * 保留前 prefixLength 位作为前缀，其余位取自 suffix（仅IPv6）
+     */
+    public IpAddress withSuffix(int prefixLength, IpAddress suffix) {
+        if (!ipv6 || suffix == null || !suffix.ipv6) {
+            throw new IllegalArgumentException("前缀与后缀必须为IPv6地址");
+        }
+        if (prefixLength < 0 || prefixLength > 128) {
+            throw new IllegalArgumentException("前缀长度无效: " + prefixLength);
+        }
+        long hiMask = prefixLength >= 64 ? -1L : prefixLength == 0 ? 0 : -1L << (64 - prefixLength);
+        long loMask = prefixLength <= 64 ? 0 : prefixLength == 128 ? -1L : -1L << (128 - prefixLength);
+        return new IpAddress(true, 0, (hi & hiMask) | (suffix.hi & ~hiMask), (lo & loMask) | (suffix.lo & ~loMask));
+    }
+
+    /**
+     * 前缀部分（其余位清零）
+     */
+    public IpAddress prefix(int prefixLength) {
+        return withSuffix(prefixLength, new IpAddress(true, 0, 0, 0));
+    }
+
+    public boolean isIPv6() {
+        return ipv6;
+    }
+
+    public String family() {
+        return ipv6 ? "ipv6" : "ipv4";
+    }
+
+    /**
+     * 高64位（IPv6）
+     */
+    public long high() {
+        return hi;
+    }
+
+    /**
+     * 低64位（IPv6）
+     */
+    public long low() {
+        return lo;
+    }
+
+    /**
+     * IPv4 的 int 值
+     */
+    public int ipv4Value() {
+        return v4;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IpAddress other)) {
+            return false;
+        }
+        return ipv6 == other.ipv6 && v4 == other.v4 && hi == other.hi && lo == other.lo;
+    }
+
+    @Override
+    public int hashCode() {
+        return ipv6 ? Long.hashCode(hi * 31 + lo) : v4;
+    }
+
+    /**
+     * 规范文本：IPv4 点分十进制；IPv6 按 RFC 5952（小写、去前导零、最长连续零组压缩为 ::）
+     */
+    @Override
+    public String toString() {
+        if (!ipv6) {
+            return (v4 >>> 24) + "." + ((v4 >>> 16) & 0xff) + "." + ((v4 >>> 8) & 0xff) + "." + (v4 & 0xff);
+        }
+        int[] groups = new int[8];
+        for (int j = 0; j < 4; j++) {
+            groups[j] = (int) (hi >>> (48 - 16 * j)) & 0xffff;
+            groups[j + 4] = (int) (lo >>> (48 - 16 * j)) & 0xffff;
+        }
+        // 最长的连续零分组（至少两组）
+        int bestStart = -1;
+        int bestLen = 1;
+        for (int j = 0; j < 8; ) {
+            if (groups[j] != 0) {
+                j++;
+                continue;
+            }
+            int k = j;
+            while (k < 8 && groups[k] == 0) {
+                k++;
+            }
+            if (k - j > bestLen) {
+                bestStart = j;
+                bestLen = k - j;
+            }
+            j = k;
+        }
+        StringBuilder sb = new StringBuilder(39);
+        for (int j = 0; j < 8; j++) {
+            if (j == bestStart) {
+                sb.append("::");
+                j += bestLen - 1;
+                continue;
+            }
+            if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ':') {
+                sb.append(':');
+            }
+            sb.append(Integer.toHexString(groups[j]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,149 @@
+package top.hanlin.publicipupload.util;
+
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * IPv6前缀跟踪：从本地网卡的全局IPv6地址识别运营商下发的前缀（/48~/64），
+ * 各主机记录按自身后缀（静态接口标识或MAC派生的EUI-64）拼出完整地址
+ * <p>
+ * 来源地址格式：prefix://网卡名/前缀长度，如 prefix://eth0/56；网卡名为空或 * 表示任意网卡
+ */
+public final class PrefixTracker {
+
+    public static final String SCHEME = "prefix://";
+    public static final int DEFAULT_PREFIX_LENGTH = 64;
+
+    // 网卡地址快照的有效期：同一批任务共享一次网卡枚举
+    private static final long SNAPSHOT_TTL_MS = 2000;
+
+    private static volatile Snapshot snapshot;
+
+    private PrefixTracker() {
+    }
+
+    /**
+     * 是否为前缀跟踪来源
+     */
+    public static boolean isPrefixSource(String url) {
+        return url != null && url.startsWith(SCHEME);
+    }
+
+    /**
+     * 来源中的网卡名（空或 * 表示任意网卡）
+     */
+    public static String interfaceName(String url) {
+        String rest = url.substring(SCHEME.length());
+        int slash = rest.indexOf('/');
+        return slash >= 0 ? rest.substring(0, slash) : rest;
+    }
+
+    /**
+     * 来源中的前缀长度，非前缀跟踪来源或未指定时为64
+     */
+    public static int prefixLength(String url) {
+        if (!isPrefixSource(url)) {
+            return DEFAULT_PREFIX_LENGTH;
+        }
+        String rest = url.substring(SCHEME.length());
+        int slash = rest.indexOf('/');
+        if (slash < 0 || slash == rest.length() - 1) {
+            return DEFAULT_PREFIX_LENGTH;
+        }
+        int length;
+        try {
+            length = Integer.parseInt(rest.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("前缀长度无效: " + url);
+        }
+        if (length < 1 || length > 127) {
+            throw new IllegalArgumentException("前缀长度无效: " + url);
+        }
+        return length;
+    }
+
+    /**
+     * 识别网卡上的全局IPv6地址（2000::/3），无可用地址返回 null
+     * 多个地址时取规范文本排序后的第一个，保证结果稳定
+     */
+    public static IpAddress detect(String url) {
+        String name = resolveName(interfaceName(url));
+        for (Map.Entry<String, String> entry : addresses().entrySet()) {
+            String key = entry.getKey();
+            if (!key.endsWith("|ipv6")) {
+                continue;
+            }
+            if (name != null && !key.equals(name + "|ipv6")) {
+                continue;
+            }
+            for (String text : entry.getValue().split(",")) {
+                IpAddress address = IpAddress.parseIPv6(text);
+                if (address != null && (address.high() >>> 61) == 1) {
+                    return address;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 用主机后缀替换地址的主机部分：静态接口标识保留前 prefixLength 位，
+     * MAC派生的EUI-64只替换低64位（子网沿用探测到的 /64）；后缀为空时原样返回
+     */
+    public static IpAddress applySuffix(IpAddress address, int prefixLength, String suffix) {
+        if (address == null || !address.isIPv6() || suffix == null || suffix.isBlank()) {
+            return address;
+        }
+        IpAddress iid = IpAddress.parseSuffix(suffix);
+        if (iid == null) {
+            throw new IllegalArgumentException("IPv6后缀无效: " + suffix);
+        }
+        boolean mac = IpAddress.parseIPv6(suffix.trim()) == null;
+        return address.withSuffix(mac ? DEFAULT_PREFIX_LENGTH : prefixLength, iid);
+    }
+
+    /**
+     * 校验后缀格式，空后缀视为合法
+     */
+    public static void validateSuffix(String suffix) {
+        if (suffix != null && !suffix.isBlank() && IpAddress.parseSuffix(suffix) == null) {
+            throw new IllegalArgumentException("IPv6后缀无效（应为接口标识如 ::1234 或MAC地址）: " + suffix);
+        }
+    }
+
+    private static Map<String, String> addresses() {
+        Snapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (current == null || now - current.atMillis > SNAPSHOT_TTL_MS) {
+            current = new Snapshot(now, DDNS.getInterfaceAddresses());
+            snapshot = current;
+        }
+        return current.addresses;
+    }
+
+    /**
+     * 网卡名可填系统名或显示名，统一为系统名；任意网卡返回 null
+     */
+    private static String resolveName(String name) {
+        if (name == null || name.isEmpty() || "*".equals(name)) {
+            return null;
+        }
+        try {
+            if (NetworkInterface.getByName(name) == null) {
+                for (NetworkInterface ni : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                    if (name.equals(ni.getDisplayName())) {
+                        return ni.getName();
+                    }
+                }
+            }
+        } catch (SocketException e) {
+            // 按原名匹配
+        }
+        return name;
+    }
+
+    private record Snapshot(long atMillis, Map<String, String> addresses) {
+    }
+}
@@ -0,0 +1,323 @@
+package top.hanlin.publicipupload.util;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * IP查询专用的最小HTTP/HTTPS客户端：可绑定本地网卡地址（多线路时指定出口），并固定连接的地址族
+ * （IPv4查询只连接服务的A地址，IPv6查询只连接AAAA地址），只支持 GET、200 应答与重定向。
+ * 服务域名经 {@link ProbeResolver} 缓存解析，查询时不再等待域名解析
+ * <p>
+ * 未绑定网卡时与 HttpURLConnection 一样遵循 JVM 代理设置（http(s).proxyHost、socksProxyHost、
+ * {@link ProxySelector}）；经代理时出口与地址族由代理决定。请求头沿用 curl 风格的
+ * User-Agent 与 Accept: text/plain，部分服务对浏览器 User-Agent 返回HTML页面
+ */
+public final class ProbeHttp {
+
+    private static final int MAX_REDIRECTS = 3;
+    private static final String USER_AGENT = "curl/7.64.1";
+
+    private ProbeHttp() {
+    }
+
+    /**
+     * 发送 GET 请求并返回应答体（最多 maxBytes 字节），跟随至多3次重定向
+     *
+     * @param localAddress 绑定的本地地址，null 表示按系统默认路由
+     * @param isIPv6       连接使用的地址族
+     */
+    public static byte[] get(String url, InetAddress localAddress, boolean isIPv6, int timeoutMs, int maxBytes) throws IOException {
+        return fetch(url, localAddress, isIPv6, timeoutMs, maxBytes).body();
+    }
+
+    /**
+     * 发送 GET 请求，返回应答体与应答头（头名称为小写，maxBytes 为0时不读取应答体）
+     */
+    public static Reply fetch(String url, InetAddress localAddress, boolean isIPv6, int timeoutMs, int maxBytes) throws IOException {
+        return fetch(url, localAddress, isIPv6, timeoutMs, maxBytes, null);
+    }
+
+    /**
+     * 发送 GET 请求并记录各阶段耗时（timing 为 null 时不记录）
+     */
+    public static Reply fetch(String url, InetAddress localAddress, boolean isIPv6, int timeoutMs, int maxBytes,
+                              Timing timing) throws IOException {
+        if (localAddress != null && (localAddress instanceof Inet6Address) != isIPv6) {
+            throw new IOException("本地地址与查询地址族不一致: " + localAddress.getHostAddress());
+        }
+        URI uri = URI.create(url);
+        Timing t = (timing != null ? timing : new Timing()).start();
+        for (int redirects = 0; ; redirects++) {
+            Response response = request(uri, localAddress, isIPv6, timeoutMs, maxBytes, t);
+            if (response.location == null) {
+                t.totalNanos = System.nanoTime() - t.startNanos;
+                return new Reply(response.body, response.headers);
+            }
+            if (redirects >= MAX_REDIRECTS) {
+                throw new IOException("重定向次数过多: " + url);
+            }
+            uri = uri.resolve(response.location);
+        }
+    }
+
+    private static Response request(URI uri, InetAddress localAddress, boolean isIPv6, int timeoutMs, int maxBytes,
+                                    Timing timing) throws IOException {
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!"http".equals(scheme) && !"https".equals(scheme) || uri.getHost() == null) {
+            throw new IOException("不支持的地址: " + uri);
+        }
+        boolean https = "https".equals(scheme);
+        String host = uri.getHost();
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        int port = uri.getPort() > 0 ? uri.getPort() : https ? 443 : 80;
+        // 绑定网卡时不经代理，否则出口会变成代理
+        Proxy proxy = localAddress == null ? proxyFor(uri) : Proxy.NO_PROXY;
+        if (proxy.type() != Proxy.Type.DIRECT) {
+            return viaProxy(proxy, uri, host, port, https, timeoutMs, maxBytes, timing);
+        }
+        IOException last = null;
+        for (InetAddress address : ProbeResolver.resolve(host, isIPv6)) {
+            try (Socket socket = new Socket()) {
+                if (localAddress != null) {
+                    socket.bind(new InetSocketAddress(localAddress, 0));
+                }
+                socket.connect(new InetSocketAddress(address, port), timeoutMs);
+                timing.connectNanos = System.nanoTime() - timing.startNanos;
+                timing.tlsNanos = 0;
+                socket.setSoTimeout(timeoutMs);
+                if (!https) {
+                    return exchange(socket, path(uri), host, port, maxBytes, timing);
+                }
+                try (SSLSocket ssl = tls(socket, host, port, timing)) {
+                    return exchange(ssl, path(uri), host, port, maxBytes, timing);
+                }
+            } catch (IOException e) {
+                last = e;
+            }
+        }
+        throw last != null ? last : new UnknownHostException(host + " 没有" + (isIPv6 ? "IPv6" : "IPv4") + "地址");
+    }
+
+    /**
+     * JVM 代理设置为该地址选择的代理（取第一个），未配置时为直连
+     */
+    private static Proxy proxyFor(URI uri) {
+        ProxySelector selector = ProxySelector.getDefault();
+        if (selector == null) {
+            return Proxy.NO_PROXY;
+        }
+        List<Proxy> proxies = selector.select(uri);
+        return proxies == null || proxies.isEmpty() ? Proxy.NO_PROXY : proxies.get(0);
+    }
+
+    /**
+     * 经代理请求：HTTP代理用绝对地址转发 http 请求、CONNECT 隧道转发 https 请求；SOCKS代理由代理解析域名
+     */
+    private static Response viaProxy(Proxy proxy, URI uri, String host, int port, boolean https, int timeoutMs,
+                                     int maxBytes, Timing timing) throws IOException {
+        InetSocketAddress proxyAddress = (InetSocketAddress) proxy.address();
+        boolean socks = proxy.type() == Proxy.Type.SOCKS;
+        try (Socket socket = socks ? new Socket(proxy) : new Socket()) {
+            if (socks) {
+                socket.connect(InetSocketAddress.createUnresolved(host, port), timeoutMs);
+            } else {
+                socket.connect(proxyAddress.isUnresolved()
+                    ? new InetSocketAddress(proxyAddress.getHostString(), proxyAddress.getPort())
+                    : proxyAddress, timeoutMs);
+            }
+            timing.connectNanos = System.nanoTime() - timing.startNanos;
+            timing.tlsNanos = 0;
+            socket.setSoTimeout(timeoutMs);
+            if (!https) {
+                return exchange(socket, socks ? path(uri) : uri.toASCIIString(), host, port, maxBytes, timing);
+            }
+            if (!socks) {
+                connectTunnel(socket, host, port);
+            }
+            try (SSLSocket ssl = tls(socket, host, port, timing)) {
+                return exchange(ssl, path(uri), host, port, maxBytes, timing);
+            }
+        }
+    }
+
+    /**
+     * 通过HTTP代理建立到 host:port 的 CONNECT 隧道
+     */
+    private static void connectTunnel(Socket socket, String host, int port) throws IOException {
+        String authority = (host.contains(":") ? "[" + host + "]" : host) + ":" + port;
+        String request = "CONNECT " + authority + " HTTP/1.1\r\n"
+            + "Host: " + authority + "\r\n"
+            + "User-Agent: " + USER_AGENT + "\r\n\r\n";
+        OutputStream out = socket.getOutputStream();
+        out.write(request.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        // 逐字节读取，隧道建立后的数据留给TLS
+        InputStream in = socket.getInputStream();
+        String status = readLine(in);
+        String[] parts = status.split(" ", 3);
+        if (parts.length < 2 || !"200".equals(parts[1])) {
+            throw new IOException("代理拒绝建立隧道: " + status);
+        }
+        while (!readLine(in).isEmpty()) {
+            // 跳过代理应答头
+        }
+    }
+
+    private static SSLSocket tls(Socket socket, String host, int port, Timing timing) throws IOException {
+        SSLSocket ssl = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault())
+            .createSocket(socket, host, port, true);
+        SSLParameters parameters = ssl.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        ssl.setSSLParameters(parameters);
+        ssl.startHandshake();
+        timing.tlsNanos = System.nanoTime() - timing.startNanos;
+        return ssl;
+    }
+
+    private static String path(URI uri) {
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        return uri.getRawQuery() != null ? path + "?" + uri.getRawQuery() : path;
+    }
+
+    /**
+     * 发送请求并读取应答，target 为路径或（经HTTP代理时）绝对地址
+     */
+    private static Response exchange(Socket socket, String target, String host, int port, int maxBytes, Timing timing) throws IOException {
+        boolean defaultPort = port == 80 || port == 443;
+        String request = "GET " + target + " HTTP/1.1\r\n"
+            + "Host: " + (host.contains(":") ? "[" + host + "]" : host) + (defaultPort ? "" : ":" + port) + "\r\n"
+            + "User-Agent: " + USER_AGENT + "\r\n"
+            + "Accept: text/plain\r\n"
+            + "Connection: close\r\n\r\n";
+        OutputStream out = socket.getOutputStream();
+        out.write(request.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        String status = readLine(in);
+        timing.firstByteNanos = System.nanoTime() - timing.startNanos;
+        String[] parts = status.split(" ", 3);
+        int code = parts.length >= 2 && parts[1].matches("\\d{3}") ? Integer.parseInt(parts[1]) : 0;
+        boolean redirect = code == 301 || code == 302 || code == 303 || code == 307 || code == 308;
+        if (code != 200 && !redirect) {
+            throw new IOException("HTTP应答: " + status);
+        }
+        long contentLength = -1;
+        boolean chunked = false;
+        String location = null;
+        Map<String, String> headers = new HashMap<>();
+        for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            headers.merge(name, value, (a, b) -> a + ", " + b);
+            if ("content-length".equals(name)) {
+                contentLength = Long.parseLong(value);
+            } else if ("transfer-encoding".equals(name) && value.toLowerCase(Locale.ROOT).contains("chunked")) {
+                chunked = true;
+            } else if ("location".equals(name)) {
+                location = value;
+            }
+        }
+        if (redirect) {
+            if (location == null) {
+                throw new IOException("重定向缺少Location: " + status);
+            }
+            return new Response(null, headers, location);
+        }
+        if (!chunked) {
+            int limit = contentLength >= 0 ? (int) Math.min(contentLength, maxBytes) : maxBytes;
+            return new Response(in.readNBytes(limit), headers, null);
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (body.size() < maxBytes) {
+            String sizeLine = readLine(in);
+            int semicolon = sizeLine.indexOf(';');
+            int size = Integer.parseInt((semicolon >= 0 ? sizeLine.substring(0, semicolon) : sizeLine).trim(), 16);
+            if (size == 0) {
+                break;
+            }
+            body.write(in.readNBytes(Math.min(size, maxBytes - body.size())));
+            if (body.size() >= maxBytes) {
+                break;
+            }
+            readLine(in);
+        }
+        return new Response(body.toByteArray(), headers, null);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+            if (line.length() > 8192) {
+                throw new IOException("HTTP应答头过长");
+            }
+        }
+        if (c == -1 && line.length() == 0) {
+            throw new EOFException("连接已关闭");
+        }
+        return line.toString();
+    }
+
+    /**
+     * 各阶段完成时距请求开始的耗时（纳秒，重定向时为最后一跳）：TCP连接、TLS握手（HTTP为0）、收到首字节、完成
+     */
+    public static final class Timing {
+        private long startNanos;
+        private long connectNanos;
+        private long tlsNanos;
+        private long firstByteNanos;
+        private long totalNanos;
+
+        private Timing start() {
+            startNanos = System.nanoTime();
+            connectNanos = tlsNanos = firstByteNanos = totalNanos = 0;
+            return this;
+        }
+
+        public long getConnectNanos() {
+            return connectNanos;
+        }
+
+        public long getTlsNanos() {
+            return tlsNanos;
+        }
+
+        public long getFirstByteNanos() {
+            return firstByteNanos;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+    }
+
+    /**
+     * 应答体与应答头
+     */
+    public record Reply(byte[] body, Map<String, String> headers) {
+    }
+
+    /**
+     * 应答体与应答头，或重定向地址
+     */
+    private record Response(byte[] body, Map<String, String> headers, String location) {
+    }
+}
@@ -0,0 +1,186 @@
+package top.hanlin.publicipupload.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * IP查询服务域名的解析缓存：按地址族分开保存（IPv4查询只拿到A地址，IPv6查询只拿到AAAA地址），
+ * 启动时预解析，查询时直接取缓存，不再每次经过JVM解析器
+ * <p>
+ * 到期后先返回旧地址，同时在后台重新解析（重新解析失败时继续使用旧地址）；
+ * 解析失败或没有某地址族的地址时缓存失败结果，短时间内直接失败，不再等待解析超时
+ */
+@Slf4j
+public final class ProbeResolver {
+
+    // 解析失败的缓存时间
+    private static final long NEGATIVE_TTL_MS = 30 * 1000;
+
+    private static volatile long ttlMs = 5 * 60 * 1000;
+
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // 域名 -> 解析结果（首次解析进行中时为未完成的 Future，并发查询共用同一次解析）
+    private static final Map<String, CompletableFuture<Addresses>> cache = new ConcurrentHashMap<>();
+    // 正在后台重新解析的域名
+    private static final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private ProbeResolver() {
+    }
+
+    /**
+     * 设置解析结果的缓存时间（秒）
+     */
+    public static void setTtlSeconds(long ttlSeconds) {
+        if (ttlSeconds <= 0) {
+            throw new IllegalArgumentException("缓存时间必须大于0");
+        }
+        ttlMs = ttlSeconds * 1000;
+    }
+
+    /**
+     * 返回域名指定地址族的地址；IP字面量直接返回，没有该地址族的地址抛出 UnknownHostException
+     */
+    public static List<InetAddress> resolve(String host, boolean isIPv6) throws UnknownHostException {
+        IpAddress literal = IpAddress.parse(host);
+        if (literal != null) {
+            if (literal.isIPv6() != isIPv6) {
+                throw new UnknownHostException(host + " 不是" + (isIPv6 ? "IPv6" : "IPv4") + "地址");
+            }
+            return List.of(InetAddress.getByName(literal.toString()));
+        }
+        String key = host.toLowerCase(Locale.ROOT);
+        Addresses addresses = cache.computeIfAbsent(key, h -> CompletableFuture.supplyAsync(() -> load(h, null), executor)).join();
+        if (addresses.expiresAt < System.currentTimeMillis() && refreshing.add(key)) {
+            Addresses stale = addresses;
+            CompletableFuture.supplyAsync(() -> load(key, stale), executor)
+                .whenComplete((fresh, e) -> {
+                    if (fresh != null) {
+                        cache.put(key, CompletableFuture.completedFuture(fresh));
+                    }
+                    refreshing.remove(key);
+                });
+        }
+        List<InetAddress> result = isIPv6 ? addresses.ipv6 : addresses.ipv4;
+        if (result.isEmpty()) {
+            throw new UnknownHostException(host + (addresses.error != null ? ": " + addresses.error
+                : " 没有" + (isIPv6 ? "IPv6" : "IPv4") + "地址"));
+        }
+        return result;
+    }
+
+    /**
+     * 后台预解析来源地址中的服务域名（http/https、stun、dns 来源）
+     */
+    public static void warmUp(Collection<String> urls) {
+        Set<String> hosts = new LinkedHashSet<>();
+        for (String url : urls) {
+            hosts.addAll(hosts(url));
+        }
+        for (String host : hosts) {
+            executor.execute(() -> {
+                try {
+                    resolve(host, false);
+                } catch (UnknownHostException e) {
+                    // 失败结果已缓存，查询时再报告
+                }
+            });
+        }
+        log.debug("预解析 {} 个IP服务域名", hosts.size());
+    }
+
+    /**
+     * 清空缓存（网络切换后使用）
+     */
+    public static void clear() {
+        cache.clear();
+    }
+
+    /**
+     * 缓存快照：域名 -> {ipv4, ipv6, expiresInSeconds, error}
+     */
+    public static Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        long now = System.currentTimeMillis();
+        cache.forEach((host, future) -> {
+            Addresses addresses = future.getNow(null);
+            if (addresses == null) {
+                return;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("ipv4", addresses.ipv4.stream().map(InetAddress::getHostAddress).toList());
+            item.put("ipv6", addresses.ipv6.stream().map(InetAddress::getHostAddress).toList());
+            item.put("expiresInSeconds", Math.max(0, (addresses.expiresAt - now) / 1000));
+            if (addresses.error != null) {
+                item.put("error", addresses.error);
+            }
+            result.put(host, item);
+        });
+        return result;
+    }
+
+    /**
+     * 来源地址中需要解析的服务域名
+     */
+    static List<String> hosts(String url) {
+        if (url == null) {
+            return List.of();
+        }
+        List<String> hosts = new ArrayList<>();
+        if (StunClient.isStunSource(url)) {
+            for (String server : url.substring(StunClient.SCHEME.length()).split(",")) {
+                String host = server.trim();
+                if (host.startsWith("[")) {
+                    host = host.substring(1, Math.max(1, host.indexOf(']')));
+                } else if (host.indexOf(':') > 0) {
+                    host = host.substring(0, host.indexOf(':'));
+                }
+                hosts.add(host);
+            }
+        } else if (url.startsWith("http://") || url.startsWith("https://") || DnsWhoami.isDnsSource(url)) {
+            try {
+                String host = new URI(url).getHost();
+                if (host != null) {
+                    hosts.add(host.startsWith("[") ? host.substring(1, host.length() - 1) : host);
+                }
+            } catch (Exception e) {
+                // 格式无效的来源不预解析
+            }
+        }
+        hosts.removeIf(host -> host.isEmpty() || IpAddress.parse(host) != null);
+        return hosts;
+    }
+
+    /**
+     * 解析域名并按地址族拆分；重新解析失败时沿用旧地址
+     */
+    private static Addresses load(String host, Addresses stale) {
+        long now = System.currentTimeMillis();
+        try {
+            List<InetAddress> ipv4 = new ArrayList<>();
+            List<InetAddress> ipv6 = new ArrayList<>();
+            for (InetAddress address : InetAddress.getAllByName(host)) {
+                (address instanceof Inet6Address ? ipv6 : ipv4).add(address);
+            }
+            return new Addresses(List.copyOf(ipv4), List.copyOf(ipv6), now + ttlMs, null);
+        } catch (UnknownHostException e) {
+            if (stale != null && stale.error == null) {
+                log.debug("重新解析失败，沿用旧地址: {}", host);
+                return new Addresses(stale.ipv4, stale.ipv6, now + NEGATIVE_TTL_MS, null);
+            }
+            log.debug("解析失败: {}", host);
+            return new Addresses(List.of(), List.of(), now + NEGATIVE_TTL_MS, "解析失败");
+        }
+    }
+
+    private record Addresses(List<InetAddress> ipv4, List<InetAddress> ipv6, long expiresAt, String error) {
+    }
+}
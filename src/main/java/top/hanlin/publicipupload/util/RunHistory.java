@@ -0,0 +1,132 @@
+package top.hanlin.publicipupload.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个任务最近N次执行记录（基本类型数组环形缓冲区）
+ * 每条记录约13字节：时间(秒,int) + 探测/读取/写入/总耗时(毫秒,char,封顶65535) + 结果标志(byte)
+ */
+public class RunHistory {
+
+    public static final byte OUTCOME_UNCHANGED = 0;
+    public static final byte OUTCOME_UPDATED = 1;
+    public static final byte OUTCOME_FAILED = 2;
+    public static final byte OUTCOME_SHED = 3;
+    private static final byte OUTCOME_MASK = 0x0F;
+    private static final byte FLAG_CHANGED = 0x10;
+    private static final String[] OUTCOME_NAMES = {"unchanged", "updated", "failed", "shed"};
+
+    private final int[] times;
+    private final char[] probeMs;
+    private final char[] readMs;
+    private final char[] writeMs;
+    private final char[] totalMs;
+    private final byte[] flags;
+    private int head;   // 下一条写入位置
+    private int count;  // 已记录条数
+
+    public RunHistory(int capacity) {
+        times = new int[capacity];
+        probeMs = new char[capacity];
+        readMs = new char[capacity];
+        writeMs = new char[capacity];
+        totalMs = new char[capacity];
+        flags = new byte[capacity];
+    }
+
+    /**
+     * 记录一次执行
+     */
+    public synchronized void record(long epochMillis, long probeNanos, long readNanos, long writeNanos,
+                                    long totalNanos, byte outcome, boolean changed) {
+        times[head] = (int) (epochMillis / 1000);
+        probeMs[head] = toMillis(probeNanos);
+        readMs[head] = toMillis(readNanos);
+        writeMs[head] = toMillis(writeNanos);
+        totalMs[head] = toMillis(totalNanos);
+        flags[head] = (byte) ((outcome & OUTCOME_MASK) | (changed ? FLAG_CHANGED : 0));
+        head = (head + 1) % times.length;
+        if (count < times.length) {
+            count++;
+        }
+    }
+
+    /**
+     * 导出执行记录（从旧到新）及 p50/p95/p99 统计
+     */
+    public synchronized Map<String, Object> snapshot() {
+        List<Map<String, Object>> runs = new ArrayList<>(count);
+        int start = (head - count + times.length) % times.length;
+        int failed = 0;
+        int changes = 0;
+        int shed = 0;
+        for (int i = 0; i < count; i++) {
+            int idx = (start + i) % times.length;
+            int outcome = flags[idx] & OUTCOME_MASK;
+            boolean changed = (flags[idx] & FLAG_CHANGED) != 0;
+            if (outcome == OUTCOME_FAILED) {
+                failed++;
+            } else if (outcome == OUTCOME_SHED) {
+                shed++;
+            }
+            if (changed) {
+                changes++;
+            }
+            Map<String, Object> run = new LinkedHashMap<>();
+            run.put("time", times[idx] * 1000L);
+            run.put("probeMs", (int) probeMs[idx]);
+            run.put("readMs", (int) readMs[idx]);
+            run.put("writeMs", (int) writeMs[idx]);
+            run.put("totalMs", (int) totalMs[idx]);
+            run.put("outcome", OUTCOME_NAMES[outcome]);
+            run.put("changed", changed);
+            runs.add(run);
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("total", percentiles(totalMs, start));
+        summary.put("probe", percentiles(probeMs, start));
+        summary.put("read", percentiles(readMs, start));
+        summary.put("write", percentiles(writeMs, start));
+        summary.put("successRate", count == 0 ? 0.0 : (count - failed - shed) / (double) count);
+        summary.put("shed", shed);
+        summary.put("changes", changes);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("capacity", times.length);
+        result.put("count", count);
+        result.put("runs", runs);
+        result.put("summary", summary);
+        return result;
+    }
+
+    private Map<String, Integer> percentiles(char[] values, int start) {
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = values[(start + i) % values.length];
+        }
+        Arrays.sort(sorted);
+        Map<String, Integer> result = new LinkedHashMap<>();
+        result.put("p50", percentile(sorted, 0.50));
+        result.put("p95", percentile(sorted, 0.95));
+        result.put("p99", percentile(sorted, 0.99));
+        return result;
+    }
+
+    private static int percentile(int[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(rank, sorted.length - 1))];
+    }
+
+    private static char toMillis(long nanos) {
+        long millis = nanos / 1_000_000;
+        return (char) Math.max(0, Math.min(millis, Character.MAX_VALUE));
+    }
+}
@@ -0,0 +1,293 @@
+package top.hanlin.publicipupload.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * IP服务测速：对每个内置、自定义、网关、STUN、DNS 与本地前缀来源依次查询 N 轮（不同来源并行），
+ * 统计连接、TLS握手、首字节与总耗时的 p50/p95/p99、失败率以及与同地址族多数结果的一致率，
+ * 并按地址族推荐首选服务（结果一致、失败率低的服务中 p95 最低者）
+ * <p>
+ * 测速直接调用各来源，不经过任务的查询流程，不发布地址变化事件，不会触发任务执行；
+ * STUN 与网关经各自的测速入口查询，不更新健康分、映射行为、探测指标与网关发现缓存
+ */
+@Slf4j
+public final class ServiceBenchmark {
+
+    public static final int MAX_ROUNDS = 20;
+
+    private static final int TIMEOUT_MS = 5000;
+    private static final int MAX_BYTES = 64 * 1024;
+    // 推荐的门槛：失败率上限、一致率下限
+    private static final double MAX_RECOMMENDED_ERROR_RATE = 0.1;
+    private static final double MIN_RECOMMENDED_AGREEMENT = 0.99;
+
+    // 同一时间只运行一次测速，避免叠加请求被服务限流
+    private static final AtomicBoolean running = new AtomicBoolean();
+
+    private ServiceBenchmark() {
+    }
+
+    /**
+     * 运行测速并返回报告 {rounds, durationMs, services, majority, recommendations, stunHealth}
+     *
+     * @param rounds 每个来源的查询轮数（1~20）
+     * @param family ipv4、ipv6，空为全部
+     */
+    public static Map<String, Object> run(int rounds, String family) {
+        if (rounds < 1 || rounds > MAX_ROUNDS) {
+            throw new IllegalArgumentException("轮数必须在 1~" + MAX_ROUNDS + " 之间");
+        }
+        if (family != null && !family.isBlank() && !"ipv4".equals(family) && !"ipv6".equals(family)) {
+            throw new IllegalArgumentException("地址族必须为 ipv4 或 ipv6");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("测速正在运行，请稍后再试");
+        }
+        try {
+            return doRun(rounds, family == null || family.isBlank() ? null : family);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private static Map<String, Object> doRun(int rounds, String family) {
+        long start = System.nanoTime();
+        List<Map<String, String>> services = sources(family);
+        List<Stats> stats = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Stats>> futures = new ArrayList<>();
+            for (Map<String, String> service : services) {
+                futures.add(executor.submit(() -> measure(service, rounds)));
+            }
+            for (Future<Stats> future : futures) {
+                try {
+                    stats.add(future.get((long) rounds * TIMEOUT_MS * 3 + 10_000, TimeUnit.MILLISECONDS));
+                } catch (Exception e) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        // 同地址族所有成功结果中出现最多的地址
+        Map<String, String> majority = new TreeMap<>();
+        for (String f : new String[]{"ipv4", "ipv6"}) {
+            Map<String, Integer> votes = new HashMap<>();
+            stats.stream().filter(s -> f.equals(s.family))
+                .forEach(s -> s.answers.forEach(ip -> votes.merge(ip, 1, Integer::sum)));
+            votes.entrySet().stream().max(Map.Entry.comparingByValue())
+                .ifPresent(e -> majority.put(f, e.getKey()));
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        Map<String, Map<String, Object>> recommendations = new TreeMap<>();
+        Map<String, Stats> best = new HashMap<>();
+        for (Stats s : stats) {
+            double agreement = s.agreement(majority.get(s.family));
+            results.add(s.report(agreement));
+            if (s.errorRate() <= MAX_RECOMMENDED_ERROR_RATE && agreement >= MIN_RECOMMENDED_AGREEMENT) {
+                Stats current = best.get(s.family);
+                if (current == null || s.compareTo(current) < 0) {
+                    best.put(s.family, s);
+                }
+            }
+        }
+        best.forEach((f, s) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", s.name);
+            item.put("url", s.url);
+            item.put("type", s.type);
+            item.put("p50Ms", toMillis(percentile(s.total, 0.50)));
+            item.put("p95Ms", toMillis(percentile(s.total, 0.95)));
+            item.put("errorRate", round(s.errorRate()));
+            recommendations.put(f, item);
+        });
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("rounds", rounds);
+        report.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        report.put("services", results);
+        report.put("majority", majority);
+        report.put("recommendations", recommendations);
+        report.put("stunHealth", StunClient.getHealth());
+        log.info("IP服务测速完成: {} 个来源 x {} 轮，推荐 {}", stats.size(), rounds, recommendations.keySet());
+        return report;
+    }
+
+    /**
+     * 参与测速的来源：全部服务（内置、网关、STUN、DNS、自定义）以及有全局IPv6地址的网卡前缀
+     */
+    private static List<Map<String, String>> sources(String family) {
+        List<Map<String, String>> sources = new ArrayList<>(DDNS.getAllServices());
+        WanInterfaces.list().forEach((name, families) -> {
+            if (families.contains("ipv6")) {
+                Map<String, String> item = new HashMap<>();
+                item.put("name", name + " 前缀");
+                item.put("url", PrefixTracker.SCHEME + name + "/" + PrefixTracker.DEFAULT_PREFIX_LENGTH);
+                item.put("type", "local");
+                item.put("ipType", "ipv6");
+                sources.add(item);
+            }
+        });
+        sources.removeIf(s -> family != null && !family.equals(s.get("ipType")));
+        return sources;
+    }
+
+    private static Stats measure(Map<String, String> service, int rounds) {
+        Stats stats = new Stats(service);
+        boolean isIPv6 = "ipv6".equals(stats.family);
+        boolean http = stats.url.startsWith("http://") || stats.url.startsWith("https://");
+        CustomIpService custom = http ? DDNS.findCustomService(stats.url) : null;
+        ProbeHttp.Timing timing = new ProbeHttp.Timing();
+        for (int i = 0; i < rounds && !Thread.currentThread().isInterrupted(); i++) {
+            long begin = System.nanoTime();
+            String ip = null;
+            try {
+                if (http) {
+                    ProbeHttp.Reply reply = ProbeHttp.fetch(stats.url, null, isIPv6, TIMEOUT_MS,
+                        custom != null ? custom.getLimit() : MAX_BYTES, timing);
+                    if (custom != null) {
+                        ip = custom.extract(reply);
+                    } else {
+                        String content = new String(reply.body(), StandardCharsets.UTF_8);
+                        IpAddress address = IpAddress.parse(isIPv6 ? DDNS.extractIPv6(content) : DDNS.extractIPv4(content));
+                        ip = address != null ? address.toString() : null;
+                    }
+                } else if (GatewaySource.isGatewaySource(stats.url)) {
+                    ip = isIPv6 ? null : GatewaySource.measure(stats.url);
+                } else if (StunClient.isStunSource(stats.url)) {
+                    ip = StunClient.measure(stats.url, isIPv6);
+                } else if (DnsWhoami.isDnsSource(stats.url)) {
+                    ip = DnsWhoami.lookup(stats.url, isIPv6);
+                } else if (PrefixTracker.isPrefixSource(stats.url)) {
+                    IpAddress address = PrefixTracker.detect(stats.url);
+                    ip = address != null ? address.toString() : null;
+                }
+            } catch (Exception e) {
+                stats.lastError = e.getMessage();
+            }
+            long total = System.nanoTime() - begin;
+            if (ip == null) {
+                stats.errors++;
+                continue;
+            }
+            stats.answers.add(ip);
+            stats.total.add(total);
+            if (http) {
+                stats.connect.add(timing.getConnectNanos());
+                stats.tls.add(timing.getTlsNanos());
+                stats.firstByte.add(timing.getFirstByteNanos());
+            }
+        }
+        return stats;
+    }
+
+    private static long percentile(List<Long> values, double p) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int rank = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(rank, sorted.size() - 1)));
+    }
+
+    private static Map<String, Double> percentiles(List<Long> values) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        result.put("p50", toMillis(percentile(values, 0.50)));
+        result.put("p95", toMillis(percentile(values, 0.95)));
+        result.put("p99", toMillis(percentile(values, 0.99)));
+        return result;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    /**
+     * 单个来源的测速结果
+     */
+    private static final class Stats implements Comparable<Stats> {
+        final String name;
+        final String url;
+        final String type;
+        final String family;
+        final List<String> answers = new ArrayList<>();
+        final List<Long> connect = new ArrayList<>();
+        final List<Long> tls = new ArrayList<>();
+        final List<Long> firstByte = new ArrayList<>();
+        final List<Long> total = new ArrayList<>();
+        int errors;
+        String lastError;
+
+        Stats(Map<String, String> service) {
+            name = service.get("name");
+            url = service.get("url");
+            type = service.get("type");
+            family = service.get("ipType");
+        }
+
+        double errorRate() {
+            int samples = answers.size() + errors;
+            return samples == 0 ? 1 : (double) errors / samples;
+        }
+
+        /**
+         * 成功结果中与多数结果一致的比例，没有成功结果为0
+         */
+        double agreement(String majority) {
+            if (answers.isEmpty() || majority == null) {
+                return 0;
+            }
+            return (double) answers.stream().filter(majority::equals).count() / answers.size();
+        }
+
+        Map<String, Object> report(double agreement) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", name);
+            item.put("url", url);
+            item.put("type", type);
+            item.put("ipType", family);
+            item.put("samples", answers.size() + errors);
+            item.put("errors", errors);
+            item.put("errorRate", round(errorRate()));
+            item.put("agreement", round(agreement));
+            item.put("answer", answers.isEmpty() ? "" : answers.get(answers.size() - 1));
+            // 只统计成功的查询，全部失败时没有耗时
+            Map<String, Object> latency = new LinkedHashMap<>();
+            if (!connect.isEmpty()) {
+                latency.put("connect", percentiles(connect));
+                latency.put("tls", percentiles(tls));
+                latency.put("firstByte", percentiles(firstByte));
+            }
+            if (!total.isEmpty()) {
+                latency.put("total", percentiles(total));
+            }
+            item.put("latencyMs", latency);
+            if (lastError != null) {
+                item.put("lastError", lastError);
+            }
+            return item;
+        }
+
+        /**
+         * p95 低者优先，相同时比较 p50
+         */
+        @Override
+        public int compareTo(Stats other) {
+            int byP95 = Long.compare(percentile(total, 0.95), percentile(other.total, 0.95));
+            return byP95 != 0 ? byP95 : Long.compare(percentile(total, 0.50), percentile(other.total, 0.50));
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package top.hanlin.publicipupload.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * STUN 客户端（RFC 5389 Binding 请求）：一次UDP往返得到NAT映射后的公网地址
+ * <p>
+ * 来源地址格式：stun://host[:port][,host[:port]...]，端口默认3478。
+ * 多个服务器时按健康分选出最健康的几个，从同一本地端口并行发送请求，取最健康服务器的应答；
+ * 同一本地端口被不同服务器看到不同的映射端口时，说明NAT为地址相关映射（对称型）
+ */
+@Slf4j
+public final class StunClient {
+
+    public static final String SCHEME = "stun://";
+
+    private static final int DEFAULT_PORT = 3478;
+    private static final int MAGIC_COOKIE = 0x2112A442;
+    private static final int BINDING_REQUEST = 0x0001;
+    private static final int BINDING_SUCCESS = 0x0101;
+    private static final int ATTR_MAPPED_ADDRESS = 0x0001;
+    private static final int ATTR_XOR_MAPPED_ADDRESS = 0x0020;
+
+    // 每轮并行查询的服务器数；应答超时（毫秒）
+    private static volatile int parallel = 2;
+    private static volatile int timeoutMs = 1000;
+
+    // host:port -> 健康状态
+    private static final Map<String, Health> health = new ConcurrentHashMap<>();
+    // 来源地址 -> 上次检测到的NAT映射行为
+    private static final Map<String, String> mappings = new ConcurrentHashMap<>();
+
+    private StunClient() {
+    }
+
+    /**
+     * 设置每轮并行查询的服务器数与应答超时（毫秒）
+     */
+    public static void configure(int parallel, int timeoutMs) {
+        if (parallel <= 0 || timeoutMs <= 0) {
+            throw new IllegalArgumentException("并行数与超时时间必须大于0");
+        }
+        StunClient.parallel = parallel;
+        StunClient.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * 是否为STUN来源
+     */
+    public static boolean isStunSource(String url) {
+        return url != null && url.startsWith(SCHEME);
+    }
+
+    /**
+     * 查询公网地址（规范文本），所有服务器均无应答返回 null
+     * 先查询最健康的几个服务器，全部失败再查询其余服务器
+     */
+    public static String lookup(String url, boolean isIPv6) {
+        return lookup(url, isIPv6, null);
+    }
+
+    /**
+     * 从指定本地地址（多线路出口）查询公网地址，localAddress 为 null 时按默认路由
+     */
+    public static String lookup(String url, boolean isIPv6, InetAddress localAddress) {
+        List<String> servers = servers(url);
+        // 先取快照再排序，避免排序期间健康分变化
+        Map<String, double[]> snapshot = new HashMap<>();
+        servers.forEach(server -> snapshot.put(server, health(server).snapshot()));
+        servers.sort(Comparator.<String>comparingDouble(server -> -snapshot.get(server)[0])
+            .thenComparingDouble(server -> snapshot.get(server)[1]));
+        return lookup(url, servers, isIPv6, localAddress, true);
+    }
+
+    /**
+     * 测速用查询：按配置顺序查询服务器，不更新健康分、映射行为与指标
+     */
+    public static String measure(String url, boolean isIPv6) {
+        return lookup(url, servers(url), isIPv6, null, false);
+    }
+
+    private static String lookup(String url, List<String> servers, boolean isIPv6, InetAddress localAddress, boolean record) {
+        int batch = Math.min(parallel, servers.size());
+        IpAddress address = query(url, servers.subList(0, batch), isIPv6, localAddress, record);
+        if (address == null && batch < servers.size()) {
+            address = query(url, servers.subList(batch, servers.size()), isIPv6, localAddress, record);
+        }
+        return address != null ? address.toString() : null;
+    }
+
+    /**
+     * 上次查询检测到的NAT映射行为：endpoint-independent（端口不随服务器变化）、
+     * address-dependent（对称型NAT）；不足两个应答时为 null
+     */
+    public static String mappingBehavior(String url) {
+        return mappings.get(url);
+    }
+
+    /**
+     * 各服务器健康状态（健康分、平均往返耗时），供管理接口展示
+     */
+    public static Map<String, Map<String, Object>> getHealth() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        health.forEach((server, h) -> {
+            double[] values = h.snapshot();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("score", Math.round(values[0] * 1000) / 1000.0);
+            item.put("rttMs", Math.round(values[1] * 10) / 10.0);
+            result.put(server, item);
+        });
+        return result;
+    }
+
+    static List<String> servers(String url) {
+        String rest = url.substring(SCHEME.length());
+        int end = rest.indexOf('/');
+        if (end >= 0) {
+            rest = rest.substring(0, end);
+        }
+        List<String> servers = new ArrayList<>();
+        for (String part : rest.split(",")) {
+            String server = part.trim();
+            if (server.isEmpty()) {
+                continue;
+            }
+            // IPv6 字面量需写成 [addr]:port
+            boolean hasPort = server.startsWith("[") ? server.contains("]:") : server.indexOf(':') == server.lastIndexOf(':') && server.contains(":");
+            servers.add(hasPort ? server : server + ":" + DEFAULT_PORT);
+        }
+        if (servers.isEmpty()) {
+            throw new IllegalArgumentException("STUN服务器不能为空: " + url);
+        }
+        return servers;
+    }
+
+    private static Health health(String server) {
+        return health.computeIfAbsent(server, k -> new Health());
+    }
+
+    /**
+     * 向一批服务器发出请求并等待应答；record 为 false 时不更新健康分、映射行为与指标
+     */
+    private static IpAddress query(String url, List<String> servers, boolean isIPv6, InetAddress localAddress, boolean record) {
+        Map<String, Pending> pending = new LinkedHashMap<>();
+        // 服务器 -> 往返耗时（纳秒，-1 为失败），结束时统一记录
+        Map<String, Long> results = new LinkedHashMap<>();
+        IpAddress best = null;
+        try (DatagramSocket socket = new DatagramSocket(new InetSocketAddress(localAddress, 0))) {
+            for (String server : servers) {
+                InetSocketAddress target = resolve(server, isIPv6);
+                if (target == null) {
+                    results.put(server, -1L);
+                    continue;
+                }
+                byte[] request = new byte[20];
+                ThreadLocalRandom.current().nextBytes(request);
+                putShort(request, 0, BINDING_REQUEST);
+                putShort(request, 2, 0);
+                putInt(request, 4, MAGIC_COOKIE);
+                try {
+                    socket.send(new DatagramPacket(request, request.length, target));
+                } catch (IOException e) {
+                    results.put(server, -1L);
+                    continue;
+                }
+                pending.put(transactionKey(request, 8), new Pending(server, System.nanoTime()));
+            }
+            Map<String, InetSocketAddress> mapped = new LinkedHashMap<>();
+            byte[] buffer = new byte[576];
+            long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+            while (mapped.size() < pending.size()) {
+                long remaining = (deadline - System.nanoTime()) / 1_000_000L;
+                if (remaining <= 0) {
+                    break;
+                }
+                socket.setSoTimeout((int) remaining);
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                try {
+                    socket.receive(packet);
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                if (packet.getLength() < 20 || getShort(buffer, 0) != BINDING_SUCCESS || getInt(buffer, 4) != MAGIC_COOKIE) {
+                    continue;
+                }
+                Pending p = pending.get(transactionKey(buffer, 8));
+                if (p == null || mapped.containsKey(p.server)) {
+                    continue;
+                }
+                InetSocketAddress address = parseMapped(buffer, packet.getLength());
+                if (address == null) {
+                    continue;
+                }
+                long rtt = System.nanoTime() - p.sentAt;
+                if (mapped.isEmpty()) {
+                    // 已有应答：其余服务器只再等一小段时间（用于比较映射端口），不等满超时
+                    deadline = Math.min(deadline, System.nanoTime() + Math.max(2 * rtt, 20_000_000L));
+                }
+                mapped.put(p.server, address);
+                results.put(p.server, rtt);
+            }
+            for (Pending p : pending.values()) {
+                results.putIfAbsent(p.server, -1L);
+            }
+            // 按健康顺序取第一个与所需地址族一致的应答
+            for (String server : servers) {
+                InetSocketAddress address = mapped.get(server);
+                IpAddress ip = address == null ? null : IpAddress.parse(address.getAddress().getHostAddress());
+                if (ip != null && ip.isIPv6() == isIPv6) {
+                    best = ip;
+                    break;
+                }
+            }
+            if (record && mapped.size() >= 2) {
+                long ports = mapped.values().stream().mapToInt(InetSocketAddress::getPort).distinct().count();
+                String behavior = ports == 1 ? "endpoint-independent" : "address-dependent";
+                if (!behavior.equals(mappings.put(url, behavior))) {
+                    log.info("STUN检测到NAT映射行为: {} -> {}", url, behavior);
+                }
+            }
+        } catch (IOException e) {
+            log.debug("STUN查询失败: {} - {}", url, e.getMessage());
+        } finally {
+            if (record) {
+                results.forEach((server, nanos) -> recordResult(server, isIPv6, nanos));
+            }
+        }
+        return best;
+    }
+
+    private static InetSocketAddress resolve(String server, boolean isIPv6) {
+        int colon = server.lastIndexOf(':');
+        String host = server.substring(0, colon);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        int port = Integer.parseInt(server.substring(colon + 1));
+        try {
+            return new InetSocketAddress(ProbeResolver.resolve(host, isIPv6).get(0), port);
+        } catch (UnknownHostException e) {
+            log.debug("STUN服务器解析失败: {} - {}", server, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 解析 XOR-MAPPED-ADDRESS（老服务器回退到 MAPPED-ADDRESS）
+     */
+    private static InetSocketAddress parseMapped(byte[] data, int length) throws UnknownHostException {
+        int end = Math.min(length, 20 + getShort(data, 2));
+        InetSocketAddress plain = null;
+        for (int i = 20; i + 4 <= end; ) {
+            int type = getShort(data, i);
+            int len = getShort(data, i + 2);
+            int value = i + 4;
+            if (value + len > end) {
+                break;
+            }
+            if ((type == ATTR_XOR_MAPPED_ADDRESS || type == ATTR_MAPPED_ADDRESS) && len >= 8) {
+                boolean xor = type == ATTR_XOR_MAPPED_ADDRESS;
+                int family = data[value + 1];
+                int port = getShort(data, value + 2) ^ (xor ? MAGIC_COOKIE >>> 16 : 0);
+                byte[] raw = new byte[family == 0x02 ? 16 : 4];
+                if (family == 0x02 && len < 20) {
+                    break;
+                }
+                for (int j = 0; j < raw.length; j++) {
+                    // 异或密钥：magic cookie 后接 transaction id（头部第4~19字节）
+                    raw[j] = (byte) (data[value + 4 + j] ^ (xor ? data[4 + j] : 0));
+                }
+                InetSocketAddress address = new InetSocketAddress(InetAddress.getByAddress(raw), port);
+                if (xor) {
+                    return address;
+                }
+                plain = address;
+            }
+            i = value + ((len + 3) & ~3);
+        }
+        return plain;
+    }
+
+    private static void recordResult(String server, boolean isIPv6, long nanos) {
+        health(server).record(nanos);
+        DdnsMetrics.recordProbe(SCHEME + server, isIPv6, Math.max(0, nanos), nanos >= 0);
+    }
+
+    private static String transactionKey(byte[] data, int offset) {
+        return HexFormat.of().formatHex(data, offset, offset + 12);
+    }
+
+    private static int getShort(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 8) | (data[offset + 1] & 0xff);
+    }
+
+    private static int getInt(byte[] data, int offset) {
+        return (getShort(data, offset) << 16) | getShort(data, offset + 2);
+    }
+
+    private static void putShort(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 8);
+        data[offset + 1] = (byte) value;
+    }
+
+    private static void putInt(byte[] data, int offset, int value) {
+        putShort(data, offset, value >>> 16);
+        putShort(data, offset + 2, value);
+    }
+
+    private record Pending(String server, long sentAt) {
+    }
+
+    /**
+     * 健康分：成功/失败的指数加权平均（0~1），同分时平均往返耗时短的优先
+     */
+    private static final class Health {
+        private double score = 1.0;
+        private double rttMs;
+
+        synchronized void record(long nanos) {
+            boolean success = nanos >= 0;
+            score = score * 0.8 + (success ? 0.2 : 0);
+            if (success) {
+                double ms = nanos / 1e6;
+                rttMs = rttMs == 0 ? ms : rttMs * 0.8 + ms * 0.2;
+            }
+        }
+
+        synchronized double[] snapshot() {
+            return new double[]{score, rttMs};
+        }
+    }
+}
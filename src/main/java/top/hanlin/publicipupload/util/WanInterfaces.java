@@ -0,0 +1,152 @@
+package top.hanlin.publicipupload.util;
+
+import java.io.IOException;
+import java.net.*;
+import java.util.*;
+
+/**
+ * 多线路（多WAN）出口选择：任务可指定经哪个本地网卡或源地址查询公网IP（如 eth1、192.168.2.10）
+ */
+public final class WanInterfaces {
+
+    private WanInterfaces() {
+    }
+
+    /**
+     * 将出口（网卡名/显示名或本地地址）解析为指定地址族的本地地址；出口为空返回 null
+     * IPv6 优先取全局地址，找不到可用地址时抛出 IOException
+     */
+    public static InetAddress localAddress(String via, boolean isIPv6) throws IOException {
+        if (via == null || via.isBlank()) {
+            return null;
+        }
+        String name = via.trim();
+        IpAddress literal = IpAddress.parse(name);
+        if (literal != null) {
+            if (literal.isIPv6() != isIPv6) {
+                throw new IOException("出口地址与查询地址族不一致: " + name);
+            }
+            return InetAddress.getByName(literal.toString());
+        }
+        NetworkInterface ni = find(name);
+        if (ni == null || !ni.isUp()) {
+            throw new IOException("网卡不存在或未启用: " + name);
+        }
+        InetAddress fallback = null;
+        for (InetAddress address : Collections.list(ni.getInetAddresses())) {
+            if ((address instanceof Inet6Address) != isIPv6 || address.isLoopbackAddress() || address.isLinkLocalAddress()) {
+                continue;
+            }
+            if (!isIPv6 || (address.getAddress()[0] & 0xe0) == 0x20) {
+                return address;
+            }
+            if (fallback == null) {
+                fallback = address;
+            }
+        }
+        if (fallback != null) {
+            return fallback;
+        }
+        throw new IOException("网卡 " + name + " 没有" + (isIPv6 ? "IPv6" : "IPv4") + "地址");
+    }
+
+    /**
+     * 校验出口格式：本地地址或存在的网卡名，空值合法
+     */
+    public static void validate(String via) {
+        if (via == null || via.isBlank() || IpAddress.parse(via.trim()) != null) {
+            return;
+        }
+        try {
+            if (find(via.trim()) == null) {
+                throw new IllegalArgumentException("网卡不存在: " + via);
+            }
+        } catch (SocketException e) {
+            throw new IllegalArgumentException("无法读取网卡列表: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 出口（网卡名/显示名或本地地址）是否属于该网卡；addresses 为该网卡变化前后的地址，
+     * 用于识别已从网卡上移除的源地址
+     */
+    public static boolean isOn(String via, String name, Collection<String> addresses) {
+        if (via == null || via.isBlank()) {
+            return false;
+        }
+        String trimmed = via.trim();
+        IpAddress literal = IpAddress.parse(trimmed);
+        if (literal != null) {
+            return addresses.contains(literal.toString());
+        }
+        if (trimmed.equals(name)) {
+            return true;
+        }
+        try {
+            NetworkInterface ni = find(trimmed);
+            return ni != null && name.equals(ni.getName());
+        } catch (SocketException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 地址变化总线上的来源标识：指定出口时附加出口，避免不同线路的观测互相覆盖
+     */
+    public static String sourceKey(String url, String via) {
+        return via == null || via.isBlank() ? url : url + " via " + via.trim();
+    }
+
+    /**
+     * 可作为出口的网卡：已启用、非回环，且有IPv4地址或全局IPv6地址
+     * 返回 网卡名 -> 可用地址族（ipv4/ipv6）
+     */
+    public static Map<String, List<String>> list() {
+        Map<String, List<String>> result = new TreeMap<>();
+        try {
+            for (NetworkInterface ni : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                if (ni.isLoopback() || !ni.isUp()) {
+                    continue;
+                }
+                boolean ipv4 = false;
+                boolean ipv6 = false;
+                for (InetAddress address : Collections.list(ni.getInetAddresses())) {
+                    if (address.isLinkLocalAddress()) {
+                        continue;
+                    }
+                    if (address instanceof Inet4Address) {
+                        ipv4 = true;
+                    } else if ((address.getAddress()[0] & 0xe0) == 0x20) {
+                        ipv6 = true;
+                    }
+                }
+                List<String> families = new ArrayList<>();
+                if (ipv4) {
+                    families.add("ipv4");
+                }
+                if (ipv6) {
+                    families.add("ipv6");
+                }
+                if (!families.isEmpty()) {
+                    result.put(ni.getName(), families);
+                }
+            }
+        } catch (SocketException e) {
+            System.err.println("获取网卡列表失败: " + e.getMessage());
+        }
+        return result;
+    }
+
+    private static NetworkInterface find(String name) throws SocketException {
+        NetworkInterface ni = NetworkInterface.getByName(name);
+        if (ni != null) {
+            return ni;
+        }
+        for (NetworkInterface candidate : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+            if (name.equals(candidate.getDisplayName())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
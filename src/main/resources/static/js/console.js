@@ -175,6 +175,21 @@ document.addEventListener('DOMContentLoaded', function () {
                     ipv6LocalGroup.appendChild(option);
                 });
                 select.appendChild(ipv6LocalGroup);
+                // IPv6前缀跟踪分组：按网卡识别前缀，配合主机后缀使用
+                const prefixGroup = document.createElement('optgroup');
+                prefixGroup.label = 'IPv6 前缀跟踪';
+                const prefixInterfaces = new Set(ipServicesList
+                    .filter(i => i.ipType === 'ipv6' && i.status === 'success' && i.type === 'local')
+                    .map(i => i.name));
+                prefixInterfaces.forEach(name => {
+                    const option = document.createElement('option');
+                    option.value = `prefix://${name}/64`;
+                    option.textContent = `${name} 前缀 (/64)`;
+                    option.dataset.name = `${name} 前缀`;
+                    option.dataset.recordType = 'AAAA';
+                    prefixGroup.appendChild(option);
+                });
+                select.appendChild(prefixGroup);
             }
         });
     }
@@ -196,7 +211,7 @@ document.addEventListener('DOMContentLoaded', function () {
             const statusClass = isSuccess ? 'ip-success' : 'ip-failed';
             const statusIcon = isSuccess ? 'check-circle' : 'times-circle';
             const ipDisplay = isSuccess ? item.ip : '获取失败';
-            const typeLabel = item.type === 'builtin' ? '内置' : (item.type === 'local' ? '本地' : '自定义');
+            const typeLabel = { builtin: '内置', local: '本地', gateway: '网关', stun: 'STUN', dns: 'DNS' }[item.type] || '自定义';
             
             html += `
                 <div class="ip-card ${statusClass}" data-ip="${item.ip || ''}" data-url="${item.url}" data-name="${item.name}" data-index="${index}" data-iptype="${ipType}">
@@ -257,25 +272,106 @@ document.addEventListener('DOMContentLoaded', function () {
     }
 
     // ==================== DDNS任务管理 ====================
+    // 所有账号的任务汇总在同一个本地视图中，通过版本号增量同步，每次只传输变化的任务
+    const taskState = new Map();
+    let taskEpoch = '';
+    let taskVersion = 0;
+    let taskSyncChain = Promise.resolve(false);
+    // 耗时趋势图缓存：任务ID -> 已绘制的HTML；只有出现在增量变更中的任务才重新拉取执行记录
+    const sparklineCache = new Map();
+    const sparklineLoads = new Map();
+
+    function invalidateSparkline(id) {
+        sparklineCache.delete(id);
+        sparklineLoads.delete(id);
+    }
+
+    // 拉取并合并增量变更，返回是否有变化（串行执行，避免乱序合并）
+    function syncTasks() {
+        taskSyncChain = taskSyncChain.catch(() => false).then(() =>
+            fetch(`/api/dns/tasks/changes?since=${taskVersion}&epoch=${encodeURIComponent(taskEpoch)}`)
+                .then(response => response.json())
+                .then(data => {
+                    if (data.code !== 200 || !data.data) {
+                        return false;
+                    }
+                    const changes = data.data;
+                    if (changes.reset) {
+                        taskState.clear();
+                        sparklineCache.clear();
+                        sparklineLoads.clear();
+                    }
+                    (changes.upserts || []).forEach(task => {
+                        taskState.set(task.id, task);
+                        invalidateSparkline(task.id);
+                    });
+                    (changes.deleted || []).forEach(id => {
+                        taskState.delete(id);
+                        invalidateSparkline(id);
+                    });
+                    taskEpoch = changes.epoch;
+                    taskVersion = changes.version;
+                    return changes.reset || changes.upserts.length > 0 || changes.deleted.length > 0;
+                })
+        );
+        return taskSyncChain;
+    }
+
     function loadDdnsTasks(secretId) {
         const taskListDiv = document.getElementById('ddnsTaskList');
-        taskListDiv.innerHTML = '<div class="loading"><i class="fas fa-spinner fa-spin"></i> 加载中...</div>';
+        if (taskState.size === 0) {
+            taskListDiv.innerHTML = '<div class="loading"><i class="fas fa-spinner fa-spin"></i> 加载中...</div>';
+        }
         
-        fetch(`/api/dns/tasks/${encodeURIComponent(secretId)}`)
-            .then(response => response.json())
-            .then(data => {
-                if (data.code === 200 && Array.isArray(data.data)) {
-                    renderDdnsTasks(data.data);
-                } else {
-                    taskListDiv.innerHTML = '<div class="empty"><i class="fas fa-inbox"></i> 暂无DDNS任务</div>';
-                }
-            })
+        syncTasks()
+            .then(() => renderAccountTasks(secretId))
             .catch(error => {
                 console.error('获取DDNS任务失败:', error);
                 taskListDiv.innerHTML = '<div class="error"><i class="fas fa-exclamation-circle"></i> 加载失败</div>';
             });
     }
 
+    // 从本地视图中渲染指定账号的任务
+    function renderAccountTasks(secretId) {
+        const tasks = Array.from(taskState.values())
+            .filter(task => usesAccount(task, secretId))
+            .sort((a, b) => (a.fullDomain || '').localeCompare(b.fullDomain || ''));
+        renderDdnsTasks(tasks);
+        renderTaskStats();
+    }
+
+    // 任务是否使用该账号（记录组的任一目标使用即算）
+    function usesAccount(task, secretId) {
+        return task.secretId === secretId || (task.accounts || []).includes(secretId);
+    }
+
+    // 汇总所有账号的任务状态：侧边栏账号角标 + 任务区标题统计
+    function renderTaskStats() {
+        const all = Array.from(taskState.values());
+        document.querySelectorAll('.menu li.user-item').forEach(item => {
+            const secretId = item.querySelector('.user-id')?.value;
+            const own = all.filter(task => usesAccount(task, secretId));
+            let badge = item.querySelector('.task-count');
+            if (!badge) {
+                badge = document.createElement('span');
+                badge.className = 'task-count';
+                item.querySelector('.user-link').appendChild(badge);
+            }
+            const errors = own.filter(task => task.status === 'error').length;
+            badge.textContent = own.length;
+            badge.style.display = own.length > 0 ? 'inline-block' : 'none';
+            badge.classList.toggle('has-error', errors > 0);
+            badge.title = `任务 ${own.length} 个，错误 ${errors} 个`;
+        });
+        
+        const stats = document.getElementById('ddnsTaskStats');
+        if (stats) {
+            const running = all.filter(task => task.status === 'running').length;
+            const errors = all.filter(task => task.status === 'error').length;
+            stats.textContent = `全部账号: 运行 ${running} / 错误 ${errors} / 共 ${all.length}`;
+        }
+    }
+
     function renderDdnsTasks(tasks) {
         const taskListDiv = document.getElementById('ddnsTaskList');
         
@@ -305,18 +401,23 @@ document.addEventListener('DOMContentLoaded', function () {
                         </div>
                         <div class="task-info-item">
                             <i class="fas fa-server"></i>
-                            <span>服务: ${task.ipServiceName}</span>
+                            <span>服务: ${task.ipServiceName}${task.sourceInterface ? ' via ' + task.sourceInterface : ''}</span>
                         </div>
                         <div class="task-info-item">
                             <i class="fas fa-network-wired"></i>
-                            <span>IP: ${task.lastIp || '-'}</span>
+                            <span>IP: ${task.lastIp || '-'}${task.lastIpv6 ? ' / ' + task.lastIpv6 : ''}</span>
                         </div>
                         <div class="task-info-item">
                             <i class="fas fa-history"></i>
                             <span>更新: ${task.lastUpdateTime || '-'}</span>
                         </div>
+                        ${task.targetCount ? `<div class="task-info-item">
+                            <i class="fas fa-layer-group"></i>
+                            <span>记录组: ${task.targetCount} 条记录</span>
+                        </div>` : ''}
                     </div>
                     ${task.lastError ? `<div class="task-error"><i class="fas fa-exclamation-triangle"></i> ${task.lastError}</div>` : ''}
+                    <div class="task-sparkline" data-task-id="${task.id}"></div>
                     <div class="task-actions">
                         ${task.enabled ? 
                             `<button class="btn btn-sm btn-warning task-stop-btn" data-id="${task.id}"><i class="fas fa-stop"></i> 停止</button>` :
@@ -335,6 +436,76 @@ document.addEventListener('DOMContentLoaded', function () {
         
         // 绑定任务操作按钮事件
         bindTaskActions(tasks);
+        
+        // 加载执行耗时趋势（未变化的任务直接使用缓存）
+        document.querySelectorAll('.task-sparkline').forEach(el => loadTaskSparkline(el));
+    }
+
+    // 获取任务最近执行记录并绘制耗时趋势图，同一任务同时只有一个请求
+    function loadTaskSparkline(el) {
+        const id = el.dataset.taskId;
+        if (sparklineCache.has(id)) {
+            el.innerHTML = sparklineCache.get(id);
+            return;
+        }
+        if (sparklineLoads.has(id)) {
+            return;
+        }
+        const load = fetch(`/api/dns/tasks/${id}/history`)
+            .then(response => response.json())
+            .then(data => {
+                // 请求期间任务又有变化时丢弃结果，由下次渲染重新拉取
+                if (sparklineLoads.get(id) !== load) {
+                    return;
+                }
+                sparklineLoads.delete(id);
+                if (data.code === 200 && data.data) {
+                    const html = renderSparkline(data.data);
+                    sparklineCache.set(id, html);
+                    // 请求期间列表可能已重新渲染，写入当前的元素
+                    const target = document.querySelector(`.task-sparkline[data-task-id="${id}"]`);
+                    if (target) {
+                        target.innerHTML = html;
+                    }
+                }
+            })
+            .catch(() => {
+                if (sparklineLoads.get(id) === load) {
+                    sparklineLoads.delete(id);
+                }
+            });
+        sparklineLoads.set(id, load);
+    }
+
+    function renderSparkline(history) {
+        const runs = history.runs || [];
+        if (runs.length === 0) {
+            return '<span class="sparkline-empty">暂无执行记录</span>';
+        }
+        const width = 160, height = 28, pad = 3;
+        const max = Math.max(1, ...runs.map(r => r.totalMs));
+        const step = runs.length > 1 ? (width - pad * 2) / (runs.length - 1) : 0;
+        const points = runs.map((r, i) => {
+            const x = pad + i * step;
+            const y = height - pad - (r.totalMs / max) * (height - pad * 2);
+            return { x: x.toFixed(1), y: y.toFixed(1), run: r };
+        });
+        let svg = `<svg width="${width}" height="${height}" viewBox="0 0 ${width} ${height}">`;
+        svg += `<polyline fill="none" stroke="#1890ff" stroke-width="1.5" points="${points.map(p => p.x + ',' + p.y).join(' ')}"/>`;
+        points.forEach(p => {
+            if (p.run.outcome === 'failed') {
+                svg += `<circle cx="${p.x}" cy="${p.y}" r="2.5" fill="#ff4d4f"><title>${new Date(p.run.time).toLocaleString()} 失败</title></circle>`;
+            } else if (p.run.outcome === 'shed') {
+                svg += `<circle cx="${p.x}" cy="${p.y}" r="2.5" fill="#bfbfbf"><title>${new Date(p.run.time).toLocaleString()} 系统繁忙已跳过</title></circle>`;
+            } else if (p.run.changed) {
+                svg += `<circle cx="${p.x}" cy="${p.y}" r="2.5" fill="#52c41a"><title>${new Date(p.run.time).toLocaleString()} 已更新</title></circle>`;
+            }
+        });
+        svg += '</svg>';
+        const total = history.summary.total;
+        const rate = Math.round(history.summary.successRate * 100);
+        return `${svg}<span class="sparkline-stats" title="最近 ${history.count} 次执行，变更 ${history.summary.changes} 次">`
+            + `p50 ${total.p50}ms · p95 ${total.p95}ms · p99 ${total.p99}ms · 成功率 ${rate}%</span>`;
     }
 
     function formatInterval(seconds) {
@@ -460,10 +631,32 @@ document.addEventListener('DOMContentLoaded', function () {
             
             const fullDomain = subdomain === '@' ? domain : subdomain + '.' + domain;
             document.getElementById('ddnsFullDomain').textContent = fullDomain;
+            loadSourceInterfaces();
             addDdnsModal.style.display = 'flex';
         });
     }
 
+    // 加载可选的查询出口网卡（多线路）
+    function loadSourceInterfaces() {
+        const select = document.getElementById('ddnsSourceInterface');
+        if (!select) return;
+        fetch('/api/dns/networkInterfaces')
+            .then(r => r.json())
+            .then(data => {
+                if (data.code !== 200 || !Array.isArray(data.data)) return;
+                select.innerHTML = '<option value="">默认路由</option>';
+                data.data.forEach(ni => {
+                    const addresses = [...(ni.ipv4 || []), ...(ni.ipv6 || [])];
+                    if (addresses.length === 0) return;
+                    const option = document.createElement('option');
+                    // displayName 字段为系统网卡名（如 eth1），比显示名稳定
+                    option.value = ni.displayName || ni.name;
+                    option.textContent = `${ni.displayName || ni.name} (${addresses.join(', ')})`;
+                    select.appendChild(option);
+                });
+            });
+    }
+
     // 模态框关闭
     document.querySelectorAll('.modal .close-btn').forEach(btn => {
         btn.addEventListener('click', () => {
@@ -499,6 +692,14 @@ document.addEventListener('DOMContentLoaded', function () {
             formData.append('ipServiceName', ipServiceName);
             formData.append('interval', interval);
             formData.append('recordType', recordType);
+            const ipv6Suffix = document.getElementById('ddnsIpv6Suffix').value.trim();
+            if (ipv6Suffix) {
+                formData.append('ipv6Suffix', ipv6Suffix);
+            }
+            const sourceInterface = document.getElementById('ddnsSourceInterface').value;
+            if (sourceInterface) {
+                formData.append('sourceInterface', sourceInterface);
+            }
             
             confirmAddDdns.disabled = true;
             confirmAddDdns.innerHTML = '<i class="fas fa-spinner fa-spin"></i> 添加中...';
@@ -594,6 +795,17 @@ document.addEventListener('DOMContentLoaded', function () {
     const addServiceModal = document.getElementById('addServiceModal');
     const confirmAddService = document.getElementById('confirmAddService');
     const newServiceUrl = document.getElementById('newServiceUrl');
+    const newServiceMode = document.getElementById('newServiceMode');
+    const newServiceExpression = document.getElementById('newServiceExpression');
+    // 各提取方式的表达式提示（plain、scan 不需要表达式）
+    const expressionHints = { json: '如 /ip 或 /data/0/addr', regex: '如 "ip":"([^"]+)"', header: '如 X-Client-IP' };
+    if (newServiceMode) {
+        newServiceMode.addEventListener('change', () => {
+            const hint = expressionHints[newServiceMode.value];
+            newServiceExpression.style.display = hint ? 'block' : 'none';
+            newServiceExpression.placeholder = hint || '';
+        });
+    }
     const addServiceIpType = document.getElementById('addServiceIpType');
     const urlInputGroup = document.getElementById('urlInputGroup');
     const interfaceSelectGroup = document.getElementById('interfaceSelectGroup');
@@ -642,6 +854,11 @@ document.addEventListener('DOMContentLoaded', function () {
         addServiceIpType.value = ipType;
         addServiceModal.style.display = 'flex';
         newServiceUrl.value = '';
+        newServiceMode.value = 'scan';
+        newServiceExpression.value = '';
+        newServiceExpression.style.display = 'none';
+        document.getElementById('newServiceMaxBytes').value = '0';
+        document.getElementById('newServiceName').value = '';
         // 重置为URL模式
         document.querySelector('input[name="serviceType"][value="url"]').checked = true;
         urlInputGroup.style.display = 'block';
@@ -690,7 +907,14 @@ document.addEventListener('DOMContentLoaded', function () {
                 fetch('/api/dns/addIpService', {
                     method: 'POST',
                     headers: { 'Content-Type': 'application/x-www-form-urlencoded' },
-                    body: new URLSearchParams({ url: url })
+                    body: new URLSearchParams({
+                        url: url,
+                        ipType: addServiceIpType.value,
+                        mode: newServiceMode.value,
+                        expression: newServiceExpression.value.trim(),
+                        maxBytes: document.getElementById('newServiceMaxBytes').value || '0',
+                        name: document.getElementById('newServiceName').value.trim()
+                    })
                 })
                 .then(response => response.json())
                 .then(data => {
@@ -748,6 +972,82 @@ document.addEventListener('DOMContentLoaded', function () {
         });
     }
 
+    // ==================== IP服务测速 ====================
+    const runBenchmarkBtn = document.getElementById('runBenchmark');
+    if (runBenchmarkBtn) {
+        runBenchmarkBtn.addEventListener('click', () => {
+            const rounds = document.getElementById('benchmarkRounds').value;
+            const resultDiv = document.getElementById('benchmarkResult');
+            runBenchmarkBtn.disabled = true;
+            runBenchmarkBtn.innerHTML = '<i class="fas fa-spinner fa-spin"></i> 测速中...';
+            resultDiv.innerHTML = '<div class="loading"><i class="fas fa-spinner fa-spin"></i> 正在测速，每个服务查询 ' + rounds + ' 轮...</div>';
+            addLog(`开始IP服务测速: ${rounds} 轮`, 'info');
+            fetch('/api/admin/benchmark', {
+                method: 'POST',
+                headers: { 'Content-Type': 'application/x-www-form-urlencoded' },
+                body: new URLSearchParams({ rounds: rounds })
+            })
+            .then(r => r.json())
+            .then(data => {
+                if (data.code === 200) {
+                    renderBenchmark(data.data);
+                    addLog(`IP服务测速完成，用时 ${(data.data.durationMs / 1000).toFixed(1)} 秒`, 'success');
+                } else {
+                    resultDiv.innerHTML = `<div class="error">${data.message}</div>`;
+                    addLog(`IP服务测速失败: ${data.message}`, 'error');
+                }
+            })
+            .catch(() => {
+                resultDiv.innerHTML = '<div class="error">测速请求失败</div>';
+            })
+            .finally(() => {
+                runBenchmarkBtn.disabled = false;
+                runBenchmarkBtn.innerHTML = '<i class="fas fa-play"></i> 开始测速';
+            });
+        });
+    }
+
+    // 渲染测速报告：推荐服务 + 各服务耗时表（HTTP服务显示连接/TLS/首字节分段）
+    function renderBenchmark(report) {
+        const resultDiv = document.getElementById('benchmarkResult');
+        const recommended = Object.values(report.recommendations || {}).map(r => r.url);
+        const recommendText = ['ipv4', 'ipv6'].map(family => {
+            const r = report.recommendations[family];
+            const label = family === 'ipv4' ? 'IPv4' : 'IPv6';
+            return r ? `${label} 推荐 <strong>${r.name}</strong>（p95 ${r.p95Ms} ms）` : `${label} 无可推荐服务`;
+        }).join('；');
+        const fmt = p => p ? `${p.p50} / ${p.p95} / ${p.p99}` : '-';
+        const typeLabel = { builtin: '内置', local: '本地', gateway: '网关', stun: 'STUN', dns: 'DNS' };
+        const rows = report.services
+            .sort((a, b) => a.ipType.localeCompare(b.ipType)
+                || (a.latencyMs.total ? a.latencyMs.total.p95 : Infinity) - (b.latencyMs.total ? b.latencyMs.total.p95 : Infinity))
+            .map(s => `
+                <tr class="${recommended.includes(s.url) ? 'recommended' : ''}" title="${s.url}${s.lastError ? '\n' + s.lastError : ''}">
+                    <td>${s.name}</td>
+                    <td>${typeLabel[s.type] || '自定义'}</td>
+                    <td>${s.ipType}</td>
+                    <td>${fmt(s.latencyMs.connect)}</td>
+                    <td>${fmt(s.latencyMs.tls)}</td>
+                    <td>${fmt(s.latencyMs.firstByte)}</td>
+                    <td>${fmt(s.latencyMs.total)}</td>
+                    <td class="${s.errorRate > 0 ? 'bad' : ''}">${(s.errorRate * 100).toFixed(0)}%</td>
+                    <td class="${s.agreement < 1 ? 'bad' : ''}">${(s.agreement * 100).toFixed(0)}%</td>
+                    <td>${s.answer || '-'}</td>
+                </tr>`).join('');
+        resultDiv.innerHTML = `
+            <div class="benchmark-recommend">${recommendText}</div>
+            <table class="benchmark-table">
+                <thead>
+                    <tr>
+                        <th>服务</th><th>类型</th><th>地址族</th>
+                        <th>连接 p50/p95/p99 (ms)</th><th>TLS</th><th>首字节</th><th>总耗时</th>
+                        <th>失败率</th><th>一致率</th><th>结果</th>
+                    </tr>
+                </thead>
+                <tbody>${rows}</tbody>
+            </table>`;
+    }
+
     // ==================== 获取域名列表 ====================
     function loadDomainList(id, key) {
         const domainListDiv = document.getElementById('domainList');
@@ -995,10 +1295,21 @@ document.addEventListener('DOMContentLoaded', function () {
             .catch(err => console.error('获取日志失败:', err));
     }
     
-    // 每5秒轮询一次后端日志
-    setInterval(pollServerLogs, 5000);
+    // 每5秒轮询一次后端日志和任务变更
+    function pollServerState() {
+        pollServerLogs();
+        syncTasks().then(changed => {
+            const secretId = document.getElementById('currentSecretId')?.value;
+            if (changed && secretId && document.getElementById('dns-manage')?.classList.contains('active')) {
+                renderAccountTasks(secretId);
+            } else if (changed) {
+                renderTaskStats();
+            }
+        }).catch(err => console.error('同步任务失败:', err));
+    }
+    setInterval(pollServerState, 5000);
     // 初始加载
-    pollServerLogs();
+    pollServerState();
 
     // ==================== 提示框自动隐藏 ====================
     const alertBox = document.getElementById('alertBox');
@@ -0,0 +1,97 @@
+package top.hanlin.publicipupload.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import top.hanlin.publicipupload.entity.DdnsTask;
+import top.hanlin.publicipupload.fixture.FakeAlidnsServer;
+import top.hanlin.publicipupload.fixture.FakeRecordStore;
+import top.hanlin.publicipupload.fixture.IpEchoServer;
+import top.hanlin.publicipupload.fixture.StunResponder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 阿里云记录读取：同一关键字下的记录超过一页时仍能找到目标记录，不重复创建
+ */
+class AliyunRecordReadTest {
+
+    private static final String DOMAIN = "example.com";
+
+    @TempDir
+    File dir;
+
+    private FakeAlidnsServer alidns;
+    private IpEchoServer echo;
+    private StunResponder stun;
+    private DdnsTaskService service;
+
+    @BeforeEach
+    void setUp() {
+        alidns = new FakeAlidnsServer();
+        alidns.start();
+        echo = new IpEchoServer();
+        echo.start();
+        // 本地HTTP替身只监听IPv4，IPv6地址经STUN替身在 [::1] 上查询
+        stun = new StunResponder().setMappedAddress("2001:db8::10").start();
+        System.setProperty("ddns.alidns.endpoint", alidns.endpoint());
+        service = new DdnsTaskService(new File(dir, "ddns_tasks.json"));
+        service.setIpFallbackEnabled(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+        System.clearProperty("ddns.alidns.endpoint");
+        stun.close();
+        echo.close();
+        alidns.close();
+    }
+
+    @Test
+    void findsRecordBeyondFirstPageOfFuzzyMatches() {
+        assumeTrue(stun.supportsIPv6(), "本机不支持IPv6");
+        FakeRecordStore store = alidns.store();
+        // 模糊匹配 "home" 的记录排在目标记录之前，且超过默认的20条一页
+        for (int i = 1; i <= 25; i++) {
+            store.create(DOMAIN, "home" + i, "A", "198.51.100." + i, "default");
+        }
+        store.create(DOMAIN, "myhome", "AAAA", "2001:db8::1", "default");
+        store.create(DOMAIN, "home", "MX", "mx.example.com", "default");
+        store.create(DOMAIN, "home", "TXT", "v=spf1 -all", "default");
+        FakeRecordStore.Record a = store.create(DOMAIN, "home", "A", "198.51.100.200", "default");
+        FakeRecordStore.Record aaaa = store.create(DOMAIN, "home", "AAAA", "2001:db8::200", "default");
+
+        DdnsTask task = new DdnsTask();
+        task.setProvider("阿里云");
+        task.setSecretId("LTAIread");
+        task.setSecretKey("read-secret");
+        task.setDomain(DOMAIN);
+        task.setSubdomain("home");
+        task.setRecordType(DdnsTask.DUAL_STACK);
+        task.setIpServiceUrl(echo.ipv4Url());
+        task.setIpServiceName("本地替身");
+        task.setIpv6ServiceUrl("stun://" + stun.server6());
+        task.setIpv6ServiceName("本地替身");
+        task.setInterval(60);
+        String id = service.addTask(task).getId();
+
+        Map<String, Object> first = service.executeTaskNow(id);
+        Map<String, Object> second = service.executeTaskNow(id);
+
+        assertThat(first).containsEntry("success", true);
+        assertThat(second).containsEntry("success", true);
+        // 原有记录被更新，没有新增重复的 A/AAAA 记录
+        List<FakeRecordStore.Record> home = store.find(r -> "home".equals(r.rr));
+        assertThat(home).extracting(r -> r.type).containsExactlyInAnyOrder("MX", "TXT", "A", "AAAA");
+        assertThat(a.value).isEqualTo(echo.getIPv4());
+        assertThat(aaaa.value).isEqualTo("2001:db8::10");
+        assertThat(alidns.callCounts()).doesNotContainKey("AddDomainRecord");
+    }
+}
@@ -0,0 +1,151 @@
+package top.hanlin.publicipupload.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import top.hanlin.publicipupload.fixture.FakeDnsServer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * DnsWhoami 对本地DNS替身的查询：记录类型、名称压缩、截断、错误码、不匹配应答与超时重试
+ */
+class DnsWhoamiTest {
+
+    private FakeDnsServer dns;
+
+    @BeforeEach
+    void setUp() {
+        DnsWhoami.setTimeoutMs(200);
+        dns = new FakeDnsServer().start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dns.close();
+        DnsWhoami.setTimeoutMs(1000);
+    }
+
+    @Test
+    void readsARecord() {
+        assertThat(DnsWhoami.lookup(dns.url("A"), false)).isEqualTo("203.0.113.53");
+        assertThat(dns.totalQueries()).isEqualTo(1);
+    }
+
+    @Test
+    void readsAAAARecordOverIPv6() {
+        assumeTrue(dns.supportsIPv6(), "本机不支持IPv6");
+
+        assertThat(DnsWhoami.lookup(dns.url6("AAAA"), true)).isEqualTo("2001:db8::53");
+    }
+
+    @Test
+    void defaultsTypeToFamily() {
+        String url = "dns://127.0.0.1:" + dns.port() + "/myip.example.test";
+
+        assertThat(DnsWhoami.lookup(url, false)).isEqualTo("203.0.113.53");
+    }
+
+    @Test
+    void readsTxtRecordInChaosClass() {
+        dns.addName("whoami.example.test");
+        String url = "dns://127.0.0.1:" + dns.port() + "/whoami.example.test?type=TXT&class=CH";
+
+        // TXT 中同时有IPv4与IPv6文本，按查询的地址族取
+        assertThat(DnsWhoami.lookup(url, false)).isEqualTo("203.0.113.53");
+        if (dns.supportsIPv6()) {
+            String url6 = "dns://[::1]:" + dns.port() + "/whoami.example.test?type=TXT&class=CH";
+            assertThat(DnsWhoami.lookup(url6, true)).isEqualTo("2001:db8::53");
+        }
+    }
+
+    @Test
+    void matchesQuestionNameCaseInsensitively() {
+        String url = "dns://127.0.0.1:" + dns.port() + "/MyIP.Example.TEST.?type=A";
+
+        assertThat(DnsWhoami.lookup(url, false)).isEqualTo("203.0.113.53");
+    }
+
+    @ParameterizedTest
+    @EnumSource(FakeDnsServer.NameStyle.class)
+    void readsCompressedAndUncompressedNames(FakeDnsServer.NameStyle style) {
+        dns.setNameStyle(style);
+
+        assertThat(DnsWhoami.lookup(dns.url("A"), false)).isEqualTo("203.0.113.53");
+        assertThat(DnsWhoami.lookup(dns.url("TXT"), false)).isEqualTo("203.0.113.53");
+    }
+
+    @Test
+    void truncatedReplyFails() {
+        dns.setTruncated(true);
+
+        assertThat(DnsWhoami.lookup(dns.url("A"), false)).isNull();
+        assertThat(dns.totalQueries()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 5})
+    void errorRcodeFails(int rcode) {
+        dns.setRcode(rcode);
+
+        assertThat(DnsWhoami.lookup(dns.url("A"), false)).isNull();
+        assertThat(dns.totalQueries()).isEqualTo(1);
+    }
+
+    @Test
+    void unknownNameIsNxdomain() {
+        String url = "dns://127.0.0.1:" + dns.port() + "/other.example.test?type=A";
+
+        assertThat(DnsWhoami.lookup(url, false)).isNull();
+    }
+
+    @Test
+    void retriesAfterTimeout() {
+        dns.dropNext(1);
+
+        assertThat(DnsWhoami.lookup(dns.url("A"), false)).isEqualTo("203.0.113.53");
+        assertThat(dns.totalQueries()).isEqualTo(2);
+    }
+
+    @Test
+    void givesUpAfterSecondTimeout() {
+        dns.dropNext(2);
+
+        long start = System.nanoTime();
+        assertThat(DnsWhoami.lookup(dns.url("A"), false)).isNull();
+        // 200ms + 加倍后的 400ms
+        assertThat((System.nanoTime() - start) / 1_000_000).isBetween(550L, 2000L);
+        assertThat(dns.totalQueries()).isEqualTo(2);
+    }
+
+    @Test
+    void ignoresReplyWithWrongId() {
+        dns.setSpoofFirst(true);
+
+        assertThat(DnsWhoami.lookup(dns.url("A"), false)).isEqualTo("203.0.113.53");
+        assertThat(dns.totalQueries()).isEqualTo(1);
+    }
+
+    @Test
+    void returnsNullForOtherFamily() {
+        // IPv6 查询只经IPv6传输，IPv4服务器地址不可用
+        assertThat(DnsWhoami.lookup("dns://127.0.0.1:" + dns.port() + "/myip.example.test?type=A", true)).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "dns://127.0.0.1",
+        "dns://127.0.0.1/",
+        "dns://127.0.0.1/myip.example.test?type=MX",
+        "dns://127.0.0.1/myip.example.test?class=HS",
+        "dns://127.0.0.1/bad..name",
+    })
+    void rejectsInvalidSource(String url) {
+        assertThatThrownBy(() -> DnsWhoami.validate(url)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
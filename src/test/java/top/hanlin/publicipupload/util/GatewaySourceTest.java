@@ -0,0 +1,150 @@
+package top.hanlin.publicipupload.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import top.hanlin.publicipupload.fixture.FakeGateway;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * GatewaySource 对本地网关替身的 NAT-PMP、PCP、UPnP 查询
+ */
+class GatewaySourceTest {
+
+    private FakeGateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        GatewaySource.reset();
+        GatewaySource.setTimeoutMs(200);
+        gateway = new FakeGateway().start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.close();
+        GatewaySource.reset();
+    }
+
+    private String url(String protocol) {
+        return switch (protocol) {
+            case "natpmp" -> gateway.natPmpUrl();
+            case "pcp" -> gateway.pcpUrl();
+            default -> gateway.upnpUrl();
+        };
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"natpmp", "pcp", "upnp"})
+    void readsWanAddress(String protocol) {
+        assertThat(GatewaySource.lookup(url(protocol))).isEqualTo("203.0.113.1");
+
+        gateway.setWanAddress("198.51.100.7");
+        assertThat(GatewaySource.lookup(url(protocol))).isEqualTo("198.51.100.7");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"natpmp", "pcp", "upnp"})
+    void rejectsPrivateAndSharedWanAddress(String protocol) {
+        for (String wan : new String[]{"192.168.1.2", "10.0.0.1", "172.16.5.5", "100.64.0.1", "169.254.1.1"}) {
+            gateway.setWanAddress(wan);
+            assertThat(GatewaySource.lookup(url(protocol))).as(wan).isNull();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"natpmp", "pcp", "upnp"})
+    void errorResultCodeFailsAndRecovers(String protocol) {
+        // NAT-PMP 3 网络故障，PCP 8 资源不足，UPnP 501 操作失败
+        gateway.setResultCode("upnp".equals(protocol) ? 501 : "pcp".equals(protocol) ? 8 : 3);
+        assertThat(GatewaySource.lookup(url(protocol))).isNull();
+
+        gateway.setResultCode(0);
+        assertThat(GatewaySource.lookup(url(protocol))).isEqualTo("203.0.113.1");
+    }
+
+    @Test
+    void pcpRenewsOneMappingWithSameNonce() {
+        // 替身按 RFC 6887 把生存期为0的请求当作删除，不分配外部地址；
+        // 已有映射只接受相同 nonce 的续期，每次换 nonce 的查询会得到 NOT_AUTHORIZED
+        for (int i = 0; i < 3; i++) {
+            assertThat(GatewaySource.lookup(gateway.pcpUrl())).isEqualTo("203.0.113.1");
+        }
+        assertThat(gateway.callCounts()).containsEntry("pcp", 3L);
+        assertThat(gateway.pcpMappingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void pcpMappingOfOtherNonceIsNotAuthorized() throws Exception {
+        assertThat(GatewaySource.lookup(gateway.pcpUrl())).isEqualTo("203.0.113.1");
+
+        // 同一内部地址与端口、不同 nonce 的 MAP 请求
+        byte[] request = new byte[60];
+        request[0] = 2;
+        request[1] = 1;
+        request[7] = 120;
+        request[18] = (byte) 0xff;
+        request[19] = (byte) 0xff;
+        request[20] = 127;
+        request[23] = 1;
+        Arrays.fill(request, 24, 36, (byte) 0x5a);
+        request[36] = 17;
+        request[41] = 9;
+        int port = Integer.parseInt(gateway.pcpUrl().substring(gateway.pcpUrl().lastIndexOf(':') + 1));
+        try (DatagramSocket socket = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            socket.setSoTimeout(1000);
+            socket.send(new DatagramPacket(request, request.length, InetAddress.getLoopbackAddress(), port));
+            byte[] buffer = new byte[1100];
+            DatagramPacket reply = new DatagramPacket(buffer, buffer.length);
+            socket.receive(reply);
+            assertThat(buffer[3]).isEqualTo((byte) 2);
+        }
+    }
+
+    @Test
+    void measureLeavesDiscoveryCacheUntouched() {
+        // 测速每次重新读取设备描述，不写入发现缓存
+        assertThat(GatewaySource.measure(gateway.upnpUrl())).isEqualTo("203.0.113.1");
+        assertThat(GatewaySource.measure(gateway.upnpUrl())).isEqualTo("203.0.113.1");
+        assertThat(gateway.callCounts()).containsEntry("upnp/rootDesc.xml", 2L);
+
+        // 查询写入缓存后，测速读取已有的缓存
+        assertThat(GatewaySource.lookup(gateway.upnpUrl())).isEqualTo("203.0.113.1");
+        assertThat(GatewaySource.measure(gateway.upnpUrl())).isEqualTo("203.0.113.1");
+        assertThat(gateway.callCounts()).containsEntry("upnp/rootDesc.xml", 3L);
+
+        // 测速失败不清除缓存
+        gateway.setResultCode(501);
+        assertThat(GatewaySource.measure(gateway.upnpUrl())).isNull();
+        gateway.setResultCode(0);
+        assertThat(GatewaySource.lookup(gateway.upnpUrl())).isEqualTo("203.0.113.1");
+        assertThat(gateway.callCounts()).containsEntry("upnp/rootDesc.xml", 3L);
+    }
+
+    @Test
+    void unsupportedProtocolTimesOut() {
+        gateway.setProtocols(false, false, false);
+
+        for (String protocol : new String[]{"natpmp", "pcp", "upnp"}) {
+            assertThat(GatewaySource.lookup(url(protocol))).as(protocol).isNull();
+        }
+        // NAT-PMP/PCP 超时后加倍重试一次
+        assertThat(gateway.callCounts()).containsEntry("natpmp", 2L).containsEntry("pcp", 2L);
+    }
+
+    @Test
+    void rejectsUnknownProtocol() {
+        assertThatThrownBy(() -> GatewaySource.lookup("gateway://igd/127.0.0.1"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
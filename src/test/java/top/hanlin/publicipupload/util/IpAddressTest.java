@@ -0,0 +1,177 @@
+package top.hanlin.publicipupload.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * IpAddress 解析与规范文本（RFC 5952）的表驱动测试
+ */
+class IpAddressTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        "::,                                ::",
+        "::1,                               ::1",
+        "1::,                               1::",
+        "1::1,                              1::1",
+        "0:0:0:0:0:0:0:0,                   ::",
+        "2001:0DB8:0000:0000:0000:0000:0000:0001, 2001:db8::1",
+        // 去前导零
+        "2001:0db8:00a0:000b::0001,         2001:db8:a0:b::1",
+        // 内嵌IPv4
+        "::ffff:1.2.3.4,                    ::ffff:102:304",
+        "64:ff9b::192.0.2.33,               64:ff9b::c000:221",
+        "1:2:3:4:5:6:1.2.3.4,               1:2:3:4:5:6:102:304",
+        // 忽略 %作用域
+        "fe80::1%eth0,                      fe80::1",
+        "fe80::abcd%25,                     fe80::abcd",
+        // 只压缩最长的连续零组，长度相同时压缩第一个
+        "1:0:0:2:0:0:0:3,                   1:0:0:2::3",
+        "1:0:0:2:0:0:3:4,                   1::2:0:0:3:4",
+        "1:0:0:0:2:0:0:3,                   1::2:0:0:3",
+        // 单个零组不压缩
+        "1:0:1:1:1:1:1:1,                   1:0:1:1:1:1:1:1",
+        "2001:db8:0:1:1:1:1:1,              2001:db8:0:1:1:1:1:1",
+        "1:2:3:4:5:6:7::,                   1:2:3:4:5:6:7:0",
+        "::2:3:4:5:6:7:8,                   0:2:3:4:5:6:7:8",
+    })
+    void canonicalIPv6(String text, String expected) {
+        IpAddress address = IpAddress.parse(text);
+
+        assertThat(address).isNotNull();
+        assertThat(address.isIPv6()).isTrue();
+        assertThat(address.toString()).isEqualTo(expected);
+        assertThat(IpAddress.parse(expected)).isEqualTo(address);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "",
+        ":",
+        ":::",
+        // 多于8组
+        "1:2:3:4:5:6:7:8:9",
+        "1:2:3:4:5:6:7:8::",
+        "::1:2:3:4:5:6:7:8",
+        "1:2:3:4:5:6:7:1.2.3.4",
+        // 两个 ::
+        "1::2::3",
+        "::1::",
+        // 分组超过4位（含前导零）
+        "00001::",
+        "2001:0db80::1",
+        // 单冒号开头或结尾
+        ":1::",
+        "1::2:",
+        "1:2:3:4:5:6:7:",
+        // 不足8组且没有 ::
+        "1:2:3:4:5:6:7",
+        // 非十六进制
+        "g::1",
+        // 内嵌IPv4不在末尾或格式无效
+        "1.2.3.4::",
+        "::1.2.3",
+        "::256.1.1.1",
+        "%eth0",
+    })
+    void rejectsInvalidIPv6(String text) {
+        assertThat(IpAddress.parseIPv6(text)).isNull();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "0.0.0.0,         0.0.0.0",
+        "1.2.3.4,         1.2.3.4",
+        "255.255.255.255, 255.255.255.255",
+        "' 8.8.8.8 ',     8.8.8.8",
+        "001.002.003.004, 1.2.3.4",
+    })
+    void canonicalIPv4(String text, String expected) {
+        IpAddress address = IpAddress.parse(text);
+
+        assertThat(address).isNotNull();
+        assertThat(address.isIPv6()).isFalse();
+        assertThat(address.toString()).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "1.2.3", "1.2.3.4.5", "256.1.1.1", "1..2.3", "1.2.3.4.", "0001.1.1.1", "a.b.c.d"})
+    void rejectsInvalidIPv4(String text) {
+        assertThat(IpAddress.parseIPv4(text)).isNull();
+    }
+
+    @Test
+    void comparesByValueNotText() {
+        assertThat(IpAddress.same("2001:DB8::0001", "2001:db8:0:0:0:0:0:1")).isTrue();
+        assertThat(IpAddress.same("::ffff:1.2.3.4", "::ffff:102:304")).isTrue();
+        assertThat(IpAddress.same("1.2.3.4", "::ffff:1.2.3.4")).isFalse();
+        assertThat(IpAddress.parse("2001:db8::1").hashCode()).isEqualTo(IpAddress.parse("2001:0db8::0:1").hashCode());
+    }
+
+    @Test
+    void fromBytesMatchesParsed() {
+        byte[] data = new byte[16];
+        data[0] = 0x20;
+        data[1] = 0x01;
+        data[2] = 0x0d;
+        data[3] = (byte) 0xb8;
+        data[15] = 1;
+
+        assertThat(IpAddress.fromBytes(data, 0, 16)).isEqualTo(IpAddress.parse("2001:db8::1"));
+        assertThat(IpAddress.fromBytes(new byte[]{9, 1, 2, 3, 4}, 1, 4)).isEqualTo(IpAddress.parse("1.2.3.4"));
+        assertThat(IpAddress.fromBytes(data, 0, 5)).isNull();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "0,   ::aaaa:bbbb:cccc:dddd",
+        "56,  2001:db8:1:0:aaaa:bbbb:cccc:dddd",
+        "64,  2001:db8:1:2:aaaa:bbbb:cccc:dddd",
+        "120, 2001:db8:1:2:3:4:5:dd",
+        "128, 2001:db8:1:2:3:4:5:6",
+    })
+    void withSuffix(int prefixLength, String expected) {
+        IpAddress base = IpAddress.parse("2001:db8:1:2:3:4:5:6");
+        IpAddress suffix = IpAddress.parse("::aaaa:bbbb:cccc:dddd");
+
+        assertThat(base.withSuffix(prefixLength, suffix).toString()).isEqualTo(expected);
+    }
+
+    @Test
+    void prefixClearsHostBits() {
+        IpAddress address = IpAddress.parse("2001:db8:1:2:3:4:5:6");
+
+        assertThat(address.prefix(64).toString()).isEqualTo("2001:db8:1:2::");
+        assertThat(address.prefix(0).toString()).isEqualTo("::");
+        assertThat(address.prefix(128)).isEqualTo(address);
+    }
+
+    @Test
+    void withSuffixRejectsInvalidArguments() {
+        IpAddress base = IpAddress.parse("2001:db8::1");
+        IpAddress suffix = IpAddress.parse("::1");
+
+        assertThatThrownBy(() -> base.withSuffix(-1, suffix)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> base.withSuffix(129, suffix)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> base.withSuffix(64, IpAddress.parse("1.2.3.4"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> IpAddress.parse("1.2.3.4").withSuffix(24, suffix)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        // MAC 按 EUI-64 翻转U/L位并插入 fffe
+        "00:11:22:33:44:55, ::211:22ff:fe33:4455",
+        "00-11-22-33-44-55, ::211:22ff:fe33:4455",
+        "0011.2233.4455,    ::211:22ff:fe33:4455",
+        "02:00:00:00:00:01, ::ff:fe00:1",
+        "::1234:5678,       ::1234:5678",
+    })
+    void parsesSuffix(String text, String expected) {
+        assertThat(IpAddress.parseSuffix(text).toString()).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,131 @@
+package top.hanlin.publicipupload.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import top.hanlin.publicipupload.fixture.StunResponder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * StunClient 对本地STUN替身的查询：地址族、无应答服务器与NAT映射行为
+ */
+class StunClientTest {
+
+    private final List<StunResponder> responders = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        StunClient.configure(2, 300);
+    }
+
+    @AfterEach
+    void tearDown() {
+        responders.forEach(StunResponder::close);
+        StunClient.configure(2, 1000);
+    }
+
+    private StunResponder responder() {
+        StunResponder responder = new StunResponder().start();
+        responders.add(responder);
+        return responder;
+    }
+
+    @Test
+    void readsIPv4MappedAddress() {
+        StunResponder stun = responder();
+
+        assertThat(StunClient.lookup(stun.url(), false)).isEqualTo("127.0.0.1");
+
+        stun.setMappedAddress("198.51.100.9");
+        assertThat(StunClient.lookup(stun.url(), false)).isEqualTo("198.51.100.9");
+    }
+
+    @Test
+    void readsIPv6MappedAddress() {
+        StunResponder stun = responder().setMappedAddress("2001:db8::9");
+        assumeTrue(stun.supportsIPv6(), "本机不支持IPv6");
+
+        assertThat(StunClient.lookup("stun://" + stun.server6(), true)).isEqualTo("2001:db8::9");
+    }
+
+    @Test
+    void ignoresAnswerOfOtherFamily() {
+        StunResponder stun = responder().setMappedAddress("2001:db8::9");
+
+        assertThat(StunClient.lookup(stun.url(), false)).isNull();
+        // IPv6 查询不会向 IPv4 服务器地址发送请求
+        assertThat(StunClient.lookup(stun.url(), true)).isNull();
+        assertThat(stun.totalRequests()).isEqualTo(1);
+    }
+
+    @Test
+    void nonAnsweringServerTimesOut() {
+        StunResponder stun = responder().setDropRate(1.0);
+
+        long start = System.nanoTime();
+        assertThat(StunClient.lookup(stun.url(), false)).isNull();
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(2000);
+        assertThat(stun.totalRequests()).isEqualTo(1);
+        assertThat((double) StunClient.getHealth().get(stun.server()).get("score")).isLessThan(1.0);
+    }
+
+    @Test
+    void fallsBackToRemainingServersAndPrefersHealthyOnes() {
+        StunClient.configure(1, 300);
+        StunResponder dead = responder().setDropRate(1.0);
+        StunResponder alive = responder().setMappedAddress("198.51.100.10");
+        String url = "stun://" + dead.server() + "," + alive.server();
+
+        assertThat(StunClient.lookup(url, false)).isEqualTo("198.51.100.10");
+        assertThat(dead.totalRequests()).isEqualTo(1);
+
+        // 无应答的服务器健康分降低，下次先查询健康的服务器
+        assertThat(StunClient.lookup(url, false)).isEqualTo("198.51.100.10");
+        assertThat(dead.totalRequests()).isEqualTo(1);
+        assertThat(alive.totalRequests()).isEqualTo(2);
+    }
+
+    @Test
+    void detectsEndpointIndependentMapping() {
+        StunResponder a = responder().setMappedAddress("198.51.100.11");
+        StunResponder b = responder().setMappedAddress("198.51.100.11");
+        String url = "stun://" + a.server() + "," + b.server();
+
+        assertThat(StunClient.lookup(url, false)).isEqualTo("198.51.100.11");
+        assertThat(StunClient.mappingBehavior(url)).isEqualTo("endpoint-independent");
+    }
+
+    @Test
+    void detectsAddressDependentMapping() {
+        StunResponder a = responder().setMappedAddress("198.51.100.12");
+        StunResponder b = responder().setMappedAddress("198.51.100.12").setPortOffset(7);
+        String url = "stun://" + a.server() + "," + b.server();
+
+        assertThat(StunClient.lookup(url, false)).isEqualTo("198.51.100.12");
+        assertThat(StunClient.mappingBehavior(url)).isEqualTo("address-dependent");
+    }
+
+    @Test
+    void measureLeavesHealthAndMappingUntouched() {
+        StunClient.configure(3, 300);
+        StunResponder dead = responder().setDropRate(1.0);
+        StunResponder a = responder().setMappedAddress("198.51.100.13");
+        StunResponder b = responder().setMappedAddress("198.51.100.13").setPortOffset(7);
+        String url = "stun://" + dead.server() + "," + a.server() + "," + b.server();
+
+        assertThat(StunClient.measure(url, false)).isEqualTo("198.51.100.13");
+        assertThat(StunClient.getHealth()).doesNotContainKeys(dead.server(), a.server(), b.server());
+        assertThat(StunClient.mappingBehavior(url)).isNull();
+    }
+
+    @Test
+    void parsesServerList() {
+        assertThat(StunClient.servers("stun://stun.example.com, 192.0.2.1:19302,[2001:db8::1]:3479,[2001:db8::2]"))
+            .containsExactly("stun.example.com:3478", "192.0.2.1:19302", "[2001:db8::1]:3479", "[2001:db8::2]:3478");
+    }
+}
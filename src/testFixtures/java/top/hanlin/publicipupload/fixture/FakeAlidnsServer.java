@@ -0,0 +1,112 @@
+package top.hanlin.publicipupload.fixture;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 阿里云解析 RPC 接口（2015-01-09）本地替身（不校验签名，记录保存在内存中）
+ * 使用方式：-Dddns.alidns.endpoint=http://127.0.0.1:{port}
+ */
+public class FakeAlidnsServer extends FakeHttpServer {
+
+    private final FakeRecordStore store = new FakeRecordStore();
+
+    public FakeRecordStore store() {
+        return store;
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws Exception {
+        // RPC 风格参数可能在查询字符串或表单中
+        Map<String, String> params = parseForm(exchange.getRequestURI().getRawQuery());
+        try (InputStream in = exchange.getRequestBody()) {
+            params.putAll(parseForm(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+        }
+        String action = params.get("Action");
+        countCall(action);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("RequestId", UUID.randomUUID().toString());
+        switch (action == null ? "" : action) {
+            case "DescribeDomainRecords" -> {
+                String domain = params.get("DomainName");
+                String keyword = params.get("RRKeyWord");
+                String type = params.get("Type");
+                // RRKeyWord 默认模糊匹配，SearchMode=EXACT 时精确匹配
+                boolean exact = "EXACT".equals(params.get("SearchMode"));
+                List<FakeRecordStore.Record> found = store.find(r -> r.domain.equals(domain)
+                    && (keyword == null || (exact ? r.rr.equals(keyword) : r.rr.contains(keyword)))
+                    && (type == null || type.equals(r.type)));
+                // 与真实接口一致：默认每页20条，最多500条
+                long pageNumber = Math.max(1, Long.parseLong(params.getOrDefault("PageNumber", "1")));
+                long pageSize = Math.min(500, Math.max(1, Long.parseLong(params.getOrDefault("PageSize", "20"))));
+                List<Map<String, Object>> list = new ArrayList<>();
+                for (FakeRecordStore.Record r : found.stream().skip((pageNumber - 1) * pageSize).limit(pageSize).toList()) {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("RecordId", String.valueOf(r.id));
+                    item.put("DomainName", r.domain);
+                    item.put("RR", r.rr);
+                    item.put("Type", r.type);
+                    item.put("Value", r.value);
+                    item.put("Line", r.line);
+                    item.put("Status", "ENABLE");
+                    item.put("Locked", false);
+                    item.put("TTL", 600L);
+                    list.add(item);
+                }
+                response.put("TotalCount", (long) found.size());
+                response.put("PageNumber", pageNumber);
+                response.put("PageSize", pageSize);
+                response.put("DomainRecords", Map.of("Record", list));
+            }
+            case "AddDomainRecord" -> {
+                String line = params.get("Line");
+                FakeRecordStore.Record record = store.create(params.get("DomainName"), params.get("RR"),
+                    params.get("Type"), params.get("Value"), line != null ? line : "default");
+                response.put("RecordId", String.valueOf(record.id));
+            }
+            case "UpdateDomainRecord" -> {
+                FakeRecordStore.Record record = store.get(Long.parseLong(params.get("RecordId")));
+                if (record == null) {
+                    sendError(exchange, 400, "DomainRecordNotBelongToUser", "The DNS record does not exist.");
+                    return;
+                }
+                // 与真实接口一致：值未变化时返回重复错误
+                if (params.get("Value").equals(record.value) && params.get("RR").equals(record.rr)
+                    && params.get("Type").equals(record.type)) {
+                    sendError(exchange, 400, "DomainRecordDuplicate", "The DNS record already exists.");
+                    return;
+                }
+                store.update(record, params.get("RR"), params.get("Type"), params.get("Value"));
+                response.put("RecordId", String.valueOf(record.id));
+            }
+            case "DeleteDomainRecord" -> {
+                if (store.remove(Long.parseLong(params.get("RecordId"))) == null) {
+                    sendError(exchange, 400, "DomainRecordNotBelongToUser", "The DNS record does not exist.");
+                    return;
+                }
+                response.put("RecordId", params.get("RecordId"));
+            }
+            default -> {
+                sendError(exchange, 404, "InvalidAction.NotFound", "Specified api is not found: " + action);
+                return;
+            }
+        }
+        sendJson(exchange, 200, response);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String code, String message) throws Exception {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("RequestId", UUID.randomUUID().toString());
+        response.put("Code", code);
+        response.put("Message", message);
+        sendJson(exchange, status, response);
+    }
+}
@@ -0,0 +1,263 @@
+package top.hanlin.publicipupload.fixture;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DNS服务器本地替身：监听 127.0.0.1 随机UDP端口（本机支持IPv6时同时监听 [::1] 同一端口），对“查询本机地址”类域名应答
+ * A/AAAA 记录直接返回配置的地址，TXT 记录返回IPv4与IPv6两段地址文本。
+ * 未配置的域名应答 NXDOMAIN
+ * <p>
+ * 可模拟异常服务器：丢弃前N个查询、返回指定错误码、置截断位、在真实应答前先发送ID不匹配的伪造应答，
+ * 应答中的域名可选完整写出、整体压缩指针或部分标签加压缩指针
+ */
+public class FakeDnsServer implements AutoCloseable {
+
+    private static final int TYPE_A = 1;
+    private static final int TYPE_TXT = 16;
+    private static final int TYPE_AAAA = 28;
+
+    private final DatagramSocket socket;
+    // IPv6 传输（本机不支持IPv6时为 null）
+    private final DatagramSocket socket6;
+    private final LongAdder queries = new LongAdder();
+    // 应答的域名
+    private final Set<String> names = ConcurrentHashMap.newKeySet();
+    private volatile String ipv4 = "203.0.113.53";
+    private volatile String ipv6 = "2001:db8::53";
+    private final AtomicInteger drops = new AtomicInteger();
+    private volatile int rcode;
+    private volatile boolean truncated;
+    private volatile boolean spoofFirst;
+    private volatile NameStyle nameStyle = NameStyle.POINTER;
+
+    /**
+     * 应答记录中域名的写法
+     */
+    public enum NameStyle {
+        // 整体为指向问题域名的压缩指针
+        POINTER,
+        // 第一个标签完整写出，其余为压缩指针
+        PARTIAL,
+        // 不压缩
+        FULL
+    }
+
+    public FakeDnsServer() {
+        try {
+            socket = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        } catch (SocketException e) {
+            throw new IllegalStateException("无法启动DNS替身", e);
+        }
+        DatagramSocket v6;
+        try {
+            v6 = new DatagramSocket(new InetSocketAddress(InetAddress.getByName("::1"), socket.getLocalPort()));
+        } catch (IOException e) {
+            v6 = null;
+        }
+        socket6 = v6;
+        names.add("myip.example.test");
+    }
+
+    public FakeDnsServer start() {
+        Thread.ofVirtual().start(() -> serve(socket));
+        if (socket6 != null) {
+            Thread.ofVirtual().start(() -> serve(socket6));
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+        if (socket6 != null) {
+            socket6.close();
+        }
+    }
+
+    /**
+     * 应答的公网地址（A/TXT 用 ipv4，AAAA 用 ipv6）
+     */
+    public FakeDnsServer setAddresses(String ipv4, String ipv6) {
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+        return this;
+    }
+
+    /**
+     * 增加一个“查询本机地址”域名
+     */
+    public FakeDnsServer addName(String name) {
+        names.add(name.toLowerCase());
+        return this;
+    }
+
+    /**
+     * 丢弃接下来的 count 个查询（不应答，模拟丢包）
+     */
+    public FakeDnsServer dropNext(int count) {
+        drops.set(count);
+        return this;
+    }
+
+    /**
+     * 应答的错误码（如 2 SERVFAIL、5 REFUSED），0 为正常应答
+     */
+    public FakeDnsServer setRcode(int rcode) {
+        this.rcode = rcode;
+        return this;
+    }
+
+    /**
+     * 应答置截断位（TC）且不带记录，模拟应答超过UDP长度
+     */
+    public FakeDnsServer setTruncated(boolean truncated) {
+        this.truncated = truncated;
+        return this;
+    }
+
+    /**
+     * 真实应答前先发送一个ID不匹配、地址为 192.0.2.66 的伪造应答
+     */
+    public FakeDnsServer setSpoofFirst(boolean spoofFirst) {
+        this.spoofFirst = spoofFirst;
+        return this;
+    }
+
+    public FakeDnsServer setNameStyle(NameStyle nameStyle) {
+        this.nameStyle = nameStyle;
+        return this;
+    }
+
+    public int port() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * 是否同时监听 IPv6 传输
+     */
+    public boolean supportsIPv6() {
+        return socket6 != null;
+    }
+
+    /**
+     * 来源地址，如 dns://localhost:5353/myip.example.test?type=TXT（localhost 按任务地址族选择传输）
+     */
+    public String url(String type) {
+        return "dns://localhost:" + port() + "/myip.example.test?type=" + type;
+    }
+
+    /**
+     * IPv6 传输的来源地址，如 dns://[::1]:5353/myip.example.test?type=AAAA
+     */
+    public String url6(String type) {
+        return "dns://[::1]:" + port() + "/myip.example.test?type=" + type;
+    }
+
+    public long totalQueries() {
+        return queries.sum();
+    }
+
+    private void serve(DatagramSocket socket) {
+        byte[] buffer = new byte[512];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                if (packet.getLength() < 12) {
+                    continue;
+                }
+                queries.increment();
+                if (drops.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    continue;
+                }
+                if (spoofFirst) {
+                    byte[] spoof = respond(buffer, packet.getLength(), "192.0.2.66", "2001:db8::66");
+                    if (spoof != null) {
+                        spoof[0] ^= 0x55;
+                        socket.send(new DatagramPacket(spoof, spoof.length, packet.getSocketAddress()));
+                    }
+                }
+                byte[] response = respond(buffer, packet.getLength(), ipv4, ipv6);
+                if (response != null) {
+                    socket.send(new DatagramPacket(response, response.length, packet.getSocketAddress()));
+                }
+            } catch (IOException e) {
+                // 关闭时退出
+            }
+        }
+    }
+
+    private byte[] respond(byte[] request, int length, String ipv4, String ipv6) throws IOException {
+        // 读取问题中的域名
+        StringBuilder name = new StringBuilder();
+        int pos = 12;
+        while (pos < length && request[pos] != 0) {
+            int len = request[pos] & 0xff;
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            name.append(new String(request, pos + 1, len, StandardCharsets.US_ASCII));
+            pos += 1 + len;
+        }
+        int questionEnd = pos + 5;
+        if (questionEnd > length) {
+            return null;
+        }
+        int type = ((request[pos + 1] & 0xff) << 8) | (request[pos + 2] & 0xff);
+        boolean known = names.contains(name.toString().toLowerCase());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(request, 0, 2);
+        // 应答，递归可用；未知域名 NXDOMAIN
+        int code = rcode != 0 ? rcode : known ? 0 : 3;
+        out.write(truncated ? 0x83 : 0x81);
+        out.write(0x80 | code);
+        byte[] answer = known && code == 0 && !truncated ? rdata(type, ipv4, ipv6) : null;
+        out.write(new byte[]{0, 1, 0, (byte) (answer != null ? 1 : 0), 0, 0, 0, 0});
+        out.write(request, 12, questionEnd - 12);
+        if (answer != null) {
+            switch (nameStyle) {
+                // 名称压缩指针指向问题中的域名
+                case POINTER -> out.write(new byte[]{(byte) 0xc0, 12});
+                case PARTIAL -> {
+                    int first = request[12] & 0xff;
+                    out.write(request, 12, 1 + first);
+                    out.write(new byte[]{(byte) 0xc0, (byte) (12 + 1 + first)});
+                }
+                case FULL -> out.write(request, 12, pos + 1 - 12);
+            }
+            out.write(new byte[]{0, (byte) type, 0, request[pos + 4], 0, 0, 0, 0});
+            out.write(answer.length >>> 8);
+            out.write(answer.length);
+            out.write(answer);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] rdata(int type, String ipv4, String ipv6) throws IOException {
+        return switch (type) {
+            case TYPE_A -> InetAddress.getByName(ipv4).getAddress();
+            case TYPE_AAAA -> InetAddress.getByName(ipv6).getAddress();
+            case TYPE_TXT -> {
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                for (String text : new String[]{ipv4, ipv6}) {
+                    data.write(text.length());
+                    data.write(text.getBytes(StandardCharsets.US_ASCII));
+                }
+                yield data.toByteArray();
+            }
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package top.hanlin.publicipupload.fixture;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 腾讯云 DNSPod API 3.0 本地替身（不校验签名，记录保存在内存中）
+ * 使用方式：-Dddns.dnspod.endpoint=http://127.0.0.1:{port}
+ */
+public class FakeDnspodServer extends FakeHttpServer {
+
+    private final FakeRecordStore store = new FakeRecordStore();
+
+    public FakeRecordStore store() {
+        return store;
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws Exception {
+        String action = exchange.getRequestHeaders().getFirst("X-TC-Action");
+        JsonObject params;
+        try (InputStream in = exchange.getRequestBody()) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            params = body.isBlank() ? new JsonObject() : JsonParser.parseString(body).getAsJsonObject();
+        }
+        countCall(action);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        switch (action == null ? "" : action) {
+            case "DescribeRecordList" -> {
+                String domain = str(params, "Domain");
+                String subdomain = str(params, "Subdomain");
+                String recordType = str(params, "RecordType");
+                List<FakeRecordStore.Record> found = store.find(r -> r.domain.equals(domain)
+                    && (subdomain == null || subdomain.equals(r.rr))
+                    && (recordType == null || recordType.equals(r.type)));
+                if (found.isEmpty()) {
+                    // 与真实接口一致：无记录时返回错误而不是空列表
+                    sendError(exchange, "ResourceNotFound.NoDataOfRecord", "记录列表为空。");
+                    return;
+                }
+                List<Map<String, Object>> list = new ArrayList<>();
+                for (FakeRecordStore.Record r : found) {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("RecordId", r.id);
+                    item.put("Name", r.rr);
+                    item.put("Type", r.type);
+                    item.put("Value", r.value);
+                    item.put("Line", r.line);
+                    item.put("LineId", "0");
+                    item.put("Status", "ENABLE");
+                    item.put("TTL", 600);
+                    item.put("MX", 0);
+                    list.add(item);
+                }
+                response.put("RecordCountInfo", Map.of("TotalCount", list.size(), "ListCount", list.size(), "SubdomainCount", list.size()));
+                response.put("RecordList", list);
+            }
+            case "CreateRecord" -> {
+                String line = str(params, "RecordLine");
+                FakeRecordStore.Record record = store.create(str(params, "Domain"), str(params, "SubDomain"),
+                    str(params, "RecordType"), str(params, "Value"), line != null ? line : "默认");
+                response.put("RecordId", record.id);
+            }
+            case "ModifyRecord" -> {
+                FakeRecordStore.Record record = store.get(params.get("RecordId").getAsLong());
+                if (record == null) {
+                    sendError(exchange, "InvalidParameter.RecordIdInvalid", "记录编号错误。");
+                    return;
+                }
+                store.update(record, str(params, "SubDomain"), str(params, "RecordType"), str(params, "Value"));
+                response.put("RecordId", record.id);
+            }
+            case "DeleteRecord" -> {
+                if (store.remove(params.get("RecordId").getAsLong()) == null) {
+                    sendError(exchange, "InvalidParameter.RecordIdInvalid", "记录编号错误。");
+                    return;
+                }
+            }
+            default -> {
+                sendError(exchange, "InvalidAction", "接口不存在: " + action);
+                return;
+            }
+        }
+        response.put("RequestId", UUID.randomUUID().toString());
+        sendJson(exchange, 200, Map.of("Response", response));
+    }
+
+    private static void sendError(HttpExchange exchange, String code, String message) throws Exception {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("Error", Map.of("Code", code, "Message", message));
+        response.put("RequestId", UUID.randomUUID().toString());
+        sendJson(exchange, 200, Map.of("Response", response));
+    }
+
+    private static String str(JsonObject params, String name) {
+        return params.has(name) && !params.get(name).isJsonNull() ? params.get(name).getAsString() : null;
+    }
+}
@@ -0,0 +1,265 @@
+package top.hanlin.publicipupload.fixture;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 局域网网关本地替身：UDP 端口应答 NAT-PMP（版本0）与 PCP（版本2 MAP），
+ * HTTP 端口提供 UPnP IGD 设备描述（/rootDesc.xml）与 GetExternalIPAddress 控制接口（/ctl/IPConn）
+ * 可随时切换WAN口地址模拟公网IP变化，单独关闭某个协议模拟不支持该协议的路由器，
+ * 或设置结果码模拟网关拒绝请求（NAT-PMP/PCP 返回该结果码，UPnP 返回 SOAP 错误）
+ * <p>
+ * PCP 按 RFC 6887 处理生存期：生存期为0的 MAP 请求视为删除映射，应答中的外部地址为全零；
+ * 同一客户端地址、协议与内部端口的映射未过期时，nonce 不同的请求返回 NOT_AUTHORIZED（结果码2）
+ */
+public class FakeGateway extends FakeHttpServer {
+
+    private static final String SERVICE_TYPE = "urn:schemas-upnp-org:service:WANIPConnection:1";
+    private static final int PCP_NOT_AUTHORIZED = 2;
+
+    private final DatagramSocket udp;
+    private final Thread udpThread;
+    private final long startedAt = System.currentTimeMillis();
+    private volatile String wanAddress = "203.0.113.1";
+    private volatile boolean natPmpEnabled = true;
+    private volatile boolean pcpEnabled = true;
+    private volatile boolean upnpEnabled = true;
+    private volatile int resultCode;
+    // PCP 映射：客户端地址/协议/内部端口 -> 映射
+    private final Map<String, PcpMapping> pcpMappings = new ConcurrentHashMap<>();
+
+    private record PcpMapping(byte[] nonce, long expiresAt) {
+    }
+
+    public FakeGateway() {
+        try {
+            udp = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        } catch (SocketException e) {
+            throw new IllegalStateException("无法启动网关替身", e);
+        }
+        udpThread = Thread.ofVirtual().unstarted(this::serveUdp);
+    }
+
+    public FakeGateway setWanAddress(String wanAddress) {
+        this.wanAddress = wanAddress;
+        return this;
+    }
+
+    public FakeGateway setProtocols(boolean natPmp, boolean pcp, boolean upnp) {
+        this.natPmpEnabled = natPmp;
+        this.pcpEnabled = pcp;
+        this.upnpEnabled = upnp;
+        return this;
+    }
+
+    /**
+     * 应答的结果码，0 为成功（NAT-PMP 如 3 网络故障，PCP 如 8 资源不足）
+     */
+    public FakeGateway setResultCode(int resultCode) {
+        this.resultCode = resultCode;
+        return this;
+    }
+
+    public String getWanAddress() {
+        return wanAddress;
+    }
+
+    /**
+     * 未过期的 PCP 映射数
+     */
+    public long pcpMappingCount() {
+        long now = System.currentTimeMillis();
+        return pcpMappings.values().stream().filter(m -> m.expiresAt() > now).count();
+    }
+
+    @Override
+    public FakeGateway start() {
+        super.start();
+        udpThread.start();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        udp.close();
+        super.close();
+    }
+
+    /**
+     * NAT-PMP 来源地址，如 gateway://natpmp/127.0.0.1:5351
+     */
+    public String natPmpUrl() {
+        return "gateway://natpmp/127.0.0.1:" + udp.getLocalPort();
+    }
+
+    /**
+     * PCP 来源地址
+     */
+    public String pcpUrl() {
+        return "gateway://pcp/127.0.0.1:" + udp.getLocalPort();
+    }
+
+    /**
+     * UPnP 来源地址（直接指定设备描述，跳过SSDP发现）
+     */
+    public String upnpUrl() {
+        return "gateway://upnp/" + endpoint() + "/rootDesc.xml";
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws Exception {
+        String path = exchange.getRequestURI().getPath();
+        countCall("upnp" + path);
+        if (!upnpEnabled) {
+            send(exchange, 404, "text/plain", "not found");
+            return;
+        }
+        switch (path) {
+            case "/rootDesc.xml" -> send(exchange, 200, "text/xml", """
+                <?xml version="1.0"?>
+                <root xmlns="urn:schemas-upnp-org:device-1-0">
+                  <device>
+                    <deviceType>urn:schemas-upnp-org:device:InternetGatewayDevice:1</deviceType>
+                    <deviceList><device><deviceList><device>
+                      <serviceList>
+                        <service>
+                          <serviceType>%s</serviceType>
+                          <serviceId>urn:upnp-org:serviceId:WANIPConn1</serviceId>
+                          <controlURL>/ctl/IPConn</controlURL>
+                        </service>
+                      </serviceList>
+                    </device></deviceList></device></deviceList>
+                  </device>
+                </root>
+                """.formatted(SERVICE_TYPE));
+            case "/ctl/IPConn" -> {
+                if (resultCode != 0) {
+                    send(exchange, 500, "text/xml", """
+                        <?xml version="1.0"?>
+                        <s:Envelope xmlns:s="http://schemas.xmlsoap.org/soap/envelope/">
+                          <s:Body><s:Fault><faultcode>s:Client</faultcode><faultstring>UPnPError</faultstring>
+                            <detail><UPnPError xmlns="urn:schemas-upnp-org:control-1-0">
+                              <errorCode>%d</errorCode></UPnPError></detail>
+                          </s:Fault></s:Body>
+                        </s:Envelope>
+                        """.formatted(resultCode));
+                    return;
+                }
+                send(exchange, 200, "text/xml", """
+                <?xml version="1.0"?>
+                <s:Envelope xmlns:s="http://schemas.xmlsoap.org/soap/envelope/">
+                  <s:Body><u:GetExternalIPAddressResponse xmlns:u="%s">
+                    <NewExternalIPAddress>%s</NewExternalIPAddress>
+                  </u:GetExternalIPAddressResponse></s:Body>
+                </s:Envelope>
+                """.formatted(SERVICE_TYPE, wanAddress));
+            }
+            default -> send(exchange, 404, "text/plain", "not found");
+        }
+    }
+
+    private void serveUdp() {
+        byte[] buffer = new byte[1100];
+        while (!udp.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                udp.receive(packet);
+                byte[] response = packet.getLength() >= 2 && buffer[0] == 0
+                    ? natPmp(buffer)
+                    : packet.getLength() >= 60 && buffer[0] == 2 ? pcp(buffer, packet.getAddress()) : null;
+                if (response != null) {
+                    udp.send(new DatagramPacket(response, response.length, packet.getSocketAddress()));
+                }
+            } catch (IOException e) {
+                // 关闭时退出
+            }
+        }
+    }
+
+    private byte[] natPmp(byte[] request) {
+        countCall("natpmp");
+        if (!natPmpEnabled || request[1] != 0) {
+            return null;
+        }
+        if (resultCode != 0) {
+            // 错误应答只有头部
+            return new byte[]{0, (byte) 128, (byte) (resultCode >>> 8), (byte) resultCode,
+                0, 0, 0, 0};
+        }
+        byte[] response = new byte[12];
+        response[1] = (byte) 128;
+        putInt(response, 4, epochSeconds());
+        System.arraycopy(wanBytes(), 0, response, 8, 4);
+        return response;
+    }
+
+    private byte[] pcp(byte[] request, InetAddress client) {
+        countCall("pcp");
+        if (!pcpEnabled || (request[1] & 0x7f) != 1) {
+            return null;
+        }
+        byte[] response = new byte[60];
+        response[0] = 2;
+        response[1] = (byte) 0x81;
+        response[3] = (byte) resultCode;
+        putInt(response, 8, epochSeconds());
+        // 原样返回 nonce、协议与内部端口，外部地址为 IPv4 映射地址
+        System.arraycopy(request, 24, response, 24, 20);
+        response[54] = (byte) 0xff;
+        response[55] = (byte) 0xff;
+        int lifetime = getInt(request, 4);
+        if (resultCode != 0) {
+            return response;
+        }
+        String key = client.getHostAddress() + "/" + request[36] + "/" + (((request[40] & 0xff) << 8) | (request[41] & 0xff));
+        byte[] nonce = Arrays.copyOfRange(request, 24, 36);
+        PcpMapping existing = pcpMappings.get(key);
+        if (existing != null && existing.expiresAt() > System.currentTimeMillis() && !Arrays.equals(existing.nonce(), nonce)) {
+            response[3] = PCP_NOT_AUTHORIZED;
+            return response;
+        }
+        if (lifetime == 0) {
+            // 删除映射：不分配外部地址
+            pcpMappings.remove(key);
+            return response;
+        }
+        pcpMappings.put(key, new PcpMapping(nonce, System.currentTimeMillis() + lifetime * 1000L));
+        putInt(response, 4, lifetime);
+        System.arraycopy(wanBytes(), 0, response, 56, 4);
+        return response;
+    }
+
+    private byte[] wanBytes() {
+        String[] parts = wanAddress.split("\\.");
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            bytes[i] = (byte) Integer.parseInt(parts[i]);
+        }
+        return bytes;
+    }
+
+    private int epochSeconds() {
+        return (int) ((System.currentTimeMillis() - startedAt) / 1000);
+    }
+
+    private static int getInt(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16)
+            | ((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff);
+    }
+
+    private static void putInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,124 @@
+package top.hanlin.publicipupload.fixture;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地HTTP替身基类：监听 127.0.0.1 随机端口，每个请求一个虚拟线程，并按动作统计调用次数
+ */
+public abstract class FakeHttpServer implements AutoCloseable {
+
+    protected static final Gson gson = new Gson();
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // 动作 -> 调用次数
+    private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+
+    protected FakeHttpServer() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4096);
+        } catch (IOException e) {
+            throw new IllegalStateException("无法启动本地替身服务", e);
+        }
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                handle(exchange);
+            } catch (Exception e) {
+                send(exchange, 500, "text/plain", String.valueOf(e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * 处理请求
+     */
+    protected abstract void handle(HttpExchange exchange) throws Exception;
+
+    public FakeHttpServer start() {
+        server.start();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 服务地址，如 http://127.0.0.1:18080
+     */
+    public String endpoint() {
+        return "http://127.0.0.1:" + port();
+    }
+
+    protected void countCall(String action) {
+        calls.computeIfAbsent(action, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * 各动作调用次数
+     */
+    public Map<String, Long> callCounts() {
+        Map<String, Long> result = new HashMap<>();
+        calls.forEach((action, count) -> result.put(action, count.sum()));
+        return result;
+    }
+
+    /**
+     * 总调用次数
+     */
+    public long totalCalls() {
+        return calls.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    protected static void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        send(exchange, status, "application/json;charset=utf-8", gson.toJson(body));
+    }
+
+    protected static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * 解析 application/x-www-form-urlencoded 或查询字符串
+     */
+    protected static Map<String, String> parseForm(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null || raw.isEmpty()) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int idx = pair.indexOf('=');
+            String key = idx >= 0 ? pair.substring(0, idx) : pair;
+            String value = idx >= 0 ? pair.substring(idx + 1) : "";
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+}
@@ -0,0 +1,106 @@
+package top.hanlin.publicipupload.fixture;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 内存解析记录存储（供云解析替身使用）
+ */
+public class FakeRecordStore {
+
+    /**
+     * 解析记录
+     */
+    public static class Record {
+        public final long id;
+        public final String domain;
+        public volatile String rr;
+        public volatile String type;
+        public volatile String value;
+        public volatile String line;
+        // 最近一次写入时间（System.nanoTime）
+        public volatile long updatedAt;
+        // 涉及该记录的API调用次数
+        public final LongAdder calls = new LongAdder();
+
+        Record(long id, String domain, String rr, String type, String value, String line) {
+            this.id = id;
+            this.domain = domain;
+            this.rr = rr;
+            this.type = type;
+            this.value = value;
+            this.line = line;
+            this.updatedAt = System.nanoTime();
+        }
+
+        public String fullDomain() {
+            return "@".equals(rr) ? domain : rr + "." + domain;
+        }
+    }
+
+    private final AtomicLong nextId = new AtomicLong(100000);
+    private final Map<Long, Record> records = new ConcurrentHashMap<>();
+
+    public Record create(String domain, String rr, String type, String value, String line) {
+        Record record = new Record(nextId.incrementAndGet(), domain, rr, type, value, line);
+        records.put(record.id, record);
+        record.calls.increment();
+        return record;
+    }
+
+    public Record get(long id) {
+        return records.get(id);
+    }
+
+    public Record remove(long id) {
+        return records.remove(id);
+    }
+
+    /**
+     * 修改记录值
+     */
+    public void update(Record record, String rr, String type, String value) {
+        if (rr != null) {
+            record.rr = rr;
+        }
+        if (type != null) {
+            record.type = type;
+        }
+        record.value = value;
+        record.updatedAt = System.nanoTime();
+        record.calls.increment();
+    }
+
+    /**
+     * 按条件查询，命中的每条记录计一次调用
+     */
+    public List<Record> find(Predicate<Record> filter) {
+        List<Record> result = new ArrayList<>();
+        for (Record record : records.values()) {
+            if (filter.test(record)) {
+                record.calls.increment();
+                result.add(record);
+            }
+        }
+        result.sort((a, b) -> Long.compare(a.id, b.id));
+        return result;
+    }
+
+    public Collection<Record> all() {
+        return records.values();
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    public void clear() {
+        records.clear();
+    }
+}
@@ -0,0 +1,84 @@
+package top.hanlin.publicipupload.fixture;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 公网IP查询服务本地替身
+ * GET /ipv4 返回当前IPv4地址，GET /ipv6 返回当前IPv6地址，响应为纯文本；
+ * 可配置响应延迟、错误率，并可随时切换地址模拟公网IP变化
+ */
+public class IpEchoServer extends FakeHttpServer {
+
+    private volatile String ipv4 = "203.0.113.10";
+    private volatile String ipv6 = "2001:db8::10";
+    // 固定延迟与随机抖动（毫秒）
+    private volatile long latencyMs;
+    private volatile long jitterMs;
+    // 返回 HTTP 500 的比例（0~1）
+    private volatile double errorRate;
+
+    public IpEchoServer setIPv4(String ipv4) {
+        this.ipv4 = ipv4;
+        return this;
+    }
+
+    public IpEchoServer setIPv6(String ipv6) {
+        this.ipv6 = ipv6;
+        return this;
+    }
+
+    public IpEchoServer setLatency(long latencyMs, long jitterMs) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        return this;
+    }
+
+    public IpEchoServer setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    public String getIPv4() {
+        return ipv4;
+    }
+
+    public String getIPv6() {
+        return ipv6;
+    }
+
+    /**
+     * IPv4 查询地址
+     */
+    public String ipv4Url() {
+        return endpoint() + "/ipv4";
+    }
+
+    /**
+     * IPv6 查询地址
+     */
+    public String ipv6Url() {
+        return endpoint() + "/ipv6";
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws Exception {
+        String path = exchange.getRequestURI().getPath();
+        countCall(path);
+
+        long delay = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            send(exchange, 500, "text/plain", "internal error");
+            return;
+        }
+        switch (path) {
+            case "/ipv4" -> send(exchange, 200, "text/plain", ipv4 + "\n");
+            case "/ipv6" -> send(exchange, 200, "text/plain", ipv6 + "\n");
+            default -> send(exchange, 404, "text/plain", "not found");
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package top.hanlin.publicipupload.fixture;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * STUN 服务器本地替身：监听 127.0.0.1 随机UDP端口（本机支持IPv6时同时监听 [::1] 同一端口），
+ * 应答 Binding 请求的 XOR-MAPPED-ADDRESS
+ * 映射地址可配置为任意公网地址（默认返回请求的真实来源地址），可设置映射端口偏移模拟对称型NAT，
+ * 以及丢包率模拟不健康的服务器
+ */
+public class StunResponder implements AutoCloseable {
+
+    private static final int MAGIC_COOKIE = 0x2112A442;
+
+    private final DatagramSocket socket;
+    // IPv6 传输（本机不支持IPv6时为 null）
+    private final DatagramSocket socket6;
+    private final LongAdder requests = new LongAdder();
+    private volatile InetAddress mappedAddress;
+    private volatile int portOffset;
+    private volatile double dropRate;
+
+    public StunResponder() {
+        try {
+            socket = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        } catch (SocketException e) {
+            throw new IllegalStateException("无法启动STUN替身", e);
+        }
+        DatagramSocket v6;
+        try {
+            v6 = new DatagramSocket(new InetSocketAddress(InetAddress.getByName("::1"), socket.getLocalPort()));
+        } catch (IOException e) {
+            v6 = null;
+        }
+        socket6 = v6;
+    }
+
+    public StunResponder start() {
+        Thread.ofVirtual().start(() -> serve(socket));
+        if (socket6 != null) {
+            Thread.ofVirtual().start(() -> serve(socket6));
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+        if (socket6 != null) {
+            socket6.close();
+        }
+    }
+
+    /**
+     * 应答中的映射地址（IPv4 或 IPv6 文本），null 表示返回真实来源地址
+     */
+    public StunResponder setMappedAddress(String address) {
+        try {
+            this.mappedAddress = address == null ? null : InetAddress.getByName(address);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(address, e);
+        }
+        return this;
+    }
+
+    /**
+     * 映射端口相对来源端口的偏移（不同替身设置不同偏移即模拟对称型NAT）
+     */
+    public StunResponder setPortOffset(int portOffset) {
+        this.portOffset = portOffset;
+        return this;
+    }
+
+    public StunResponder setDropRate(double dropRate) {
+        this.dropRate = dropRate;
+        return this;
+    }
+
+    public int port() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * 来源地址，如 stun://127.0.0.1:34567
+     */
+    public String url() {
+        return "stun://" + server();
+    }
+
+    /**
+     * 服务器地址 host:port，用于拼接多服务器来源
+     */
+    public String server() {
+        return "127.0.0.1:" + port();
+    }
+
+    /**
+     * 是否同时监听 IPv6 传输
+     */
+    public boolean supportsIPv6() {
+        return socket6 != null;
+    }
+
+    /**
+     * IPv6 传输的服务器地址 [::1]:port
+     */
+    public String server6() {
+        return "[::1]:" + port();
+    }
+
+    public long totalRequests() {
+        return requests.sum();
+    }
+
+    private void serve(DatagramSocket socket) {
+        byte[] buffer = new byte[576];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                if (packet.getLength() < 20 || buffer[0] != 0 || buffer[1] != 1) {
+                    continue;
+                }
+                requests.increment();
+                if (dropRate > 0 && ThreadLocalRandom.current().nextDouble() < dropRate) {
+                    continue;
+                }
+                byte[] response = respond(buffer, packet.getAddress(), packet.getPort());
+                socket.send(new DatagramPacket(response, response.length, packet.getSocketAddress()));
+            } catch (IOException e) {
+                // 关闭时退出
+            }
+        }
+    }
+
+    private byte[] respond(byte[] request, InetAddress source, int sourcePort) {
+        byte[] address = (mappedAddress != null ? mappedAddress : source).getAddress();
+        int attrLength = 4 + address.length;
+        byte[] response = new byte[20 + 4 + attrLength];
+        // Binding 成功应答，沿用请求的 magic cookie 与 transaction id
+        response[0] = 0x01;
+        response[1] = 0x01;
+        response[3] = (byte) (4 + attrLength);
+        System.arraycopy(request, 4, response, 4, 16);
+        // XOR-MAPPED-ADDRESS
+        response[20] = 0x00;
+        response[21] = 0x20;
+        response[23] = (byte) attrLength;
+        response[25] = (byte) (address.length == 16 ? 0x02 : 0x01);
+        int port = ((sourcePort + portOffset) & 0xffff) ^ (MAGIC_COOKIE >>> 16);
+        response[26] = (byte) (port >>> 8);
+        response[27] = (byte) port;
+        for (int i = 0; i < address.length; i++) {
+            response[28 + i] = (byte) (address[i] ^ request[4 + i]);
+        }
+        return response;
+    }
+}
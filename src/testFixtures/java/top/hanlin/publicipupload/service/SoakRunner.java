@@ -0,0 +1,206 @@
+package top.hanlin.publicipupload.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.slf4j.LoggerFactory;
+import top.hanlin.publicipupload.entity.DdnsTask;
+import top.hanlin.publicipupload.fixture.FakeAlidnsServer;
+import top.hanlin.publicipupload.fixture.FakeDnspodServer;
+import top.hanlin.publicipupload.fixture.FakeRecordStore;
+import top.hanlin.publicipupload.fixture.IpEchoServer;
+import top.hanlin.publicipupload.model.FaultRule;
+import top.hanlin.publicipupload.util.FaultInjector;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * DDNS引擎压测：在本地云解析替身与IP查询替身上运行大量任务，
+ * 统计吞吐量、每条记录的API调用次数以及IP变化后的收敛时间
+ * <p>
+ * 运行：./gradlew soak -Psoak.tasks=5000 -Psoak.interval=30
+ * 注入故障：-Psoak.faults='[{"target":"provider","match":"阿里云","type":"hang","probability":0.05}]'
+ */
+public class SoakRunner {
+
+    public static void main(String[] args) throws Exception {
+        int taskCount = Integer.getInteger("soak.tasks", 2000);
+        int interval = Integer.getInteger("soak.interval", 30);
+        int windowSeconds = Integer.getInteger("soak.window", interval * 2);
+        long latencyMs = Long.getLong("soak.echoLatencyMs", 20);
+        long jitterMs = Long.getLong("soak.echoJitterMs", 30);
+        double errorRate = Double.parseDouble(System.getProperty("soak.echoErrorRate", "0.01"));
+        long timeoutSeconds = Long.getLong("soak.timeout", 600);
+        String reportPath = System.getProperty("soak.report", "build/results/soak/report.json");
+        // 故障注入规则（FaultRule 的 JSON 数组）
+        String faults = System.getProperty("soak.faults");
+
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        try (FakeDnspodServer dnspod = new FakeDnspodServer();
+             FakeAlidnsServer alidns = new FakeAlidnsServer();
+             IpEchoServer echo = new IpEchoServer()) {
+            dnspod.start();
+            alidns.start();
+            echo.setLatency(latencyMs, jitterMs).setErrorRate(errorRate).start();
+            System.setProperty("ddns.dnspod.endpoint", dnspod.endpoint());
+            System.setProperty("ddns.alidns.endpoint", alidns.endpoint());
+
+            File tasksFile = File.createTempFile("ddns-soak", ".json");
+            tasksFile.deleteOnExit();
+            DdnsTaskService service = new DdnsTaskService(tasksFile);
+            service.setIpFallbackEnabled(false);
+            if (faults != null && !faults.isBlank()) {
+                for (FaultRule rule : new Gson().fromJson(faults, FaultRule[].class)) {
+                    FaultInjector.addRule(rule);
+                }
+            }
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("tasks", taskCount);
+            report.put("intervalSeconds", interval);
+            report.put("echoLatencyMs", latencyMs);
+            report.put("echoJitterMs", jitterMs);
+            report.put("echoErrorRate", errorRate);
+
+            // 1. 创建并启动任务，等待全部记录创建完成
+            List<String> ids = new ArrayList<>(taskCount);
+            for (int i = 0; i < taskCount; i++) {
+                ids.add(service.addTask(createTask(i, interval, echo.ipv4Url())).getId());
+            }
+            long start = System.nanoTime();
+            try (ExecutorService starter = Executors.newVirtualThreadPerTaskExecutor()) {
+                ids.forEach(id -> starter.submit(() -> service.startTask(id)));
+            }
+            report.put("startSeconds", seconds(System.nanoTime() - start));
+            long initialNanos = awaitConvergence(dnspod, alidns, taskCount, echo.getIPv4(), start, timeoutSeconds);
+            report.put("initialSyncSeconds", initialNanos < 0 ? null : seconds(initialNanos));
+            log("启动 %d 个任务，初始同步耗时 %s 秒", taskCount, report.get("initialSyncSeconds"));
+
+            // 2. 稳态吞吐量
+            long probesBefore = echo.totalCalls();
+            long callsBefore = dnspod.totalCalls() + alidns.totalCalls();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(windowSeconds));
+            long probes = echo.totalCalls() - probesBefore;
+            long calls = dnspod.totalCalls() + alidns.totalCalls() - callsBefore;
+            report.put("steadyRunsPerSecond", round(probes / (double) windowSeconds));
+            report.put("steadyApiCallsPerRecordPerRun", round(calls / (double) Math.max(1, probes)));
+            log("稳态：%s 次执行/秒，每次执行 %s 次API调用", report.get("steadyRunsPerSecond"), report.get("steadyApiCallsPerRecordPerRun"));
+
+            // 3. 模拟公网IP变化，统计收敛时间与调用次数
+            Map<String, Long> dnspodBefore = dnspod.callCounts();
+            Map<String, Long> alidnsBefore = alidns.callCounts();
+            String newIp = "198.51.100.20";
+            long changedAt = System.nanoTime();
+            echo.setIPv4(newIp);
+            long convergeNanos = awaitConvergence(dnspod, alidns, taskCount, newIp, changedAt, timeoutSeconds);
+            report.put("convergence", convergenceStats(dnspod, alidns, newIp, changedAt, convergeNanos));
+            report.put("apiCallsDuringChange", Map.of(
+                "dnspod", diff(dnspod.callCounts(), dnspodBefore),
+                "alidns", diff(alidns.callCounts(), alidnsBefore)));
+            long changeCalls = sum(diff(dnspod.callCounts(), dnspodBefore)) + sum(diff(alidns.callCounts(), alidnsBefore));
+            report.put("apiCallsPerRecordDuringChange", round(changeCalls / (double) taskCount));
+            log("IP变化收敛：%s", report.get("convergence"));
+
+            // 4. 全程统计
+            report.put("totalApiCalls", Map.of("dnspod", dnspod.callCounts(), "alidns", alidns.callCounts()));
+            report.put("apiCallsPerRecord", round((dnspod.totalCalls() + alidns.totalCalls()) / (double) taskCount));
+            report.put("probeRequests", echo.totalCalls());
+            report.put("faults", FaultInjector.getRules());
+
+            service.destroy();
+
+            String json = new GsonBuilder().setPrettyPrinting().serializeNulls().create().toJson(report);
+            File reportFile = new File(reportPath);
+            if (reportFile.getParentFile() != null) {
+                reportFile.getParentFile().mkdirs();
+            }
+            try (Writer writer = new FileWriter(reportFile)) {
+                writer.write(json);
+            }
+            System.out.println(json);
+            log("报告已写入 %s", reportFile.getAbsolutePath());
+        }
+        System.exit(0);
+    }
+
+    private static DdnsTask createTask(int i, int interval, String ipServiceUrl) {
+        DdnsTask task = new DdnsTask();
+        task.setProvider(i % 2 == 0 ? "腾讯云" : "阿里云");
+        task.setSecretId("AKIDsoak" + (i % 10));
+        task.setSecretKey("soak-secret");
+        task.setDomain("soak" + (i % 50) + ".example.com");
+        task.setSubdomain("h" + i);
+        task.setRecordType("A");
+        task.setIpServiceUrl(ipServiceUrl);
+        task.setIpServiceName("本地替身");
+        task.setInterval(interval);
+        return task;
+    }
+
+    /**
+     * 等待全部记录指向目标IP，返回从 since 起的耗时；超时返回 -1
+     */
+    private static long awaitConvergence(FakeDnspodServer dnspod, FakeAlidnsServer alidns, int expected,
+                                         String ip, long since, long timeoutSeconds) throws InterruptedException {
+        long deadline = since + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            long converged = records(dnspod, alidns).filter(r -> ip.equals(r.value)).count();
+            if (converged >= expected) {
+                return records(dnspod, alidns).mapToLong(r -> r.updatedAt).max().orElse(since) - since;
+            }
+            Thread.sleep(200);
+        }
+        return -1;
+    }
+
+    private static Map<String, Object> convergenceStats(FakeDnspodServer dnspod, FakeAlidnsServer alidns,
+                                                        String ip, long since, long totalNanos) {
+        long[] lags = records(dnspod, alidns)
+            .filter(r -> ip.equals(r.value))
+            .mapToLong(r -> Math.max(0, r.updatedAt - since))
+            .sorted()
+            .toArray();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("converged", lags.length);
+        stats.put("timedOut", totalNanos < 0);
+        stats.put("p50Seconds", lags.length == 0 ? null : seconds(lags[(int) (lags.length * 0.50)]));
+        stats.put("p99Seconds", lags.length == 0 ? null : seconds(lags[Math.min(lags.length - 1, (int) (lags.length * 0.99))]));
+        stats.put("maxSeconds", lags.length == 0 ? null : seconds(lags[lags.length - 1]));
+        return stats;
+    }
+
+    private static Stream<FakeRecordStore.Record> records(FakeDnspodServer dnspod, FakeAlidnsServer alidns) {
+        return Stream.concat(dnspod.store().all().stream(), alidns.store().all().stream());
+    }
+
+    private static Map<String, Long> diff(Map<String, Long> after, Map<String, Long> before) {
+        Map<String, Long> result = new TreeMap<>();
+        after.forEach((action, count) -> result.put(action, count - before.getOrDefault(action, 0L)));
+        return result;
+    }
+
+    private static long sum(Map<String, Long> counts) {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static double seconds(long nanos) {
+        return round(nanos / 1e9);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.printf("[soak] " + format + "%n", args);
+    }
+}